@@ -0,0 +1,80 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.ConcurrentHexMap;
+import pl.redbyte.Hex.Hex;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counting updates of a shared map from several threads, with {@code ConcurrentHexMap.merge} and with {@code merge}
+ * on a synchronized {@code HashMap<Hex, Integer>}. Every thread simulates its own 64 by 64 region of the map, like
+ * the workers of a simulation split by area. The score is per merge; the thread count is 4 by default and is changed
+ * with {@code -t}, e.g. {@code java -jar benchmarks/target/benchmarks.jar ConcurrentHexMap -t 1}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentHexMapBenchmark {
+
+    private final AtomicInteger workers = new AtomicInteger();
+    private Map<Hex, Integer> synchronizedMap;
+    private ConcurrentHexMap<Integer> concurrentMap;
+
+
+    @Setup
+    public void setup() {
+        synchronizedMap = Collections.synchronizedMap(new HashMap<Hex, Integer>());
+        concurrentMap = new ConcurrentHexMap<Integer>();
+    }
+
+
+    /**
+     * The region of one benchmark thread and its position in the region.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        int id;
+        int step;
+
+
+        @Setup
+        public void setup(ConcurrentHexMapBenchmark benchmark) {
+            id = benchmark.workers.getAndIncrement();
+        }
+    }
+
+
+    @Benchmark
+    public Integer synchronizedHashMap(Worker worker) {
+        int i = worker.step++;
+        int q = worker.id * 64 + (i & 63);
+        int r = (i >>> 6) & 63;
+        return synchronizedMap.merge(new Hex(q, r, -q - r), 1, Integer::sum);
+    }
+
+
+    @Benchmark
+    public Integer concurrentHexMap(Worker worker) {
+        int i = worker.step++;
+        return concurrentMap.merge(worker.id * 64 + (i & 63), (i >>> 6) & 63, 1, Integer::sum);
+    }
+}
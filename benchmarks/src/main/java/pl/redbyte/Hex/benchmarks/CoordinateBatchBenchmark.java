@@ -0,0 +1,87 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.redbyte.Hex.DoubledCoord;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.OffsetCoord;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch conversions of coordinate arrays, compared with converting the same hexes one object at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoordinateBatchBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private int[] col;
+    private int[] row;
+    private int[] q;
+    private int[] r;
+    private OffsetCoord[] offsets;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(19);
+        col = new int[size];
+        row = new int[size];
+        q = new int[size];
+        r = new int[size];
+        offsets = new OffsetCoord[size];
+        for (int i = 0; i < size; i++) {
+            col[i] = random.nextInt(4096) - 2048;
+            row[i] = random.nextInt(4096) - 2048;
+            offsets[i] = new OffsetCoord(col[i], row[i]);
+        }
+    }
+
+
+    @Benchmark
+    public void pointyTopOffsetToCubeSingle(Blackhole blackhole) {
+        for (OffsetCoord offset : offsets) {
+            Hex hex = OffsetCoord.pointyTopOffsetToCube(OffsetCoord.ODD, offset);
+            blackhole.consume(hex);
+        }
+    }
+
+
+    @Benchmark
+    public int[] pointyTopOffsetToCubeBatch() {
+        OffsetCoord.pointyTopOffsetToCube(OffsetCoord.ODD, col, row, q, r, 0, size);
+        return r;
+    }
+
+
+    @Benchmark
+    public int[] flatTopOffsetToCubeBatch() {
+        OffsetCoord.flatTopOffsetToCube(OffsetCoord.EVEN, col, row, q, r, 0, size);
+        return r;
+    }
+
+
+    @Benchmark
+    public int[] pointyTopDoubledToCubeBatch() {
+        DoubledCoord.pointyTopDoubledToCube(col, row, q, r, 0, size);
+        return r;
+    }
+}
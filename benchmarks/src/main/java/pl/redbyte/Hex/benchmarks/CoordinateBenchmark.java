@@ -0,0 +1,89 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.DoubledCoord;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.OffsetCoord;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between cube coordinates and the offset and doubled coordinate systems.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoordinateBenchmark {
+
+    private Hex hex;
+    private OffsetCoord offset;
+    private DoubledCoord doubled;
+
+
+    @Setup
+    public void setup() {
+        hex = new Hex(-7, 3, 4);
+        offset = new OffsetCoord(-7, 5);
+        doubled = new DoubledCoord(-7, 5);
+    }
+
+
+    @Benchmark
+    public OffsetCoord flatTopOffsetFromCube() {
+        return OffsetCoord.flatTopOffsetFromCube(OffsetCoord.ODD, hex);
+    }
+
+
+    @Benchmark
+    public Hex flatTopOffsetToCube() {
+        return OffsetCoord.flatTopOffsetToCube(OffsetCoord.ODD, offset);
+    }
+
+
+    @Benchmark
+    public OffsetCoord pointyTopOffsetFromCube() {
+        return OffsetCoord.pointyTopOffsetFromCube(OffsetCoord.EVEN, hex);
+    }
+
+
+    @Benchmark
+    public Hex pointyTopOffsetToCube() {
+        return OffsetCoord.pointyTopOffsetToCube(OffsetCoord.EVEN, offset);
+    }
+
+
+    @Benchmark
+    public DoubledCoord flatTopDoubledFromCube() {
+        return DoubledCoord.flatTopDoubledFromCube(hex);
+    }
+
+
+    @Benchmark
+    public Hex flatTopDoubledToCube() {
+        return DoubledCoord.flatTopDoubledToCube(doubled);
+    }
+
+
+    @Benchmark
+    public DoubledCoord pointyTopDoubledFromCube() {
+        return DoubledCoord.pointyTopDoubledFromCube(hex);
+    }
+
+
+    @Benchmark
+    public Hex pointyTopDoubledToCube() {
+        return DoubledCoord.pointyTopDoubledToCube(doubled);
+    }
+}
@@ -0,0 +1,144 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.HexMorton;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range and neighbor loops over a 4096 by 4096 map (64 MB of {@code int}s, far larger than the caches), with the
+ * cells laid out in row order or in {@code HexMorton} curve order. The curve loops encode the center once and step
+ * from its code with {@code HexMorton.add} and the interleaved offsets of the range, computed in the setup, instead
+ * of encoding every hex. Run with {@code -prof perfnorm} on Linux to see the cache misses per operation next to the
+ * times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CurveOrderBenchmark {
+
+    static private final int SHIFT = 12;
+    static private final int SIDE = 1 << SHIFT;
+    static private final int MASK = SIDE - 1;
+    static private final int[] DIRECTION_Q = {1, 1, 0, -1, -1, 0};
+    static private final int[] DIRECTION_R = {0, -1, -1, 0, 1, 1};
+    static private final long[] DIRECTION_CODE = new long[6];
+
+    static {
+        for (int d = 0; d < 6; d++) {
+            DIRECTION_CODE[d] = HexMorton.interleave(DIRECTION_Q[d], DIRECTION_R[d]);
+        }
+    }
+
+    @Param({"row", "curve"})
+    public String layout;
+
+    @Param({"4", "16"})
+    public int radius;
+
+    private boolean curve;
+    private int[] cells;
+    private int[] centerQ;
+    private int[] centerR;
+    // interleaved (dq, dr) of the hexes of the range, in the order of the row loops
+    private long[] offsets;
+    private int next;
+
+
+    @Setup
+    public void setup() {
+        curve = layout.equals("curve");
+        cells = new int[SIDE * SIDE];
+        Random random = new Random(24);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = random.nextInt(16);
+        }
+        centerQ = new int[4096];
+        centerR = new int[4096];
+        for (int i = 0; i < centerQ.length; i++) {
+            centerQ[i] = random.nextInt(SIDE);
+            centerR[i] = random.nextInt(SIDE);
+        }
+        offsets = new long[3 * radius * (radius + 1) + 1];
+        int i = 0;
+        for (int dq = -radius; dq <= radius; dq++) {
+            for (int dr = Math.max(-radius, -dq - radius); dr <= Math.min(radius, -dq + radius); dr++) {
+                offsets[i++] = HexMorton.interleave(dq, dr);
+            }
+        }
+    }
+
+
+    private int index(int q, int r) {
+        return ((r & MASK) << SHIFT) | (q & MASK);
+    }
+
+
+    // the map wraps around, which on the curve is keeping the low 2 * SHIFT bits
+    private int curveIndex(long code) {
+        return (int) (code & (SIDE * SIDE - 1));
+    }
+
+
+    @Benchmark
+    public int range() {
+        int center = next++ & (centerQ.length - 1);
+        int cq = centerQ[center];
+        int cr = centerR[center];
+        int sum = 0;
+        if (curve) {
+            long code = HexMorton.interleave(cq, cr);
+            for (long offset : offsets) {
+                sum += cells[curveIndex(HexMorton.add(code, offset))];
+            }
+            return sum;
+        }
+        for (int dq = -radius; dq <= radius; dq++) {
+            for (int dr = Math.max(-radius, -dq - radius); dr <= Math.min(radius, -dq + radius); dr++) {
+                sum += cells[index(cq + dq, cr + dr)];
+            }
+        }
+        return sum;
+    }
+
+
+    @Benchmark
+    public int neighbors() {
+        int center = next++ & (centerQ.length - 1);
+        int cq = centerQ[center];
+        int cr = centerR[center];
+        int sum = 0;
+        if (curve) {
+            long centerCode = HexMorton.interleave(cq, cr);
+            for (long offset : offsets) {
+                long code = HexMorton.add(centerCode, offset);
+                for (int d = 0; d < 6; d++) {
+                    sum += cells[curveIndex(HexMorton.add(code, DIRECTION_CODE[d]))];
+                }
+            }
+            return sum;
+        }
+        for (int dq = -radius; dq <= radius; dq++) {
+            for (int dr = Math.max(-radius, -dq - radius); dr <= Math.min(radius, -dq + radius); dr++) {
+                for (int d = 0; d < 6; d++) {
+                    sum += cells[index(cq + dq + DIRECTION_Q[d], cr + dr + DIRECTION_R[d])];
+                }
+            }
+        }
+        return sum;
+    }
+}
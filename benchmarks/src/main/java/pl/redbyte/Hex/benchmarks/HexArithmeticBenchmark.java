@@ -0,0 +1,94 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Hex} arithmetic, distance and neighbors. The operands are fields of the state, so that the JIT cannot fold
+ * the results into constants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexArithmeticBenchmark {
+
+    private Hex a;
+    private Hex b;
+    private int direction;
+
+
+    @Setup
+    public void setup() {
+        a = new Hex(3, -7, 4);
+        b = new Hex(-12, 5, 7);
+        direction = 4;
+    }
+
+
+    @Benchmark
+    public Hex add() {
+        return a.add(b);
+    }
+
+
+    @Benchmark
+    public Hex subtract() {
+        return a.subtract(b);
+    }
+
+
+    @Benchmark
+    public Hex scale() {
+        return a.scale(3);
+    }
+
+
+    @Benchmark
+    public Hex rotateLeft() {
+        return a.rotateLeft();
+    }
+
+
+    @Benchmark
+    public Hex rotateRight() {
+        return a.rotateRight();
+    }
+
+
+    @Benchmark
+    public Hex neighbor() {
+        return a.neighbor(direction);
+    }
+
+
+    @Benchmark
+    public Hex diagonalNeighbor() {
+        return a.diagonalNeighbor(direction);
+    }
+
+
+    @Benchmark
+    public int length() {
+        return b.length();
+    }
+
+
+    @Benchmark
+    public int distance() {
+        return a.distance(b);
+    }
+}
@@ -0,0 +1,67 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.HexAutomaton;
+import pl.redbyte.Hex.HexCellRule;
+import pl.redbyte.Hex.HexShape;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick of {@code HexAutomaton} over a 1024 by 1024 map, sequential and on the common pool. The rule is a diffusion,
+ * so every cell keeps changing and the whole map is work every tick. The score is per cell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexAutomatonBenchmark {
+
+    static private final int SIDE = 1024;
+
+    private HexAutomaton automaton;
+    private int bands;
+
+
+    @Setup
+    public void setup() {
+        HexShape shape = HexShape.pointyTopRectangle(SIDE, SIDE);
+        HexCellRule rule = (cell, n0, n1, n2, n3, n4, n5) -> (2 * cell + n0 + n1 + n2 + n3 + n4 + n5) >> 3;
+        automaton = new HexAutomaton(shape, rule, 0);
+        Random random = new Random(20);
+        for (int i = 0; i < shape.size(); i++) {
+            automaton.setAt(i, random.nextInt(1 << 20));
+        }
+        bands = 4 * Runtime.getRuntime().availableProcessors();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(SIDE * SIDE)
+    public int step() {
+        automaton.step();
+        return automaton.getAt(0);
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(SIDE * SIDE)
+    public int stepParallel() {
+        automaton.step(ForkJoinPool.commonPool(), bands);
+        return automaton.getAt(0);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.HexCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Hex} arithmetic on a random walk around the origin, like the local offsets of movement and area code, without
+ * the {@code HexCache} (radius -1) and with a cache of radius 32. The score is per step; run it with {@code -prof gc}
+ * and compare {@code gc.alloc.rate.norm}, the bytes allocated per step.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexCacheBenchmark {
+
+    static private final int STEPS = 1024;
+
+    @Param({"-1", "32"})
+    public int radius;
+
+
+    @Setup
+    public void setup() {
+        if (radius < 0) HexCache.disable();
+        else HexCache.enable(radius);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        HexCache.disable();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long walk() {
+        Hex hex = new Hex(0, 0, 0);
+        long checksum = 0;
+        for (int i = 0; i < STEPS; i++) {
+            Hex next = hex.neighbor((i * 7 + (i >>> 3)) % 6);
+            hex = next.length() > 16 ? next.scale(0) : next.add(Hex.diagonals.get(i % 6)).subtract(Hex.diagonals.get(i % 6));
+            checksum += hex.rotateLeft().q;
+        }
+        return checksum;
+    }
+}
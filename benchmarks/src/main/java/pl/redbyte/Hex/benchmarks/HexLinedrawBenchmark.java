@@ -0,0 +1,61 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.redbyte.Hex.FractionalHex;
+import pl.redbyte.Hex.Hex;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code FractionalHex.hexLinedraw} for lines of several lengths, both the version that builds a list and the one that
+ * streams the hexes to a {@code HexVisitor}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexLinedrawBenchmark {
+
+    @Param({"4", "16", "64", "256"})
+    public int length;
+
+    private Hex start;
+    private Hex end;
+
+
+    @Setup
+    public void setup() {
+        start = new Hex(-5, 2, 3);
+        // a line of exactly {@code length} steps that is not parallel to any axis
+        end = start.add(new Hex(length - length / 3, -length, length / 3));
+    }
+
+
+    @Benchmark
+    public ArrayList<Hex> hexLinedraw() {
+        return FractionalHex.hexLinedraw(start, end);
+    }
+
+
+    @Benchmark
+    public boolean hexLinedrawVisitor(Blackhole blackhole) {
+        return FractionalHex.hexLinedraw(start, end, (q, r) -> {
+            blackhole.consume(q + r);
+            return true;
+        });
+    }
+}
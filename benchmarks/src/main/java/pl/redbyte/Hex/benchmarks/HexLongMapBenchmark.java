@@ -0,0 +1,84 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.HexKey;
+import pl.redbyte.Hex.HexLongIntMap;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling a map with 2^20 random hexes of a radius 700 square and reading them back, with packed keys in a
+ * {@code HexLongIntMap} and with {@code Hex} keys in a {@code HashMap<Hex, Integer>}. The score is per put or get.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexLongMapBenchmark {
+
+    static private final int KEYS = 1 << 20;
+
+    private int[] q;
+    private int[] r;
+    private long[] keys;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        q = new int[KEYS];
+        r = new int[KEYS];
+        keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            q[i] = random.nextInt(1401) - 700;
+            r[i] = random.nextInt(1401) - 700;
+            keys[i] = HexKey.pack(q[i], r[i]);
+        }
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(2 * KEYS)
+    public long hashMap() {
+        HashMap<Hex, Integer> map = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            map.put(new Hex(q[i], r[i]), i);
+        }
+        long sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            Integer value = map.get(new Hex(q[i], r[i]));
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(2 * KEYS)
+    public long hexLongIntMap() {
+        HexLongIntMap map = new HexLongIntMap();
+        for (int i = 0; i < KEYS; i++) {
+            map.put(keys[i], i);
+        }
+        long sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += map.get(keys[i]);
+        }
+        return sum;
+    }
+}
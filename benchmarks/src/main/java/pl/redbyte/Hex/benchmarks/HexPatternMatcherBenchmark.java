@@ -0,0 +1,72 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.HexPatternMatcher;
+import pl.redbyte.Hex.HexRegion;
+import pl.redbyte.Hex.HexShape;
+import pl.redbyte.Hex.IntHexGrid;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code HexPatternMatcher.matchAll} of random 7-cell patterns under all 12 symmetries, on a map of about a million
+ * hexes with 8 values. The masks are built in the setup, so the score is the matching alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexPatternMatcherBenchmark {
+
+    static private final int PATTERNS = 20;
+
+    private HexPatternMatcher matcher;
+    private int[][] q;
+    private int[][] r;
+    private int[][] values;
+    private int next;
+
+
+    @Setup
+    public void setup() {
+        HexShape shape = HexShape.hexagon(577);
+        IntHexGrid grid = new IntHexGrid(shape);
+        Random random = new Random(23);
+        for (int i = 0; i < shape.size(); i++) {
+            grid.setAt(i, random.nextInt(8));
+        }
+        q = new int[PATTERNS][7];
+        r = new int[PATTERNS][7];
+        values = new int[PATTERNS][7];
+        for (int p = 0; p < PATTERNS; p++) {
+            for (int i = 0; i < 7; i++) {
+                q[p][i] = random.nextInt(7) - 3;
+                r[p][i] = random.nextInt(7) - 3;
+                values[p][i] = random.nextInt(8);
+            }
+        }
+        matcher = new HexPatternMatcher(grid);
+        for (int value = 0; value < 8; value++) {
+            matcher.mask(value);
+        }
+    }
+
+
+    @Benchmark
+    public HexRegion[] matchAll() {
+        int p = next++ % PATTERNS;
+        return matcher.matchAll(q[p], r[p], values[p]);
+    }
+}
@@ -0,0 +1,132 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.HexReachability;
+import pl.redbyte.Hex.HexReachableSet;
+import pl.redbyte.Hex.HexShape;
+import pl.redbyte.Hex.IntHexGrid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movement ranges of 2000 units with budgets of 8 to 15 points over a radius 200 map with entry costs 1 to 3, with
+ * {@code HexReachability} one unit at a time and in a batch, compared with the allocating search it replaces (a hash
+ * map of costs and a priority queue of boxed entries). The score is per unit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexReachabilityBenchmark {
+
+    static private final int UNITS = 2000;
+    static private final int[] DIRECTION_Q = {1, 1, 0, -1, -1, 0};
+    static private final int[] DIRECTION_R = {0, -1, -1, 0, 1, 1};
+
+    private IntHexGrid terrain;
+    private int[] q;
+    private int[] r;
+    private int[] budgets;
+    private HexReachability reachability;
+    private HexReachableSet set;
+    private HexReachableSet[] results;
+
+
+    @Setup
+    public void setup() {
+        HexShape shape = HexShape.hexagon(200);
+        terrain = new IntHexGrid(shape);
+        Random random = new Random(25);
+        for (int i = 0; i < shape.size(); i++) {
+            terrain.setAt(i, random.nextInt(10) == 0 ? -1 : 1 + random.nextInt(3));
+        }
+        q = new int[UNITS];
+        r = new int[UNITS];
+        budgets = new int[UNITS];
+        for (int i = 0; i < UNITS; i++) {
+            int index = random.nextInt(shape.size());
+            q[i] = shape.q(index);
+            r[i] = shape.r(index);
+            budgets[i] = 8 + random.nextInt(8);
+        }
+        reachability = new HexReachability(terrain);
+        set = new HexReachableSet(shape);
+        results = new HexReachableSet[UNITS];
+    }
+
+
+    private int naiveReach(int startQ, int startR, int budget) {
+        HashMap<Hex, Integer> best = new HashMap<>();
+        PriorityQueue<Map.Entry<Hex, Integer>> open = new PriorityQueue<>(Map.Entry.comparingByValue());
+        Hex start = new Hex(startQ, startR);
+        best.put(start, 0);
+        open.add(Map.entry(start, 0));
+        while (!open.isEmpty()) {
+            Map.Entry<Hex, Integer> entry = open.poll();
+            Hex hex = entry.getKey();
+            int spent = entry.getValue();
+            if (spent > best.get(hex)) continue;
+            for (int d = 0; d < 6; d++) {
+                Hex neighbor = new Hex(hex.q + DIRECTION_Q[d], hex.r + DIRECTION_R[d]);
+                int index = terrain.shape.index(neighbor);
+                if (index < 0 || terrain.getAt(index) < 0) continue;
+                int reached = spent + terrain.getAt(index);
+                if (reached > budget) continue;
+                Integer known = best.get(neighbor);
+                if (known != null && known <= reached) continue;
+                best.put(neighbor, reached);
+                open.add(Map.entry(neighbor, reached));
+            }
+        }
+        return best.size();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(UNITS)
+    public int hashMapDijkstra() {
+        int sum = 0;
+        for (int i = 0; i < UNITS; i++) {
+            sum += naiveReach(q[i], r[i], budgets[i]);
+        }
+        return sum;
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(UNITS)
+    public int reach() {
+        int sum = 0;
+        for (int i = 0; i < UNITS; i++) {
+            reachability.reach(q[i], r[i], budgets[i], set);
+            sum += set.size();
+        }
+        return sum;
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(UNITS)
+    public HexReachableSet[] reachAll() {
+        reachability.reachAll(ForkJoinPool.commonPool(), q, r, budgets, results, UNITS);
+        return results;
+    }
+}
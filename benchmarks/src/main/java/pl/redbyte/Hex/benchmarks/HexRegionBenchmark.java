@@ -0,0 +1,84 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.HexRegion;
+import pl.redbyte.Hex.HexShape;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Union and intersection of two random halves of a radius 64 hexagon, as {@code HexRegion} bitsets and as
+ * {@code HashSet<Hex>}. The score is per cell of the map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexRegionBenchmark {
+
+    // cells of a hexagon of radius 64
+    static private final int CELLS = 3 * 64 * 65 + 1;
+
+    private HashSet<Hex> setA;
+    private HashSet<Hex> setB;
+    private HexRegion regionA;
+    private HexRegion regionB;
+
+
+    @Setup
+    public void setup() {
+        HexShape shape = HexShape.hexagon(64);
+        Random random = new Random(22);
+        setA = new HashSet<>();
+        setB = new HashSet<>();
+        regionA = new HexRegion(shape);
+        regionB = new HexRegion(shape);
+        for (Hex hex : shape.hexes()) {
+            if (random.nextBoolean()) {
+                setA.add(hex);
+                regionA.add(hex);
+            }
+            if (random.nextBoolean()) {
+                setB.add(hex);
+                regionB.add(hex);
+            }
+        }
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public int hashSet() {
+        HashSet<Hex> union = new HashSet<>(setA);
+        union.addAll(setB);
+        HashSet<Hex> intersection = new HashSet<>(setA);
+        intersection.retainAll(setB);
+        return union.size() + intersection.size();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public int region() {
+        HexRegion union = new HexRegion(regionA);
+        union.union(regionB);
+        HexRegion intersection = new HexRegion(regionA);
+        intersection.intersect(regionB);
+        return union.cardinality() + intersection.cardinality();
+    }
+}
@@ -0,0 +1,54 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.FractionalHex;
+import pl.redbyte.Hex.Hex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code FractionalHex.hexRound} over a table of random fractional hexes, so that every branch of the rounding is
+ * taken.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexRoundBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private FractionalHex[] hexes;
+    private int next;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        hexes = new FractionalHex[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            double q = random.nextDouble() * 200.0 - 100.0;
+            double r = random.nextDouble() * 200.0 - 100.0;
+            hexes[i] = new FractionalHex(q, r, -q - r);
+        }
+    }
+
+
+    @Benchmark
+    public Hex hexRound() {
+        next = (next + 1) & (SIZE - 1);
+        return hexes[next].hexRound();
+    }
+}
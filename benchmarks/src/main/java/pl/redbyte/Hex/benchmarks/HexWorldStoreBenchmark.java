@@ -0,0 +1,108 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.HexWorldStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range and neighbor reads of a {@code HexWorldStore} of 4096 by 4096 hexes with 16 byte records (256 MB, far
+ * larger than the caches) in 64 by 64 chunks. Every read goes through {@code getInt}, as in code using the store. Run
+ * with {@code -prof gc} and, on Linux, {@code -prof perfnorm} to see the cache misses per operation next to the
+ * times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexWorldStoreBenchmark {
+
+    static private final int SIDE = 4096;
+    static private final int[] DIRECTION_Q = {1, 1, 0, -1, -1, 0};
+    static private final int[] DIRECTION_R = {0, -1, -1, 0, 1, 1};
+
+    @Param({"4", "16"})
+    public int radius;
+
+    private Path path;
+    private HexWorldStore store;
+    private int[] centerQ;
+    private int[] centerR;
+    private int next;
+
+
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempFile("hexworld", ".bin");
+        store = HexWorldStore.create(path, 6, 16, 0, SIDE - 1, 0, SIDE - 1);
+        Random random = new Random(24);
+        for (int q = 0; q < SIDE; q++) {
+            for (int r = 0; r < SIDE; r++) {
+                store.putInt(q, r, 0, random.nextInt(16));
+            }
+        }
+        // the centers keep the neighbors of the range inside the world
+        centerQ = new int[4096];
+        centerR = new int[4096];
+        for (int i = 0; i < centerQ.length; i++) {
+            centerQ[i] = radius + 1 + random.nextInt(SIDE - 2 * radius - 2);
+            centerR[i] = radius + 1 + random.nextInt(SIDE - 2 * radius - 2);
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(path);
+    }
+
+
+    @Benchmark
+    public int range() {
+        int center = next++ & (centerQ.length - 1);
+        int cq = centerQ[center];
+        int cr = centerR[center];
+        int sum = 0;
+        for (int dq = -radius; dq <= radius; dq++) {
+            for (int dr = Math.max(-radius, -dq - radius); dr <= Math.min(radius, -dq + radius); dr++) {
+                sum += store.getInt(cq + dq, cr + dr, 0);
+            }
+        }
+        return sum;
+    }
+
+
+    @Benchmark
+    public int neighbors() {
+        int center = next++ & (centerQ.length - 1);
+        int cq = centerQ[center];
+        int cr = centerR[center];
+        int sum = 0;
+        for (int dq = -radius; dq <= radius; dq++) {
+            for (int dr = Math.max(-radius, -dq - radius); dr <= Math.min(radius, -dq + radius); dr++) {
+                for (int d = 0; d < 6; d++) {
+                    sum += store.getInt(cq + dq + DIRECTION_Q[d], cr + dr + DIRECTION_R[d], 0);
+                }
+            }
+        }
+        return sum;
+    }
+}
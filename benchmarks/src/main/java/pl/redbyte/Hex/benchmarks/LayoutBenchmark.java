@@ -0,0 +1,64 @@
+package pl.redbyte.Hex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.redbyte.Hex.Hex;
+import pl.redbyte.Hex.Layout;
+import pl.redbyte.Hex.Point;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between hexes and pixels of a {@code Layout}, for both orientations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LayoutBenchmark {
+
+    @Param({"pointy", "flat"})
+    public String orientation;
+
+    private Layout layout;
+    private Hex hex;
+    private Point point;
+
+
+    @Setup
+    public void setup() {
+        layout = new Layout(orientation.equals("pointy") ? Layout.pointy : Layout.flat, new Point(10.0, 15.0), new Point(35.0, 71.0));
+        hex = new Hex(3, 4, -7);
+        point = new Point(431.7, -212.4);
+    }
+
+
+    @Benchmark
+    public Point hexToPixel() {
+        return layout.hexToPixel(hex);
+    }
+
+
+    @Benchmark
+    public Hex pixelToHex() {
+        return layout.pixelToHex(point);
+    }
+
+
+    @Benchmark
+    public ArrayList<Point> polygonCorners() {
+        return layout.polygonCorners(hex);
+    }
+}
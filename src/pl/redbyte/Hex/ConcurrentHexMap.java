@@ -0,0 +1,333 @@
+package pl.redbyte.Hex;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BinaryOperator;
+
+public class ConcurrentHexMap<V> {
+
+    /**
+     * A thread-safe map from hexes to objects, striped by chunks of the map.
+     * <p>
+     * Hexes are grouped into square chunks of {@code 2^chunkShift} by {@code 2^chunkShift} axial coordinates, and each
+     * chunk is assigned to one of the stripes by its hash. A stripe is a {@code HexLongMap} guarded by its own
+     * {@code StampedLock}. Workers that simulate separate regions of the map mostly touch separate chunks, and so
+     * separate stripes, so their writes do not wait for each other.
+     * <p>
+     * Reads take no lock: they run optimistically and are only repeated under the read lock when a write to the same
+     * stripe happened at the same time. {@code compute}, {@code merge} and {@code putIfAbsent} are atomic.
+     * {@code applyEdits} sorts a batch of hexes by stripe and takes every stripe lock once for the whole batch, instead
+     * of once per hex.
+     * <p>
+     * {@code size} and {@code snapshot} visit the stripes one by one, so they are not atomic with respect to
+     * concurrent writes.
+     */
+    private final int chunkShift;
+    private final int stripeMask;
+    private final StampedLock[] locks;
+    private final HexLongMap<V>[] stripes;
+
+
+    /**
+     * Map constructor, with chunks of 16 by 16 hexes and 4 stripes per available processor.
+     *
+     * @return {@code ConcurrentHexMap} object
+     */
+    public ConcurrentHexMap() {
+        this(4, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * Map constructor.
+     *
+     * @param chunkShift base 2 logarithm of the chunk side, in [0..16]
+     * @param stripes    number of stripes, rounded up to a power of 2
+     * @return {@code ConcurrentHexMap} object
+     * @throws IllegalArgumentException when chunkShift is out of range or stripes is not positive.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentHexMap(int chunkShift, int stripes) {
+        if (chunkShift < 0 || chunkShift > 16) throw new IllegalArgumentException("chunk shift must be in [0..16]");
+        if (stripes <= 0 || stripes > (1 << 16)) throw new IllegalArgumentException("stripes must be in [1..65536]");
+        int n = Integer.highestOneBit(stripes);
+        if (n < stripes) n <<= 1;
+        this.chunkShift = chunkShift;
+        this.stripeMask = n - 1;
+        this.locks = new StampedLock[n];
+        this.stripes = new HexLongMap[n];
+        for (int i = 0; i < n; i++) {
+            locks[i] = new StampedLock();
+            this.stripes[i] = new HexLongMap<V>();
+        }
+    }
+
+
+    private int stripe(long key) {
+        int chunkQ = HexKey.q(key) >> chunkShift;
+        int chunkR = HexKey.r(key) >> chunkShift;
+        return HexKey.hash(HexKey.pack(chunkQ, chunkR)) & stripeMask;
+    }
+
+
+    /**
+     * Returns the value mapped to the packed hex, or {@code null} if there is no mapping.
+     *
+     * @param key packed key
+     * @return mapped value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int stripe = stripe(key);
+        StampedLock lock = locks[stripe];
+        HexLongMap<V> map = stripes[stripe];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            // a lookup that overlapped a write (a torn table, or a stamp that no longer validates) is repeated
+            // under the lock
+            Object value = map.getOptimistic(key);
+            if (value != HexLongMap.TORN && lock.validate(stamp)) return (V) value;
+        }
+        stamp = lock.readLock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Returns the value mapped to the hex, or {@code null} if there is no mapping.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return mapped value, or {@code null}
+     */
+    public V get(int q, int r) {
+        return get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns {@code true} if the hex has a value.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the map contains the hex
+     */
+    public boolean containsKey(int q, int r) {
+        return get(HexKey.pack(q, r)) != null;
+    }
+
+
+    /**
+     * Maps the packed hex to the value.
+     *
+     * @param key   packed key
+     * @param value new value, not {@code null}
+     * @return previous value, or {@code null}
+     * @throws NullPointerException when value is {@code null}.
+     */
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException("value must not be null");
+        int stripe = stripe(key);
+        StampedLock lock = locks[stripe];
+        long stamp = lock.writeLock();
+        try {
+            return stripes[stripe].put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Maps the hex to the value.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value new value, not {@code null}
+     * @return previous value, or {@code null}
+     */
+    public V put(int q, int r, V value) {
+        return put(HexKey.pack(q, r), value);
+    }
+
+
+    /**
+     * Maps the hex to the value, unless it already has one.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value new value, not {@code null}
+     * @return current value, or {@code null} if the value was added
+     */
+    public V putIfAbsent(int q, int r, V value) {
+        if (value == null) throw new NullPointerException("value must not be null");
+        long key = HexKey.pack(q, r);
+        int stripe = stripe(key);
+        StampedLock lock = locks[stripe];
+        long stamp = lock.writeLock();
+        try {
+            HexLongMap<V> map = stripes[stripe];
+            V current = map.get(key);
+            if (current == null) map.put(key, value);
+            return current;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Removes the hex from the map.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return removed value, or {@code null}
+     */
+    public V remove(int q, int r) {
+        long key = HexKey.pack(q, r);
+        int stripe = stripe(key);
+        StampedLock lock = locks[stripe];
+        long stamp = lock.writeLock();
+        try {
+            return stripes[stripe].remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Atomically replaces the value of the hex with the one computed from it. Other writes to the same stripe wait
+     * until the remapper returns, so it should be short and must not use this map.
+     *
+     * @param q        Axial coordinate
+     * @param r        Axial coordinate
+     * @param remapper computes the new value; {@code null} removes the hex
+     * @return new value, or {@code null}
+     */
+    public V compute(int q, int r, HexRemapper<V> remapper) {
+        long key = HexKey.pack(q, r);
+        int stripe = stripe(key);
+        StampedLock lock = locks[stripe];
+        long stamp = lock.writeLock();
+        try {
+            return apply(stripes[stripe], key, remapper);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+
+    /**
+     * Atomically maps the hex to the value if it has none, or to the merged value otherwise.
+     *
+     * @param q      Axial coordinate
+     * @param r      Axial coordinate
+     * @param value  value to map or merge, not {@code null}
+     * @param merger merges the current value with the given one; {@code null} removes the hex
+     * @return new value, or {@code null}
+     */
+    public V merge(int q, int r, V value, BinaryOperator<V> merger) {
+        if (value == null) throw new NullPointerException("value must not be null");
+        return compute(q, r, (cq, cr, current) -> current == null ? value : merger.apply(current, value));
+    }
+
+
+    static private <V> V apply(HexLongMap<V> map, long key, HexRemapper<V> remapper) {
+        int slot = map.slotOf(key);
+        V current = slot < 0 ? null : map.valueAt(slot);
+        V value = remapper.remap(HexKey.q(key), HexKey.r(key), current);
+        if (value == null) {
+            if (slot >= 0) map.removeSlot(slot);
+        } else if (slot >= 0) {
+            map.setValueAt(slot, value);
+        } else {
+            map.put(key, value);
+        }
+        return value;
+    }
+
+
+    /**
+     * Applies the remapper to a batch of packed hexes, for example all the edits of one region in one tick. The
+     * hexes are grouped by stripe, and each stripe is locked once; the edit of every single hex is atomic, but the
+     * batch as a whole is not. Within a stripe, the hexes are edited in the order in which they are given.
+     *
+     * @param keys     packed hexes
+     * @param offset   index of the first hex in the array
+     * @param length   number of hexes
+     * @param remapper computes the new values; {@code null} removes the hex
+     * @throws IndexOutOfBoundsException when the range is outside of the array.
+     */
+    public void applyEdits(long[] keys, int offset, int length, HexRemapper<V> remapper) {
+        Objects.checkFromIndexSize(offset, length, keys.length);
+        int stripeCount = stripeMask + 1;
+        // counting sort of the batch by stripe
+        int[] start = new int[stripeCount + 1];
+        int[] stripeOf = new int[length];
+        for (int i = 0; i < length; i++) {
+            stripeOf[i] = stripe(keys[offset + i]);
+            start[stripeOf[i] + 1]++;
+        }
+        for (int s = 0; s < stripeCount; s++) start[s + 1] += start[s];
+        int[] order = new int[length];
+        int[] fill = start.clone();
+        for (int i = 0; i < length; i++) order[fill[stripeOf[i]]++] = offset + i;
+        for (int s = 0; s < stripeCount; s++) {
+            if (start[s] == start[s + 1]) continue;
+            StampedLock lock = locks[s];
+            long stamp = lock.writeLock();
+            try {
+                HexLongMap<V> map = stripes[s];
+                for (int i = start[s]; i < start[s + 1]; i++) apply(map, keys[order[i]], remapper);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of hexes in the map.
+     *
+     * @return number of hexes
+     */
+    public int size() {
+        int size = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                size += stripes[s].size();
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+
+    /**
+     * Copies the map into a single-threaded {@code HexLongMap}.
+     *
+     * @return copy of the map
+     */
+    public HexLongMap<V> snapshot() {
+        HexLongMap<V> copy = new HexLongMap<V>();
+        for (int s = 0; s <= stripeMask; s++) {
+            long stamp = locks[s].readLock();
+            try {
+                HexLongMap<V> map = stripes[s];
+                for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot)) {
+                    copy.put(map.keyAt(slot), map.valueAt(slot));
+                }
+            } finally {
+                locks[s].unlockRead(stamp);
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,126 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class DoubleHexGrid {
+
+    /**
+     * A map of {@code double} values over a bounded {@code HexShape}, e.g. elevation or temperature.
+     * <p>
+     * Cells are kept in a flat array in {@code HexShape} index order, so there is no {@code Hex} object per cell, and
+     * neighbors are reached with {@code shape.neighbor(index, q, r, direction)}, which is a plain array offset.
+     */
+    public final HexShape shape;
+    private final double[] cells;
+
+
+    /**
+     * Grid constructor. All cells are set to 0.
+     *
+     * @param shape shape of the map
+     * @return {@code DoubleHexGrid} object
+     */
+    public DoubleHexGrid(HexShape shape) {
+        this.shape = shape;
+        this.cells = new double[shape.size()];
+    }
+
+
+    private int checkedIndex(int q, int r) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the grid");
+        return index;
+    }
+
+
+    /**
+     * Returns the value of the cell.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return value of the cell
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public double get(int q, int r) {
+        return cells[checkedIndex(q, r)];
+    }
+
+
+    /**
+     * Returns the value of the cell.
+     *
+     * @param hex the hexagon
+     * @return value of the cell
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public double get(Hex hex) {
+        return get(hex.q, hex.r);
+    }
+
+
+    /**
+     * Sets the value of the cell.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value the new value
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public void set(int q, int r, double value) {
+        cells[checkedIndex(q, r)] = value;
+    }
+
+
+    /**
+     * Sets the value of the cell.
+     *
+     * @param hex   the hexagon
+     * @param value the new value
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public void set(Hex hex, double value) {
+        set(hex.q, hex.r, value);
+    }
+
+
+    /**
+     * Returns the value of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @return value of the cell
+     */
+    public double getAt(int index) {
+        return cells[index];
+    }
+
+
+    /**
+     * Sets the value of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @param value the new value
+     */
+    public void setAt(int index, double value) {
+        cells[index] = value;
+    }
+
+
+    /**
+     * Sets the value of every cell.
+     *
+     * @param value the new value
+     */
+    public void fill(double value) {
+        Arrays.fill(cells, value);
+    }
+
+
+    /**
+     * Returns the backing array, in {@code HexShape} index order. Changes to the array are visible in the grid.
+     *
+     * @return backing array
+     */
+    public double[] array() {
+        return cells;
+    }
+}
@@ -1,5 +1,7 @@
 package pl.redbyte.Hex;
 
+import java.util.Objects;
+
 public class DoubledCoord {
 
     /**
@@ -79,4 +81,116 @@ public class DoubledCoord {
         return new Hex(q, r, s);
     }
 
+
+    static private void checkBatch(int[] a, int[] b, int[] c, int[] d, int start, int length)
+    {
+        Objects.checkFromIndexSize(start, length, a.length);
+        Objects.checkFromIndexSize(start, length, b.length);
+        Objects.checkFromIndexSize(start, length, c.length);
+        Objects.checkFromIndexSize(start, length, d.length);
+    }
+
+
+    // x / 2 rounded toward zero like the int division, without a branch: adds 1 to negative x before the shift
+    static private int half(int x)
+    {
+        return (x + (x >>> 31)) >> 1;
+    }
+
+
+    /**
+     * Converts a batch of axial coordinates to flat top doubled coordinates. The ranges are checked once for the whole
+     * batch and the loop has no branches. The output arrays may be the input arrays.
+     *
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param col    receives the columns
+     * @param row    receives the rows
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void flatTopDoubledFromCube(int[] q, int[] r, int[] col, int[] row, int start, int length)
+    {
+        checkBatch(q, r, col, row, start, length);
+        for (int i = start; i < start + length; i++)
+        {
+            int hq = q[i];
+            int hr = r[i];
+            col[i] = hq;
+            row[i] = 2 * hr + hq;
+        }
+    }
+
+
+    /**
+     * Converts a batch of flat top doubled coordinates to axial coordinates, like {@code flatTopDoubledFromCube}.
+     *
+     * @param col    columns of the hexes
+     * @param row    rows of the hexes
+     * @param q      receives the q coordinates
+     * @param r      receives the r coordinates
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void flatTopDoubledToCube(int[] col, int[] row, int[] q, int[] r, int start, int length)
+    {
+        checkBatch(col, row, q, r, start, length);
+        for (int i = start; i < start + length; i++)
+        {
+            int c = col[i];
+            int w = row[i];
+            q[i] = c;
+            r[i] = half(w - c);
+        }
+    }
+
+
+    /**
+     * Converts a batch of axial coordinates to pointy top doubled coordinates, like {@code flatTopDoubledFromCube}.
+     *
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param col    receives the columns
+     * @param row    receives the rows
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void pointyTopDoubledFromCube(int[] q, int[] r, int[] col, int[] row, int start, int length)
+    {
+        checkBatch(q, r, col, row, start, length);
+        for (int i = start; i < start + length; i++)
+        {
+            int hq = q[i];
+            int hr = r[i];
+            col[i] = 2 * hq + hr;
+            row[i] = hr;
+        }
+    }
+
+
+    /**
+     * Converts a batch of pointy top doubled coordinates to axial coordinates, like {@code flatTopDoubledFromCube}.
+     *
+     * @param col    columns of the hexes
+     * @param row    rows of the hexes
+     * @param q      receives the q coordinates
+     * @param r      receives the r coordinates
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void pointyTopDoubledToCube(int[] col, int[] row, int[] q, int[] r, int start, int length)
+    {
+        checkBatch(col, row, q, r, start, length);
+        for (int i = start; i < start + length; i++)
+        {
+            int c = col[i];
+            int w = row[i];
+            q[i] = half(c - w);
+            r[i] = w;
+        }
+    }
 }
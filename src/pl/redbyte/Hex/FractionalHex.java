@@ -46,6 +46,21 @@ public class FractionalHex {
      * @return the closest {@code Hex} to this {@code FractionalHex}
      */
     public Hex hexRound() {
+        long key = hexRound(q, r, s);
+        return Hex.of(HexKey.q(key), HexKey.r(key));
+    }
+
+
+    /**
+     * The same rounding as {@code hexRound()}, but for coordinates that are not stored in a {@code FractionalHex}
+     * object. The result is packed by {@code HexKey}, so rounding does not allocate anything.
+     *
+     * @param q fractional cube coordinate
+     * @param r fractional cube coordinate
+     * @param s fractional cube coordinate
+     * @return packed key of the closest hex
+     */
+    static long hexRound(double q, double r, double s) {
         int qi = (int) (Math.round(q));
         int ri = (int) (Math.round(r));
         int si = (int) (Math.round(s));
@@ -56,10 +71,8 @@ public class FractionalHex {
             qi = -ri - si;
         } else if (r_diff > s_diff) {
             ri = -qi - si;
-        } else {
-            si = -qi - ri;
         }
-        return new Hex(qi, ri, si);
+        return HexKey.pack(qi, ri);
     }
 
 
@@ -96,6 +109,47 @@ public class FractionalHex {
         return results;
     }
 
+    /**
+     * Visits the hexes of the line between two hexagons, in order, with the same results as
+     * {@code hexLinedraw(startHex, endHex)}, but without building the list or creating {@code Hex} objects. The
+     * visitor can stop the line early, e.g. at the first hex that blocks the line of sight.
+     *
+     * @param startQ  Axial coordinate of the start hex
+     * @param startR  Axial coordinate of the start hex
+     * @param endQ    Axial coordinate of the end hex
+     * @param endR    Axial coordinate of the end hex
+     * @param visitor receives the hexes of the line
+     * @return {@code true} if the whole line was visited, {@code false} if the visitor stopped it
+     */
+    static public boolean hexLinedraw(int startQ, int startR, int endQ, int endR, HexVisitor visitor) {
+        int dq = startQ - endQ;
+        int dr = startR - endR;
+        int N = (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+        double aq = startQ + 1e-06, ar = startR + 1e-06, as = (-startQ - startR) - 2e-06;
+        double bq = endQ + 1e-06, br = endR + 1e-06, bs = (-endQ - endR) - 2e-06;
+        double step = 1.0 / Math.max(N, 1);
+        for (int i = 0; i <= N; i++) {
+            double lineFraction = step * i;
+            double remaining = 1.0 - lineFraction;
+            long key = hexRound(aq * remaining + bq * lineFraction, ar * remaining + br * lineFraction, as * remaining + bs * lineFraction);
+            if (!visitor.visit(HexKey.q(key), HexKey.r(key))) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Visits the hexes of the line between two hexagons, see {@code hexLinedraw(int, int, int, int, HexVisitor)}.
+     *
+     * @param startHex startHex Hex
+     * @param endHex   endHex Hex
+     * @param visitor  receives the hexes of the line
+     * @return {@code true} if the whole line was visited, {@code false} if the visitor stopped it
+     */
+    static public boolean hexLinedraw(Hex startHex, Hex endHex, HexVisitor visitor) {
+        return hexLinedraw(startHex.q, startHex.r, endHex.q, endHex.r, visitor);
+    }
+
     /**
      * Intermediate method for {@code hexLinedraw}
      * <p>
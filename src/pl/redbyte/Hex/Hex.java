@@ -46,6 +46,20 @@ public class Hex {
     }
 
 
+    /**
+     * Returns a hex with the given axial coordinates. It is the shared instance from {@code HexCache} when the cache
+     * is enabled and covers the hex, and a new object otherwise.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code Hex} object
+     */
+    static public Hex of(int q, int r) {
+        Hex cached = HexCache.get(q, r);
+        return cached != null ? cached : new Hex(q, r);
+    }
+
+
     /**
      * Compares this object to the specified object. The result is {@code true} if and only if the argument is not
      * {@code null} and is a {@code Hex} object that contains the same {@code q}, {@code r}, {@code s} values as this
@@ -62,6 +76,17 @@ public class Hex {
     }
 
 
+    /**
+     * Returns a hash code for this {@code Hex}, consistent with {@code equals}. It is calculated from the packed (q, r)
+     * key (see {@code HexKey}), so hexes can be used as keys of {@code HashMap} and {@code HashSet}.
+     *
+     * @return a hash code value for this object.
+     */
+    public int hashCode() {
+        return HexKey.hash(HexKey.pack(q, r));
+    }
+
+
     /**
      * Returns a {@code String} object representing this {@code Hex}.
      *
@@ -82,7 +107,7 @@ public class Hex {
      * @return the sum of both {@code Hex}
      */
     public Hex add(Hex addend) {
-        return new Hex(q + addend.q, r + addend.r, s + addend.s);
+        return Hex.of(q + addend.q, r + addend.r);
     }
 
 
@@ -97,7 +122,7 @@ public class Hex {
      * @return the difference of both {@code Hex}
      */
     public Hex subtract(Hex subtrahend) {
-        return new Hex(q - subtrahend.q, r - subtrahend.r, s - subtrahend.s);
+        return Hex.of(q - subtrahend.q, r - subtrahend.r);
     }
 
 
@@ -108,7 +133,7 @@ public class Hex {
      * @return the {@code Hex} with coordinates multiplied by {@code scale} value.
      */
     public Hex scale(int scale) {
-        return new Hex(q * scale, r * scale, s * scale);
+        return Hex.of(q * scale, r * scale);
     }
 
 
@@ -119,7 +144,7 @@ public class Hex {
      * @return rotated {@code Hex}
      */
     public Hex rotateLeft() {
-        return new Hex(-s, -q, -r);
+        return Hex.of(-s, -q);
     }
 
 
@@ -130,7 +155,7 @@ public class Hex {
      * @return rotated {@code Hex}
      */
     public Hex rotateRight() {
-        return new Hex(-r, -s, -q);
+        return Hex.of(-r, -s);
     }
 
 
@@ -171,6 +196,14 @@ public class Hex {
     }};
 
 
+    /**
+     * The same direction vectors as {@code directions}, split into q and r components, for the primitive code paths of
+     * the library that work on coordinates instead of {@code Hex} objects.
+     */
+    static final int[] directionQ = {1, 1, 0, -1, -1, 0};
+    static final int[] directionR = {0, -1, -1, 0, 1, 1};
+
+
     /**
      * Returns a neighbor {@code Hex} in specified direction
      *
@@ -178,7 +211,8 @@ public class Hex {
      * @return neighbor {@code Hex}
      */
     public Hex neighbor(int direction) {
-        return add(Hex.directions.get(direction));
+        Hex vector = Hex.directions.get(direction);
+        return Hex.of(q + vector.q, r + vector.r);
     }
 
 
@@ -205,6 +239,7 @@ public class Hex {
      * @return diagonal neighbor {@code Hex}
      */
     public Hex diagonalNeighbor(int direction) {
-        return add(Hex.diagonals.get(direction));
+        Hex vector = Hex.diagonals.get(direction);
+        return Hex.of(q + vector.q, r + vector.r);
     }
 }
\ No newline at end of file
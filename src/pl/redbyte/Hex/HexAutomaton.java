@@ -0,0 +1,374 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class HexAutomaton {
+
+    /**
+     * Cellular automaton (fire spread, fluids, growth...) over a bounded {@code HexShape}, with one {@code int} state
+     * per cell.
+     * <p>
+     * The states are double-buffered: a step reads the current array and writes the next one, then the two are
+     * swapped, so every cell sees the states of its neighbors from the previous tick no matter in which order the cells
+     * are processed. That lets {@code step(pool, bands)} run bands of rows on a fork-join pool without any locking.
+     * <p>
+     * Inside a row, the cells whose six neighbors are all inside the shape reach them by the constant offsets of
+     * {@code HexShape.neighborDelta}, precomputed per row, and only the cells at the edges of the shape check which
+     * neighbors exist. The rule is a {@code HexCellRule} that takes the seven states as {@code int} arguments.
+     * <p>
+     * Every step records the cells that changed. A cell can only change when it or one of its neighbors changed in the
+     * previous tick, so {@code stepActive} evaluates just those cells, which makes a tick cost proportional to the
+     * activity (a fire front) instead of to the size of the map.
+     */
+    public final HexShape shape;
+    public final HexCellRule rule;
+    public final int outside;
+    private int[] cells;
+    private int[] next;
+    // the first and last q of every row whose neighbors are all inside the shape, and the index deltas of the row
+    private final int[] innerLo;
+    private final int[] innerHi;
+    private final int[] delta;
+    private IntList changed = new IntList();
+    private boolean allChanged = true;
+    private final Band single;
+    private ArrayList<Band> bands = new ArrayList<>();
+    private int[] mark;
+    private int markGeneration;
+    private final IntList candidates = new IntList();
+    private int[] values = new int[64];
+
+
+    /**
+     * Automaton constructor. All cells start in state 0.
+     *
+     * @param shape   shape of the map
+     * @param rule    transition rule
+     * @param outside state of the cells outside the shape, as seen by the rule
+     * @return {@code HexAutomaton} object
+     */
+    public HexAutomaton(HexShape shape, HexCellRule rule, int outside) {
+        this.shape = shape;
+        this.rule = rule;
+        this.outside = outside;
+        this.cells = new int[shape.size()];
+        this.next = new int[shape.size()];
+        int rows = shape.rMax() - shape.rMin() + 1;
+        this.innerLo = new int[rows];
+        this.innerHi = new int[rows];
+        this.delta = new int[rows * 6];
+        for (int row = 0; row < rows; row++) {
+            int r = shape.rMin() + row;
+            for (int d = 0; d < 6; d++) {
+                delta[row * 6 + d] = shape.neighborDelta(r, d);
+            }
+            if (row == 0 || row == rows - 1) {
+                innerLo[row] = 1;
+                innerHi[row] = 0;
+                continue;
+            }
+            // directions 1 and 2 go to the row above (q + 1 and q), directions 4 and 5 to the row below (q - 1 and q)
+            innerLo[row] = Math.max(shape.qMin(r) + 1, Math.max(shape.qMin(r - 1), shape.qMin(r + 1) + 1));
+            innerHi[row] = Math.min(shape.qMax(r) - 1, Math.min(shape.qMax(r - 1) - 1, shape.qMax(r + 1)));
+        }
+        this.single = new Band(shape.rMin(), shape.rMax());
+    }
+
+
+    /**
+     * Returns the state of the cell.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return state of the cell
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     */
+    public int get(int q, int r) {
+        return cells[checkedIndex(q, r)];
+    }
+
+
+    /**
+     * Sets the state of the cell. The cell and its neighbors are evaluated by the next {@code stepActive}.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param state the new state
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     */
+    public void set(int q, int r, int state) {
+        setAt(checkedIndex(q, r), state);
+    }
+
+
+    /**
+     * Returns the state of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @return state of the cell
+     */
+    public int getAt(int index) {
+        return cells[index];
+    }
+
+
+    /**
+     * Sets the state of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @param state the new state
+     */
+    public void setAt(int index, int state) {
+        if (cells[index] == state) return;
+        cells[index] = state;
+        if (allChanged) return;
+        changed.add(index);
+        if (changed.size > cells.length) allChanged = true;
+    }
+
+
+    /**
+     * Sets the state of every cell. The next {@code stepActive} evaluates the whole map.
+     *
+     * @param state the new state
+     */
+    public void fill(int state) {
+        Arrays.fill(cells, state);
+        allChanged = true;
+    }
+
+
+    /**
+     * Returns the current states, in {@code HexShape} index order. The array is replaced by every step and must not be
+     * modified; use {@code set} or {@code setAt}.
+     *
+     * @return current states
+     */
+    public int[] array() {
+        return cells;
+    }
+
+
+    /**
+     * Returns the number of cells that changed in the last step, or -1 if it is not known (after {@code fill}, and
+     * before the first step).
+     *
+     * @return number of changed cells, or -1
+     */
+    public int changedCount() {
+        return allChanged ? -1 : changed.size;
+    }
+
+
+    /**
+     * Advances the automaton by one tick, evaluating every cell on the calling thread.
+     */
+    public void step() {
+        single.changed.size = 0;
+        single.compute();
+        IntList previous = changed;
+        changed = single.changed;
+        single.changed = previous;
+        swap();
+    }
+
+
+    /**
+     * Advances the automaton by one tick on a fork-join pool. The rows are split into {@code bands} bands evaluated
+     * concurrently; the result is the same as the result of {@code step}.
+     *
+     * @param pool  pool running the step
+     * @param bands number of row bands, usually a small multiple of the number of cores
+     * @throws IllegalArgumentException when bands is not positive.
+     */
+    public void step(ForkJoinPool pool, int bands) {
+        if (bands <= 0) throw new IllegalArgumentException("bands must be positive");
+        int rows = shape.rMax() - shape.rMin() + 1;
+        bands = Math.min(bands, rows);
+        if (this.bands.size() != bands) {
+            this.bands = new ArrayList<>(bands);
+            for (int b = 0; b < bands; b++) {
+                this.bands.add(new Band(shape.rMin() + (int) ((long) rows * b / bands), shape.rMin() + (int) ((long) rows * (b + 1) / bands) - 1));
+            }
+        }
+        ArrayList<Band> tasks = this.bands;
+        for (Band band : tasks) {
+            band.changed.size = 0;
+            band.reinitialize();
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+        changed.size = 0;
+        for (Band band : tasks) {
+            changed.addAll(band.changed);
+        }
+        swap();
+    }
+
+
+    /**
+     * Advances the automaton by one tick, evaluating only the cells that changed in the previous tick (or were set)
+     * and their neighbors. The result is the same as the result of {@code step}, as long as the rule maps a cell whose
+     * neighborhood did not change to the same state; when the changed cells are not known (after {@code fill}), it is
+     * a full {@code step}.
+     */
+    public void stepActive() {
+        if (allChanged) {
+            step();
+            return;
+        }
+        if (mark == null) mark = new int[cells.length];
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            markGeneration = 1;
+        }
+        int generation = markGeneration;
+        candidates.size = 0;
+        for (int i = 0; i < changed.size; i++) {
+            int index = changed.values[i];
+            int q = shape.q(index);
+            int r = shape.r(index);
+            for (int d = -1; d < 6; d++) {
+                int cell = d < 0 ? index : shape.neighbor(index, q, r, d);
+                if (cell < 0 || mark[cell] == generation) continue;
+                mark[cell] = generation;
+                candidates.add(cell);
+            }
+        }
+        if (values.length < candidates.size) values = new int[candidates.values.length];
+        // evaluate all candidates against the old states before writing any of them
+        for (int i = 0; i < candidates.size; i++) {
+            int index = candidates.values[i];
+            values[i] = evaluate(cells, index, shape.q(index), shape.r(index));
+        }
+        changed.size = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            int index = candidates.values[i];
+            if (values[i] == cells[index]) continue;
+            cells[index] = values[i];
+            changed.add(index);
+        }
+    }
+
+
+    private void swap() {
+        int[] swap = cells;
+        cells = next;
+        next = swap;
+        allChanged = false;
+    }
+
+
+    private int checkedIndex(int q, int r) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the automaton");
+        return index;
+    }
+
+
+    // evaluates a cell that may have neighbors outside of the shape
+    private int evaluate(int[] c, int index, int q, int r) {
+        int n0 = neighborState(c, index, q, r, 0);
+        int n1 = neighborState(c, index, q, r, 1);
+        int n2 = neighborState(c, index, q, r, 2);
+        int n3 = neighborState(c, index, q, r, 3);
+        int n4 = neighborState(c, index, q, r, 4);
+        int n5 = neighborState(c, index, q, r, 5);
+        return rule.next(c[index], n0, n1, n2, n3, n4, n5);
+    }
+
+
+    private int neighborState(int[] c, int index, int q, int r, int direction) {
+        int neighbor = shape.neighbor(index, q, r, direction);
+        return neighbor < 0 ? outside : c[neighbor];
+    }
+
+
+    /**
+     * Evaluates the rows of a band from the current states into the next ones, recording the changed cells.
+     */
+    private final class Band extends RecursiveAction {
+        static private final long serialVersionUID = 1L;
+
+        final int rFirst;
+        final int rLast;
+        IntList changed = new IntList();
+
+        Band(int rFirst, int rLast) {
+            this.rFirst = rFirst;
+            this.rLast = rLast;
+        }
+
+        @Override
+        protected void compute() {
+            int[] c = cells;
+            int[] n = next;
+            HexCellRule rule = HexAutomaton.this.rule;
+            IntList changed = this.changed;
+            for (int r = rFirst; r <= rLast; r++) {
+                int row = r - shape.rMin();
+                int qMin = shape.qMin(r);
+                int qMax = shape.qMax(r);
+                int base = shape.rowStart(r) - qMin;
+                int lo = innerLo[row];
+                int hi = innerHi[row];
+                if (lo > hi) {
+                    lo = qMax + 1;
+                    hi = qMax;
+                }
+                for (int q = qMin; q < lo; q++) {
+                    int index = base + q;
+                    int state = evaluate(c, index, q, r);
+                    n[index] = state;
+                    if (state != c[index]) changed.add(index);
+                }
+                int d0 = delta[row * 6];
+                int d1 = delta[row * 6 + 1];
+                int d2 = delta[row * 6 + 2];
+                int d3 = delta[row * 6 + 3];
+                int d4 = delta[row * 6 + 4];
+                int d5 = delta[row * 6 + 5];
+                for (int index = base + lo, end = base + hi; index <= end; index++) {
+                    int cell = c[index];
+                    int state = rule.next(cell, c[index + d0], c[index + d1], c[index + d2], c[index + d3], c[index + d4], c[index + d5]);
+                    n[index] = state;
+                    if (state != cell) changed.add(index);
+                }
+                for (int q = hi + 1; q <= qMax; q++) {
+                    int index = base + q;
+                    int state = evaluate(c, index, q, r);
+                    n[index] = state;
+                    if (state != c[index]) changed.add(index);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Growable list of cell indexes.
+     */
+    static private final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, size << 1));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
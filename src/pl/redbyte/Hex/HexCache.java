@@ -0,0 +1,95 @@
+package pl.redbyte.Hex;
+
+public class HexCache {
+
+    /**
+     * Opt-in cache of canonical {@code Hex} instances near {@code Hex(0, 0, 0)}.
+     * <p>
+     * {@code Hex} is immutable, so hexes with the same coordinates can be shared. When the cache is enabled with a
+     * radius, every hex within that distance from the origin is created once, in a flat table indexed by
+     * (q + radius, r + radius), and {@code Hex.of} returns those instances instead of allocating new ones. The
+     * arithmetic of {@code Hex} ({@code add}, {@code subtract}, {@code scale}, the rotations and the neighbors) and
+     * {@code FractionalHex.hexRound} create their results through {@code Hex.of}, so code that works with small offsets
+     * and local coordinates stops allocating. Hexes outside the radius are allocated as before.
+     * <p>
+     * The cache is disabled by default. Enabling or disabling it is meant to be done once, at startup; other threads
+     * may keep using the previous table for a while, which is harmless since both tables give equal hexes. Code must
+     * keep comparing hexes with {@code equals}: instances are shared only within the radius of an enabled cache.
+     */
+    static private final int MAX_RADIUS = 4096;
+
+    static private Table table;
+
+
+    private HexCache() {
+    }
+
+
+    /**
+     * Immutable table of the canonical hexes, replaced as a whole when the cache is reconfigured.
+     */
+    static private final class Table {
+        final int radius;
+        final int side;
+        final Hex[] hexes;
+
+        Table(int radius) {
+            this.radius = radius;
+            this.side = 2 * radius + 1;
+            this.hexes = new Hex[side * side];
+            for (int q = -radius; q <= radius; q++) {
+                for (int r = Math.max(-radius, -q - radius); r <= Math.min(radius, -q + radius); r++) {
+                    hexes[(q + radius) * side + r + radius] = new Hex(q, r, -q - r);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Enables the cache for the hexes within the radius from the origin, replacing the previous table.
+     *
+     * @param radius radius of the cached hexes, in [0..4096]
+     * @throws IllegalArgumentException when radius is out of range.
+     */
+    static public void enable(int radius) {
+        if (radius < 0 || radius > MAX_RADIUS) throw new IllegalArgumentException("radius must be in [0.." + MAX_RADIUS + "]");
+        table = new Table(radius);
+    }
+
+
+    /**
+     * Disables the cache and releases its table.
+     */
+    static public void disable() {
+        table = null;
+    }
+
+
+    /**
+     * Returns the radius of the cached hexes, or -1 when the cache is disabled.
+     *
+     * @return radius of the cache, or -1
+     */
+    static public int radius() {
+        Table table = HexCache.table;
+        return table == null ? -1 : table.radius;
+    }
+
+
+    /**
+     * Returns the canonical instance of the hex, or {@code null} if it is not cached.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return cached hex, or {@code null}
+     */
+    static Hex get(int q, int r) {
+        Table table = HexCache.table;
+        if (table == null) return null;
+        int radius = table.radius;
+        // one unsigned comparison per coordinate checks both bounds
+        if (Integer.compareUnsigned(q + radius, table.side) >= 0 || Integer.compareUnsigned(r + radius, table.side) >= 0) return null;
+        return table.hexes[(q + radius) * table.side + r + radius];
+    }
+}
@@ -0,0 +1,24 @@
+package pl.redbyte.Hex;
+
+/**
+ * Transition rule of a {@code HexAutomaton}: the next state of a cell computed from its state and the states of its
+ * six neighbors. States are {@code int}s and the neighbors are separate arguments, so a step never boxes or allocates.
+ */
+@FunctionalInterface
+public interface HexCellRule {
+
+    /**
+     * Returns the next state of a cell. The neighbors are given in the order of {@code Hex.directions}; neighbors
+     * outside the shape have the automaton's {@code outside} state.
+     *
+     * @param cell state of the cell
+     * @param n0   state of the neighbor in direction 0
+     * @param n1   state of the neighbor in direction 1
+     * @param n2   state of the neighbor in direction 2
+     * @param n3   state of the neighbor in direction 3
+     * @param n4   state of the neighbor in direction 4
+     * @param n5   state of the neighbor in direction 5
+     * @return next state of the cell
+     */
+    int next(int cell, int n0, int n1, int n2, int n3, int n4, int n5);
+}
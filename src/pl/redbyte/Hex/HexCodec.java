@@ -0,0 +1,340 @@
+package pl.redbyte.Hex;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Objects;
+
+public class HexCodec {
+
+    /**
+     * Compact binary encoding of hex sequences and grid values, written to and read from a {@code ByteBuffer}.
+     * <p>
+     * Integers are written as varints (7 bits per byte, the highest bit marks that more bytes follow), and signed
+     * integers are zigzag encoded first (0, -1, 1, -2, ... become 0, 1, 2, 3, ...), so small values take one byte
+     * whatever their sign.
+     * <p>
+     * A hex sequence is its length and its first hex, followed by one 3-bit code per step: codes 0-5 are the
+     * directions of {@code Hex.directions}, so a path of neighboring hexes (like the ones of {@code hexLinedraw}) takes
+     * 3 bits per hex. Code 6 marks any other step, whose (dq, dr) is written as two varints after the packed codes.
+     * <p>
+     * Grid values are written in the order of the indexes of the shape, as runs of equal values: the zigzag value and
+     * the length of the run. The shape itself is not written, both sides are expected to know it.
+     * <p>
+     * Records are written one after another at the position of the buffer, so a buffer can hold any number of them,
+     * and decoding goes straight into primitive arrays.
+     */
+    static private final int ESCAPE = 6;
+
+
+    private HexCodec() {
+    }
+
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param buffer target buffer
+     * @param value  value, treated as unsigned
+     */
+    static public void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param buffer source buffer
+     * @return value
+     * @throws IllegalArgumentException when the varint is longer than 5 bytes.
+     */
+    static public int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+
+    /**
+     * Writes a signed varint, zigzag encoded.
+     *
+     * @param buffer target buffer
+     * @param value  value
+     */
+    static public void writeSignedVarint(ByteBuffer buffer, int value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+
+    /**
+     * Reads a signed, zigzag encoded varint.
+     *
+     * @param buffer source buffer
+     * @return value
+     */
+    static public int readSignedVarint(ByteBuffer buffer) {
+        int value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    /**
+     * Returns the largest number of bytes that {@code writeHexes} may need for a sequence of the given length.
+     *
+     * @param length number of hexes
+     * @return upper bound of the encoded size
+     */
+    static public int maxHexesBytes(int length) {
+        return 5 + 10 + (3 * Math.max(length - 1, 0) + 7) / 8 + 10 * Math.max(length - 1, 0);
+    }
+
+
+    static private int direction(int dq, int dr) {
+        for (int d = 0; d < 6; d++) {
+            if (Hex.directionQ[d] == dq && Hex.directionR[d] == dr) return d;
+        }
+        return ESCAPE;
+    }
+
+
+    /**
+     * Writes a sequence of hexes given by axial coordinates.
+     *
+     * @param buffer target buffer
+     * @param q      q coordinates
+     * @param r      r coordinates
+     * @param offset index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     * @throws java.nio.BufferOverflowException when the buffer is too small.
+     */
+    static public void writeHexes(ByteBuffer buffer, int[] q, int[] r, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, q.length);
+        Objects.checkFromIndexSize(offset, length, r.length);
+        writeVarint(buffer, length);
+        if (length == 0) return;
+        writeSignedVarint(buffer, q[offset]);
+        writeSignedVarint(buffer, r[offset]);
+        int end = offset + length;
+        long bits = 0;
+        int count = 0;
+        for (int i = offset + 1; i < end; i++) {
+            bits |= (long) direction(q[i] - q[i - 1], r[i] - r[i - 1]) << count;
+            count += 3;
+            if (count >= 8) {
+                buffer.put((byte) bits);
+                bits >>>= 8;
+                count -= 8;
+            }
+        }
+        for (; count > 0; count -= 8) {
+            buffer.put((byte) bits);
+            bits >>>= 8;
+        }
+        for (int i = offset + 1; i < end; i++) {
+            int dq = q[i] - q[i - 1];
+            int dr = r[i] - r[i - 1];
+            if (direction(dq, dr) == ESCAPE) {
+                writeSignedVarint(buffer, dq);
+                writeSignedVarint(buffer, dr);
+            }
+        }
+    }
+
+
+    /**
+     * Writes a list of hexes, for example the result of {@code hexLinedraw}.
+     *
+     * @param buffer target buffer
+     * @param hexes  the hexes
+     */
+    static public void writeHexes(ByteBuffer buffer, ArrayList<Hex> hexes) {
+        int length = hexes.size();
+        int[] q = new int[length];
+        int[] r = new int[length];
+        for (int i = 0; i < length; i++) {
+            q[i] = hexes.get(i).q;
+            r[i] = hexes.get(i).r;
+        }
+        writeHexes(buffer, q, r, 0, length);
+    }
+
+
+    /**
+     * Returns the length of the hex sequence at the position of the buffer, without moving the position, so that the
+     * arrays for {@code readHexes} can be allocated.
+     *
+     * @param buffer source buffer
+     * @return number of hexes
+     */
+    static public int hexesLength(ByteBuffer buffer) {
+        int position = buffer.position();
+        int length = readVarint(buffer);
+        buffer.position(position);
+        return length;
+    }
+
+
+    /**
+     * Reads a sequence of hexes into axial coordinate arrays.
+     *
+     * @param buffer source buffer
+     * @param q      receives the q coordinates
+     * @param r      receives the r coordinates
+     * @param offset index of the first hex in the arrays
+     * @return number of hexes read
+     * @throws IndexOutOfBoundsException when the sequence does not fit in the arrays.
+     */
+    static public int readHexes(ByteBuffer buffer, int[] q, int[] r, int offset) {
+        int length = readVarint(buffer);
+        Objects.checkFromIndexSize(offset, length, q.length);
+        Objects.checkFromIndexSize(offset, length, r.length);
+        if (length == 0) return 0;
+        int end = offset + length;
+        int currentQ = readSignedVarint(buffer);
+        int currentR = readSignedVarint(buffer);
+        q[offset] = currentQ;
+        r[offset] = currentR;
+        // the codes go first, so they are unpacked into q, and then replaced by coordinates while the deltas of the
+        // escaped steps are read from after the codes
+        long bits = 0;
+        int count = 0;
+        for (int i = offset + 1; i < end; i++) {
+            if (count < 3) {
+                bits |= (buffer.get() & 0xFFL) << count;
+                count += 8;
+            }
+            q[i] = (int) (bits & 7);
+            bits >>>= 3;
+            count -= 3;
+        }
+        for (int i = offset + 1; i < end; i++) {
+            int code = q[i];
+            if (code < 6) {
+                currentQ += Hex.directionQ[code];
+                currentR += Hex.directionR[code];
+            } else if (code == ESCAPE) {
+                currentQ += readSignedVarint(buffer);
+                currentR += readSignedVarint(buffer);
+            } else {
+                throw new IllegalArgumentException("malformed hex sequence");
+            }
+            q[i] = currentQ;
+            r[i] = currentR;
+        }
+        return length;
+    }
+
+
+    /**
+     * Reads a sequence of hexes into a list.
+     *
+     * @param buffer source buffer
+     * @return the hexes
+     */
+    static public ArrayList<Hex> readHexes(ByteBuffer buffer) {
+        int length = hexesLength(buffer);
+        int[] q = new int[length];
+        int[] r = new int[length];
+        readHexes(buffer, q, r, 0);
+        ArrayList<Hex> hexes = new ArrayList<Hex>(length);
+        for (int i = 0; i < length; i++) {
+            hexes.add(new Hex(q[i], r[i], -q[i] - r[i]));
+        }
+        return hexes;
+    }
+
+
+    /**
+     * Returns the largest number of bytes that {@code writeGrid} may need for the given number of values.
+     *
+     * @param length number of values
+     * @return upper bound of the encoded size
+     */
+    static public int maxGridBytes(int length) {
+        return 5 + 10 * length;
+    }
+
+
+    /**
+     * Writes grid values as runs of equal values.
+     *
+     * @param buffer target buffer
+     * @param values the values, in the order of the indexes of the shape
+     * @param offset index of the first value
+     * @param length number of values
+     * @throws IndexOutOfBoundsException when the range is outside of the array.
+     */
+    static public void writeGrid(ByteBuffer buffer, int[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        writeVarint(buffer, length);
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int value = values[i];
+            int run = i + 1;
+            while (run < end && values[run] == value) run++;
+            writeSignedVarint(buffer, value);
+            writeVarint(buffer, run - i);
+            i = run;
+        }
+    }
+
+
+    /**
+     * Writes all values of the grid.
+     *
+     * @param buffer target buffer
+     * @param grid   the grid
+     */
+    static public void writeGrid(ByteBuffer buffer, IntHexGrid grid) {
+        writeGrid(buffer, grid.array(), 0, grid.shape.size());
+    }
+
+
+    /**
+     * Reads grid values.
+     *
+     * @param buffer source buffer
+     * @param values receives the values
+     * @param offset index of the first value in the array
+     * @return number of values read
+     * @throws IndexOutOfBoundsException when the values do not fit in the array.
+     * @throws IllegalArgumentException  when the runs do not add up to the number of values.
+     */
+    static public int readGrid(ByteBuffer buffer, int[] values, int offset) {
+        int length = readVarint(buffer);
+        Objects.checkFromIndexSize(offset, length, values.length);
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int value = readSignedVarint(buffer);
+            int run = readVarint(buffer);
+            if (run <= 0 || run > end - i) throw new IllegalArgumentException("malformed grid run");
+            for (int j = i + run; i < j; i++) values[i] = value;
+        }
+        return length;
+    }
+
+
+    /**
+     * Reads the values of the grid.
+     *
+     * @param buffer source buffer
+     * @param grid   receives the values
+     * @throws IllegalArgumentException when the number of values is not the size of the shape of the grid.
+     */
+    static public void readGrid(ByteBuffer buffer, IntHexGrid grid) {
+        int length = hexesLength(buffer);
+        if (length != grid.shape.size()) throw new IllegalArgumentException("grid has " + length + " values, the shape has " + grid.shape.size());
+        readGrid(buffer, grid.array(), 0);
+    }
+}
@@ -0,0 +1,20 @@
+package pl.redbyte.Hex;
+
+/**
+ * Cost of a single step between two neighboring hexes, used by the search engines of the library. Costs are
+ * {@code int}s, so the searches never box them.
+ */
+@FunctionalInterface
+public interface HexCostFunction {
+
+    /**
+     * Returns the cost of moving from {@code Hex(fromQ, fromR)} to its neighbor {@code Hex(toQ, toR)}.
+     *
+     * @param fromQ Axial coordinate of the hex the step starts at
+     * @param fromR Axial coordinate of the hex the step starts at
+     * @param toQ   Axial coordinate of the neighbor
+     * @param toR   Axial coordinate of the neighbor
+     * @return cost of the step, or a negative value when the step is not possible
+     */
+    int cost(int fromQ, int fromR, int toQ, int toR);
+}
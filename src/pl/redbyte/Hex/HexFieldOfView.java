@@ -0,0 +1,241 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexFieldOfView {
+
+    /**
+     * Field of view on a bounded {@code HexShape} by shadowcasting over rings.
+     * <p>
+     * Rings around the viewer are scanned outwards. Position j of ring k (counted like {@code HexSequence.ring}) is
+     * mapped to the "ring angle" j/k in [0, 6): the six corners of every ring map to 0, 1, ..., 5, and every ring is a
+     * scaled copy of the first one, so the same ring angle means the same direction on every ring. A hex of ring k
+     * covers the ring angles from (j - 0.5)/k to (j + 0.5)/k. Opaque hexes add their interval to a sorted list of
+     * shadows, and a hex is visible when the ring angle of its center is not inside a shadow. One ray check per hex
+     * replaces drawing a line to every hex in range, so the cost is O(R²) per viewer instead of O(R³).
+     * <p>
+     * The engine also owns the opacity map and a short log of its recent changes. {@code update} recomputes a
+     * {@code HexVisibility} only when the viewer moved, the radius changed, or an opacity change happened within the
+     * radius of the viewer since the last computation.
+     * <p>
+     * Many threads may call {@code update} at the same time (each with its own result), but not while the opacity map
+     * is being changed.
+     */
+    public final HexShape shape;
+    private final long[] opaque;
+    private long version;
+    private final int[] changeQ;
+    private final int[] changeR;
+    private final long[] changeVersion;
+    private long changes;
+    private final ThreadLocal<Shadows> shadows = ThreadLocal.withInitial(Shadows::new);
+
+
+    /**
+     * Field of view constructor, with all hexes transparent.
+     *
+     * @param shape shape of the map
+     * @return {@code HexFieldOfView} object
+     */
+    public HexFieldOfView(HexShape shape) {
+        this(shape, 1024);
+    }
+
+
+    /**
+     * Field of view constructor, with all hexes transparent.
+     *
+     * @param shape       shape of the map
+     * @param changeLog   number of recent opacity changes remembered for cache validation; when more changes happen
+     *                    between two updates of a result, the result is recomputed
+     * @return {@code HexFieldOfView} object
+     * @throws IllegalArgumentException when changeLog is not positive.
+     */
+    public HexFieldOfView(HexShape shape, int changeLog) {
+        if (changeLog <= 0) throw new IllegalArgumentException("change log must be positive");
+        this.shape = shape;
+        this.opaque = new long[(shape.size() + 63) >>> 6];
+        this.changeQ = new int[changeLog];
+        this.changeR = new int[changeLog];
+        this.changeVersion = new long[changeLog];
+    }
+
+
+    /**
+     * Returns {@code true} if the hex blocks the sight. Hexes outside the shape are transparent.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is opaque
+     */
+    public boolean isOpaque(int q, int r) {
+        int index = shape.index(q, r);
+        return index >= 0 && (opaque[index >>> 6] & (1L << index)) != 0;
+    }
+
+
+    /**
+     * Makes the hex opaque or transparent.
+     *
+     * @param q      Axial coordinate
+     * @param r      Axial coordinate
+     * @param opaque {@code true} if the hex should block the sight
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     */
+    public void setOpaque(int q, int r, boolean opaque) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the shape");
+        long mask = 1L << index;
+        boolean current = (this.opaque[index >>> 6] & mask) != 0;
+        if (current == opaque) return;
+        this.opaque[index >>> 6] ^= mask;
+        int slot = (int) (changes++ % changeQ.length);
+        changeQ[slot] = q;
+        changeR[slot] = r;
+        changeVersion[slot] = ++version;
+    }
+
+
+    /**
+     * Computes what the viewer sees within the radius, unless the result is still valid: the viewer and the radius
+     * are the same as last time, and no hex within the radius changed its opacity since.
+     *
+     * @param viewerQ Axial coordinate of the viewer
+     * @param viewerR Axial coordinate of the viewer
+     * @param radius  sight radius
+     * @param result  result to validate or recompute
+     * @return {@code true} if the result was recomputed, {@code false} if it was still valid
+     * @throws IllegalArgumentException when the radius is negative or the result belongs to another shape.
+     */
+    public boolean update(int viewerQ, int viewerR, int radius, HexVisibility result) {
+        if (radius < 0) throw new IllegalArgumentException("radius must not be negative");
+        if (result.shape != shape) throw new IllegalArgumentException("result belongs to another shape");
+        if (isValid(viewerQ, viewerR, radius, result)) {
+            result.version = version;
+            return false;
+        }
+        compute(viewerQ, viewerR, radius, result);
+        return true;
+    }
+
+
+    private boolean isValid(int viewerQ, int viewerR, int radius, HexVisibility result) {
+        if (result.version < 0 || result.viewerQ != viewerQ || result.viewerR != viewerR || result.radius != radius) {
+            return false;
+        }
+        if (result.version == version) return true;
+        int logged = (int) Math.min(changes, changeQ.length);
+        if (version - result.version > logged) return false;
+        for (int i = 0; i < logged; i++) {
+            int slot = (int) ((changes - 1 - i) % changeQ.length);
+            if (changeVersion[slot] <= result.version) break;
+            int dq = changeQ[slot] - viewerQ;
+            int dr = changeR[slot] - viewerR;
+            if ((Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2 <= radius) return false;
+        }
+        return true;
+    }
+
+
+    private void compute(int viewerQ, int viewerR, int radius, HexVisibility result) {
+        result.clear();
+        result.viewerQ = viewerQ;
+        result.viewerR = viewerR;
+        result.radius = radius;
+        result.version = version;
+        int viewer = shape.index(viewerQ, viewerR);
+        if (viewer < 0) return;
+        result.add(viewer);
+        Shadows shadows = this.shadows.get();
+        shadows.clear();
+        for (int k = 1; k <= radius && !shadows.full(); k++) {
+            int q = viewerQ + Hex.directionQ[4] * k;
+            int r = viewerR + Hex.directionR[4] * k;
+            double width = 0.5 / k;
+            for (int side = 0; side < 6; side++) {
+                for (int step = 0; step < k; step++) {
+                    int index = shape.index(q, r);
+                    if (index >= 0) {
+                        double center = (side * k + step) / (double) k;
+                        if (!shadows.covers(center)) result.add(index);
+                        if ((opaque[index >>> 6] & (1L << index)) != 0) shadows.add(center - width, center + width);
+                    }
+                    q += Hex.directionQ[side];
+                    r += Hex.directionR[side];
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Sorted, disjoint shadow intervals of ring angles in [0, 6).
+     */
+    static private final class Shadows {
+        private double[] start = new double[32];
+        private double[] end = new double[32];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean full() {
+            return size == 1 && start[0] <= 0.0 && end[0] >= 6.0;
+        }
+
+        boolean covers(double angle) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (end[middle] <= angle) low = middle + 1;
+                else if (start[middle] >= angle) high = middle - 1;
+                else return true;
+            }
+            return false;
+        }
+
+        void add(double from, double to) {
+            // the two pieces of an interval that wraps around extend past 0 and 6, so that the ring angle 0.0 is
+            // strictly inside the piece that starts the circle
+            if (from < 0.0) {
+                insert(from + 6.0, 7.0);
+                insert(-1.0, to);
+            } else if (to > 6.0) {
+                insert(from, 7.0);
+                insert(-1.0, to - 6.0);
+            } else {
+                insert(from, to);
+            }
+        }
+
+        private void insert(double from, double to) {
+            // first interval that ends at or after the new one starts
+            int first = 0;
+            while (first < size && end[first] < from) first++;
+            int last = first;
+            while (last < size && start[last] <= to) {
+                from = Math.min(from, start[last]);
+                to = Math.max(to, end[last]);
+                last++;
+            }
+            int removed = last - first;
+            if (removed == 0) {
+                if (size == start.length) {
+                    start = Arrays.copyOf(start, size << 1);
+                    end = Arrays.copyOf(end, size << 1);
+                }
+                System.arraycopy(start, first, start, first + 1, size - first);
+                System.arraycopy(end, first, end, first + 1, size - first);
+                size++;
+            } else if (removed > 1) {
+                System.arraycopy(start, last, start, first + 1, size - last);
+                System.arraycopy(end, last, end, first + 1, size - last);
+                size -= removed - 1;
+            }
+            start[first] = from;
+            end[first] = to;
+        }
+    }
+}
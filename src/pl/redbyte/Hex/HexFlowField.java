@@ -0,0 +1,540 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class HexFlowField {
+
+    /**
+     * Multi-source Dijkstra map (flow field) over a bounded {@code HexShape}.
+     * <p>
+     * Every cell gets its distance to the nearest goal and the direction (index into {@code Hex.directions}) of the
+     * next step towards it, so a unit walking to the goals needs a single array lookup per step. Entering a cell costs
+     * the value of the cell in the cost grid; negative values are impassable, and passable cells cost at least 1. With
+     * free steps two neighbors could each be a cheapest next step of the other, and the directions would loop. A goal
+     * (source) starts with its weight as the distance, which lets some goals be more attractive than others.
+     * <p>
+     * {@code compute} runs Dijkstra on a primitive {@code HexHeap}, or a plain breadth-first search when every passable
+     * cell costs 1. {@code computeParallel} splits the rows into bands that run Dijkstra concurrently and exchange
+     * improved distances across band borders until nothing changes. {@code repair} updates the field after a few cells
+     * changed their cost, touching only the cells whose distances depend on them.
+     */
+    static public final int UNREACHABLE = Integer.MAX_VALUE;
+
+    public final HexShape shape;
+    public final IntHexGrid cost;
+    private final int[] distance;
+    private final byte[] direction;
+    // goal weights by packed hex key
+    private final HexLongIntMap sources = new HexLongIntMap(16, UNREACHABLE);
+    private final HexHeap heap = new HexHeap();
+    private int[] queue = new int[256];
+    private int[] mark;
+    private int markGeneration;
+    private final IntList invalid = new IntList();
+    private final IntList touched = new IntList();
+
+
+    /**
+     * Flow field constructor. The field is empty (all cells unreachable) until {@code compute} is called.
+     *
+     * @param cost cost of entering each cell, at least 1; negative values are impassable
+     * @return {@code HexFlowField} object
+     */
+    public HexFlowField(IntHexGrid cost) {
+        this.shape = cost.shape;
+        this.cost = cost;
+        this.distance = new int[shape.size()];
+        this.direction = new byte[shape.size()];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(direction, (byte) -1);
+    }
+
+
+    /**
+     * Adds a goal. If the hex is already a goal, the smaller weight is kept.
+     *
+     * @param q      Axial coordinate
+     * @param r      Axial coordinate
+     * @param weight initial distance of the goal, not negative
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     * @throws IllegalArgumentException  when weight is negative.
+     */
+    public void addSource(int q, int r, int weight) {
+        if (weight < 0) throw new IllegalArgumentException("weight must not be negative");
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the shape");
+        long key = HexKey.pack(q, r);
+        if (weight < sources.get(key)) sources.put(key, weight);
+    }
+
+
+    /**
+     * Removes all goals. The distances stay as they are until the next {@code compute}.
+     */
+    public void clearSources() {
+        sources.clear();
+    }
+
+
+    /**
+     * Returns the distance from the hex to the nearest goal, or {@code UNREACHABLE}.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return distance, or {@code UNREACHABLE} (also for hexes outside the shape)
+     */
+    public int distance(int q, int r) {
+        int index = shape.index(q, r);
+        return index < 0 ? UNREACHABLE : distance[index];
+    }
+
+
+    /**
+     * Returns the direction of the next step from the hex towards the nearest goal.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return direction index [0..5] into {@code Hex.directions}, or -1 at a goal, at an unreachable hex, and outside
+     * the shape
+     */
+    public int direction(int q, int r) {
+        int index = shape.index(q, r);
+        return index < 0 ? -1 : direction[index];
+    }
+
+
+    /**
+     * Returns the distances of all cells in {@code HexShape} index order. The array must not be modified.
+     *
+     * @return distances
+     */
+    public int[] distances() {
+        return distance;
+    }
+
+
+    /**
+     * Returns the next step directions of all cells in {@code HexShape} index order. The array must not be modified.
+     *
+     * @return directions
+     */
+    public byte[] directions() {
+        return direction;
+    }
+
+
+    private boolean passable(int index) {
+        return cost.getAt(index) >= 0;
+    }
+
+
+    private int sourceIndex(int slot) {
+        long key = sources.keyAt(slot);
+        return shape.index(HexKey.q(key), HexKey.r(key));
+    }
+
+
+    private void seedSources() {
+        Arrays.fill(distance, UNREACHABLE);
+        for (int slot = sources.firstSlot(); slot >= 0; slot = sources.nextSlot(slot)) {
+            int index = sourceIndex(slot);
+            if (passable(index)) distance[index] = Math.min(distance[index], sources.valueAt(slot));
+        }
+    }
+
+
+    /**
+     * Computes the distances and directions of all cells from the current goals and costs.
+     *
+     * @throws IllegalArgumentException when a cell costs 0.
+     */
+    public void compute() {
+        boolean unitCost = checkCosts();
+        seedSources();
+        if (unitCost) {
+            breadthFirst();
+        } else {
+            heap.clear();
+            for (int slot = sources.firstSlot(); slot >= 0; slot = sources.nextSlot(slot)) {
+                int index = sourceIndex(slot);
+                if (distance[index] != UNREACHABLE) heap.push(distance[index], index);
+            }
+            dijkstra(heap, shape.rMin(), shape.rMax(), null);
+        }
+        updateDirections(shape.rMin(), shape.rMax());
+    }
+
+
+    // returns true when every passable cell costs 1
+    private boolean checkCosts() {
+        int[] costs = cost.array();
+        boolean unitCost = true;
+        for (int c : costs) {
+            if (c == 0) throw new IllegalArgumentException("passable cells must cost at least 1");
+            if (c > 1) unitCost = false;
+        }
+        return unitCost;
+    }
+
+
+    /**
+     * Breadth-first search for grids where every step costs 1. Goals are taken in the order of their weights and
+     * merged with the queue, so the cells still leave the queue in the order of their distances.
+     */
+    private void breadthFirst() {
+        int count = 0;
+        long[] seeds = new long[sources.size()];
+        for (int slot = sources.firstSlot(); slot >= 0; slot = sources.nextSlot(slot)) {
+            int index = sourceIndex(slot);
+            if (distance[index] == sources.valueAt(slot)) seeds[count++] = ((long) distance[index] << 32) | index;
+        }
+        Arrays.sort(seeds, 0, count);
+        if (queue.length < shape.size()) queue = new int[shape.size()];
+        int[] queue = this.queue;
+        int head = 0;
+        int tail = 0;
+        int seed = 0;
+        while (head < tail || seed < count) {
+            int index;
+            if (head < tail && (seed >= count || distance[queue[head]] <= (int) (seeds[seed] >>> 32))) {
+                index = queue[head++];
+            } else {
+                index = (int) seeds[seed++];
+                if (distance[index] != (int) (seeds[seed - 1] >>> 32)) continue;
+            }
+            int q = shape.q(index);
+            int r = shape.r(index);
+            int next = distance[index] + 1;
+            for (int d = 0; d < 6; d++) {
+                int neighbor = shape.neighbor(index, q, r, d);
+                if (neighbor < 0 || distance[neighbor] <= next || !passable(neighbor)) continue;
+                distance[neighbor] = next;
+                queue[tail++] = neighbor;
+            }
+        }
+    }
+
+
+    /**
+     * Dijkstra limited to the rows [rFirst..rLast]: neighbors in other rows are not updated. Returns {@code true}
+     * when a distance changed. Changed cells are added to {@code changed} when it is not {@code null}.
+     */
+    private boolean dijkstra(HexHeap heap, int rFirst, int rLast, IntList changed) {
+        boolean updated = false;
+        while (!heap.isEmpty()) {
+            long entry = heap.pop();
+            int index = HexHeap.index(entry);
+            int current = distance[index];
+            if (HexHeap.priority(entry) != current) continue;
+            int q = shape.q(index);
+            int r = shape.r(index);
+            int next = current + cost.getAt(index);
+            if (next < 0) continue;
+            for (int d = 0; d < 6; d++) {
+                int nr = r + Hex.directionR[d];
+                if (nr < rFirst || nr > rLast) continue;
+                int neighbor = shape.neighbor(index, q, r, d);
+                if (neighbor < 0 || distance[neighbor] <= next || !passable(neighbor)) continue;
+                distance[neighbor] = next;
+                heap.push(next, neighbor);
+                if (changed != null) changed.add(neighbor);
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+
+    private void updateDirection(int index, int q, int r) {
+        int best = distance[index];
+        int bestDirection = -1;
+        if (best == UNREACHABLE) {
+            direction[index] = -1;
+            return;
+        }
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            if (neighbor < 0) continue;
+            int through = distance[neighbor];
+            int step = cost.getAt(neighbor);
+            if (through == UNREACHABLE || step < 0) continue;
+            through += step;
+            if (through < best || (through == best && bestDirection < 0)) {
+                best = through;
+                bestDirection = d;
+            }
+        }
+        if (sources.get(HexKey.pack(q, r)) == distance[index]) bestDirection = -1;
+        direction[index] = (byte) bestDirection;
+    }
+
+
+    private void updateDirections(int rFirst, int rLast) {
+        for (int r = rFirst; r <= rLast; r++) {
+            int index = shape.rowStart(r);
+            for (int q = shape.qMin(r); q <= shape.qMax(r); q++, index++) {
+                updateDirection(index, q, r);
+            }
+        }
+    }
+
+
+    /**
+     * Computes the distances and directions of all cells on a fork-join pool. The rows are split into {@code bands}
+     * bands; each band runs Dijkstra on its own rows, then the bands pull improved distances across their borders
+     * and run again, until no distance changes. The result is the same as the result of {@code compute}.
+     *
+     * @param pool  pool running the computation
+     * @param bands number of row bands, usually a small multiple of the number of cores
+     * @throws IllegalArgumentException when bands is not positive or a cell costs 0.
+     */
+    public void computeParallel(ForkJoinPool pool, int bands) {
+        if (bands <= 0) throw new IllegalArgumentException("bands must be positive");
+        checkCosts();
+        seedSources();
+        int rows = shape.rMax() - shape.rMin() + 1;
+        bands = Math.min(bands, rows);
+        ArrayList<Band> tasks = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            tasks.add(new Band(shape.rMin() + (int) ((long) rows * b / bands), shape.rMin() + (int) ((long) rows * (b + 1) / bands) - 1));
+        }
+        AtomicBoolean changed = new AtomicBoolean(true);
+        for (int round = 0; changed.get(); round++) {
+            changed.set(false);
+            for (Band band : tasks) band.prepare(round == 0, changed);
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ArrayList<RecursiveAction> directions = new ArrayList<>();
+                for (Band band : tasks) {
+                    directions.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            updateDirections(band.rFirst, band.rLast);
+                        }
+                    });
+                }
+                ForkJoinTask.invokeAll(directions);
+            }
+        });
+    }
+
+
+    /**
+     * One band of rows in {@code computeParallel}. The first round starts from the goals in the band, later rounds
+     * from the border rows that can be improved through the neighboring bands.
+     */
+    private final class Band extends RecursiveAction {
+        static private final long serialVersionUID = 1L;
+
+        final int rFirst;
+        final int rLast;
+        private final HexHeap heap = new HexHeap();
+        private boolean first;
+        private AtomicBoolean changed;
+
+        Band(int rFirst, int rLast) {
+            this.rFirst = rFirst;
+            this.rLast = rLast;
+        }
+
+        void prepare(boolean first, AtomicBoolean changed) {
+            this.first = first;
+            this.changed = changed;
+            reinitialize();
+        }
+
+        @Override
+        protected void compute() {
+            heap.clear();
+            boolean updated = false;
+            if (first) {
+                for (int r = rFirst; r <= rLast; r++) {
+                    int index = shape.rowStart(r);
+                    for (int q = shape.qMin(r); q <= shape.qMax(r); q++, index++) {
+                        if (distance[index] != UNREACHABLE) heap.push(distance[index], index);
+                    }
+                }
+                updated = true;
+            } else {
+                updated |= pullBorder(rFirst);
+                if (rLast != rFirst) updated |= pullBorder(rLast);
+            }
+            updated |= dijkstra(heap, rFirst, rLast, null);
+            if (updated) changed.set(true);
+        }
+
+        private boolean pullBorder(int r) {
+            boolean updated = false;
+            int index = shape.rowStart(r);
+            for (int q = shape.qMin(r); q <= shape.qMax(r); q++, index++) {
+                if (!passable(index)) continue;
+                for (int d = 0; d < 6; d++) {
+                    int nr = r + Hex.directionR[d];
+                    if (nr >= rFirst && nr <= rLast) continue;
+                    int neighbor = shape.neighbor(index, q, r, d);
+                    if (neighbor < 0) continue;
+                    int through = distance[neighbor];
+                    int step = cost.getAt(neighbor);
+                    if (through == UNREACHABLE || step < 0) continue;
+                    through += step;
+                    if (through < distance[index]) {
+                        distance[index] = through;
+                        heap.push(through, index);
+                        updated = true;
+                    }
+                }
+            }
+            return updated;
+        }
+    }
+
+
+    /**
+     * Updates the field after the cost of some cells changed (change the cost grid first, then call this method with
+     * the changed hexes). Only the cells whose distance went through a changed cell are recomputed, instead of the
+     * whole field.
+     *
+     * @param q     Axial coordinates of the changed hexes
+     * @param r     Axial coordinates of the changed hexes
+     * @param count number of changed hexes
+     * @throws IllegalArgumentException when a changed cell costs 0.
+     */
+    public void repair(int[] q, int[] r, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = shape.index(q[i], r[i]);
+            if (index >= 0 && cost.getAt(index) == 0) throw new IllegalArgumentException("passable cells must cost at least 1");
+        }
+        if (mark == null) mark = new int[shape.size()];
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            markGeneration = 1;
+        }
+        IntList invalid = this.invalid;
+        invalid.size = 0;
+        for (int i = 0; i < count; i++) {
+            int index = shape.index(q[i], r[i]);
+            if (index < 0) continue;
+            // the distance of a cell depends on the costs of the cells after it, not on its own cost, so only the
+            // cells that step into the changed cell lose their distance (and the cell itself when it got blocked)
+            if (!passable(index) && mark[index] != markGeneration) {
+                mark[index] = markGeneration;
+                invalid.add(index);
+            }
+            invalidateUpstream(index, q[i], r[i], invalid);
+        }
+        for (int i = 0; i < invalid.size; i++) {
+            int index = invalid.values[i];
+            invalidateUpstream(index, shape.q(index), shape.r(index), invalid);
+        }
+        for (int i = 0; i < invalid.size; i++) {
+            distance[invalid.values[i]] = UNREACHABLE;
+            direction[invalid.values[i]] = -1;
+        }
+
+        IntList touched = this.touched;
+        touched.size = 0;
+        heap.clear();
+        for (int i = 0; i < invalid.size; i++) reseed(invalid.values[i], touched);
+        for (int i = 0; i < count; i++) {
+            int index = shape.index(q[i], r[i]);
+            if (index < 0) continue;
+            reseed(index, touched);
+            for (int d = 0; d < 6; d++) {
+                int neighbor = shape.neighbor(index, q[i], r[i], d);
+                if (neighbor >= 0) reseed(neighbor, touched);
+            }
+        }
+        dijkstra(heap, shape.rMin(), shape.rMax(), touched);
+
+        for (int i = 0; i < invalid.size; i++) touched.add(invalid.values[i]);
+        for (int i = 0; i < count; i++) {
+            int index = shape.index(q[i], r[i]);
+            if (index >= 0) touched.add(index);
+        }
+        int generation = ++markGeneration;
+        for (int i = 0; i < touched.size; i++) {
+            int index = touched.values[i];
+            int hq = shape.q(index);
+            int hr = shape.r(index);
+            for (int d = -1; d < 6; d++) {
+                int cell = d < 0 ? index : shape.neighbor(index, hq, hr, d);
+                if (cell < 0 || mark[cell] == generation) continue;
+                mark[cell] = generation;
+                updateDirection(cell, shape.q(cell), shape.r(cell));
+            }
+        }
+    }
+
+
+    /**
+     * Adds to {@code invalid} the neighbors whose next step is the given cell.
+     */
+    private void invalidateUpstream(int index, int q, int r, IntList invalid) {
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            if (neighbor < 0 || mark[neighbor] == markGeneration) continue;
+            // the neighbor points at this cell when its direction is the opposite of d
+            if (direction[neighbor] == (d + 3) % 6) {
+                mark[neighbor] = markGeneration;
+                invalid.add(neighbor);
+            }
+        }
+    }
+
+
+    /**
+     * Gives the cell the best distance offered by its goal weight and its neighbors, and queues it if it improved.
+     */
+    private void reseed(int index, IntList touched) {
+        if (!passable(index)) {
+            if (distance[index] != UNREACHABLE) {
+                distance[index] = UNREACHABLE;
+                touched.add(index);
+            }
+            return;
+        }
+        int q = shape.q(index);
+        int r = shape.r(index);
+        int best = sources.get(HexKey.pack(q, r));
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            if (neighbor < 0) continue;
+            int through = distance[neighbor];
+            int step = cost.getAt(neighbor);
+            if (through == UNREACHABLE || step < 0) continue;
+            best = Math.min(best, through + step);
+        }
+        if (best < distance[index]) {
+            distance[index] = best;
+            heap.push(best, index);
+            touched.add(index);
+        }
+    }
+
+
+    /**
+     * Growable list of cell indexes.
+     */
+    static private final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexGrid<T> {
+
+    /**
+     * A map of objects (e.g. tiles) over a bounded {@code HexShape}.
+     * <p>
+     * Cells are kept in a flat array in {@code HexShape} index order, so there is no {@code Hex} object per cell, and
+     * neighbors are reached with {@code shape.neighbor(index, q, r, direction)}, which is a plain array offset.
+     */
+    public final HexShape shape;
+    private final Object[] cells;
+
+
+    /**
+     * Grid constructor. All cells are set to {@code null}.
+     *
+     * @param shape shape of the map
+     * @return {@code HexGrid} object
+     */
+    public HexGrid(HexShape shape) {
+        this.shape = shape;
+        this.cells = new Object[shape.size()];
+    }
+
+
+    private int checkedIndex(int q, int r) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the grid");
+        return index;
+    }
+
+
+    /**
+     * Returns the value of the cell.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return value of the cell
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int q, int r) {
+        return (T) cells[checkedIndex(q, r)];
+    }
+
+
+    /**
+     * Returns the value of the cell.
+     *
+     * @param hex the hexagon
+     * @return value of the cell
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public T get(Hex hex) {
+        return get(hex.q, hex.r);
+    }
+
+
+    /**
+     * Sets the value of the cell.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value the new value
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public void set(int q, int r, T value) {
+        cells[checkedIndex(q, r)] = value;
+    }
+
+
+    /**
+     * Sets the value of the cell.
+     *
+     * @param hex   the hexagon
+     * @param value the new value
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public void set(Hex hex, T value) {
+        set(hex.q, hex.r, value);
+    }
+
+
+    /**
+     * Returns the value of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @return value of the cell
+     */
+    @SuppressWarnings("unchecked")
+    public T getAt(int index) {
+        return (T) cells[index];
+    }
+
+
+    /**
+     * Sets the value of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @param value the new value
+     */
+    public void setAt(int index, T value) {
+        cells[index] = value;
+    }
+
+
+    /**
+     * Sets the value of every cell.
+     *
+     * @param value the new value
+     */
+    public void fill(T value) {
+        Arrays.fill(cells, value);
+    }
+}
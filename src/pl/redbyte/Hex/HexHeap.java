@@ -0,0 +1,80 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (priority, cell index) pairs used by the search engines of the library. Both values are packed
+ * into one {@code long} (priority in the upper 32 bits), so the heap is a single primitive array and comparing two
+ * entries is a single {@code long} comparison. Priorities must not be negative.
+ * <p>
+ * The heap has no decrease-key operation: a cell that gets a better priority is pushed again, and the stale entry is
+ * skipped by the caller when it is popped. The array only grows, so a heap reused between searches stops allocating
+ * after the first few searches.
+ */
+final class HexHeap {
+
+    private long[] entries = new long[256];
+    private int size;
+
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    void clear() {
+        size = 0;
+    }
+
+
+    void push(int priority, int index) {
+        if (size == entries.length) entries = Arrays.copyOf(entries, size << 1);
+        long entry = ((long) priority << 32) | (index & 0xFFFFFFFFL);
+        long[] entries = this.entries;
+        int position = size++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            long parentEntry = entries[parent];
+            if (parentEntry <= entry) break;
+            entries[position] = parentEntry;
+            position = parent;
+        }
+        entries[position] = entry;
+    }
+
+
+    /**
+     * Removes the entry with the smallest priority and returns it packed, see {@code priority} and {@code index}.
+     */
+    long pop() {
+        long[] entries = this.entries;
+        long top = entries[0];
+        long last = entries[--size];
+        int position = 0;
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            long childEntry = entries[child];
+            int right = child + 1;
+            if (right < size && entries[right] < childEntry) {
+                child = right;
+                childEntry = entries[right];
+            }
+            if (last <= childEntry) break;
+            entries[position] = childEntry;
+            position = child;
+        }
+        entries[position] = last;
+        return top;
+    }
+
+
+    static int priority(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+
+    static int index(long entry) {
+        return (int) entry;
+    }
+}
@@ -0,0 +1,17 @@
+package pl.redbyte.Hex;
+
+/**
+ * Height of a hex, used by {@code HexMeshBuilder} to give the vertices of a mesh their z coordinate.
+ */
+@FunctionalInterface
+public interface HexHeightFunction {
+
+    /**
+     * Returns the height of {@code Hex(q, r)}.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return height of the hex
+     */
+    float height(int q, int r);
+}
@@ -0,0 +1,107 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+
+public class HexHierarchy {
+
+    /**
+     * Aperture-7 hierarchy of hexes: every hex of level {@code n + 1} is made of 7 hexes of level {@code n}, a center
+     * hex and its 6 neighbors. Every level uses its own axial coordinates, and level 0 is the plain hex grid.
+     * <p>
+     * The centers of the groups form the lattice spanned by the fine vectors (2, 1) and (-1, 3), so the center of
+     * the parent {@code Hex(a, b)} is the fine {@code Hex(2a - b, a + 3b)}. The inverse of that map,
+     * ((3q + r) / 7, (2r - q) / 7), gives a fractional parent, and rounding it with the usual hex rounding gives the
+     * parent of any fine hex. Both directions take a few arithmetic operations per level, without tables.
+     * <p>
+     * The coarse grid is the fine one scaled by sqrt(7) and rotated by about 19 degrees, so a coarse hex covers its 7
+     * children exactly in counts, but its outline is not a hexagon.
+     */
+    private HexHierarchy() {
+    }
+
+
+    /**
+     * Returns the parent of the hex on the next level, packed by {@code HexKey}.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return packed parent
+     */
+    static public long parentKey(int q, int r) {
+        double a = (3.0 * q + r) / 7.0;
+        double b = (2.0 * r - q) / 7.0;
+        return FractionalHex.hexRound(a, b, -a - b);
+    }
+
+
+    /**
+     * Returns the ancestor of the hex {@code levels} levels up, packed by {@code HexKey}.
+     *
+     * @param q      Axial coordinate
+     * @param r      Axial coordinate
+     * @param levels number of levels up, not negative
+     * @return packed ancestor
+     * @throws IllegalArgumentException when levels is negative.
+     */
+    static public long parentKey(int q, int r, int levels) {
+        if (levels < 0) throw new IllegalArgumentException("levels must not be negative");
+        long key = HexKey.pack(q, r);
+        for (int i = 0; i < levels; i++) key = parentKey(HexKey.q(key), HexKey.r(key));
+        return key;
+    }
+
+
+    /**
+     * Returns the parent of the hex on the next level.
+     *
+     * @param hex the hex
+     * @return parent hex
+     */
+    static public Hex parent(Hex hex) {
+        return HexKey.toHex(parentKey(hex.q, hex.r));
+    }
+
+
+    /**
+     * Returns the ancestor of the hex {@code levels} levels up.
+     *
+     * @param hex    the hex
+     * @param levels number of levels up, not negative
+     * @return ancestor hex
+     */
+    static public Hex parent(Hex hex, int levels) {
+        return HexKey.toHex(parentKey(hex.q, hex.r, levels));
+    }
+
+
+    /**
+     * Returns a child of the hex on the previous level, packed by {@code HexKey}. Child 0 is the center, and child
+     * {@code 1 + d} is the neighbor of the center in direction {@code d}.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param child number of the child, in [0..6]
+     * @return packed child
+     * @throws IllegalArgumentException when child is out of range.
+     */
+    static public long childKey(int q, int r, int child) {
+        if (child < 0 || child > 6) throw new IllegalArgumentException("child must be in [0..6]");
+        int centerQ = 2 * q - r;
+        int centerR = q + 3 * r;
+        if (child == 0) return HexKey.pack(centerQ, centerR);
+        return HexKey.pack(centerQ + Hex.directionQ[child - 1], centerR + Hex.directionR[child - 1]);
+    }
+
+
+    /**
+     * Returns the 7 children of the hex on the previous level, the center first.
+     *
+     * @param hex the hex
+     * @return children
+     */
+    static public ArrayList<Hex> children(Hex hex) {
+        ArrayList<Hex> children = new ArrayList<Hex>(7);
+        for (int child = 0; child < 7; child++) children.add(HexKey.toHex(childKey(hex.q, hex.r, child)));
+        return children;
+    }
+}
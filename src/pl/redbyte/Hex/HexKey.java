@@ -0,0 +1,121 @@
+package pl.redbyte.Hex;
+
+public class HexKey {
+
+    /**
+     * A {@code Hex} is fully described by two of its three cube coordinates (s = -q-r), and both of them fit in an
+     * {@code int}. So the pair (q, r) can be packed into a single {@code long}: q goes to the upper 32 bits and r to
+     * the lower 32 bits. Packed keys are used by the primitive collections of the library, so no {@code Hex} objects
+     * have to be created to store, look up or iterate hexes.
+     * <p>
+     * Every (q, r) pair gives a distinct key, and the key of {@code Hex(0, 0, 0)} is {@code 0}.
+     */
+    private HexKey() {
+    }
+
+
+    /**
+     * Packs axial coordinates into a single {@code long}.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return packed key
+     */
+    static public long pack(int q, int r) {
+        return ((long) q << 32) | (r & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * Packs the coordinates of the given hexagon into a single {@code long}.
+     *
+     * @param hex the hexagon
+     * @return packed key
+     */
+    static public long pack(Hex hex) {
+        return pack(hex.q, hex.r);
+    }
+
+
+    /**
+     * Returns the q coordinate stored in the packed key.
+     *
+     * @param key packed key
+     * @return q coordinate
+     */
+    static public int q(long key) {
+        return (int) (key >> 32);
+    }
+
+
+    /**
+     * Returns the r coordinate stored in the packed key.
+     *
+     * @param key packed key
+     * @return r coordinate
+     */
+    static public int r(long key) {
+        return (int) key;
+    }
+
+
+    /**
+     * Returns the s coordinate of the packed key. It is not stored, it is calculated from the constraint q+r+s = 0.
+     *
+     * @param key packed key
+     * @return s coordinate
+     */
+    static public int s(long key) {
+        return -q(key) - r(key);
+    }
+
+
+    /**
+     * Creates the {@code Hex} object stored in the packed key.
+     *
+     * @param key packed key
+     * @return {@code Hex} object
+     */
+    static public Hex toHex(long key) {
+        return new Hex(q(key), r(key));
+    }
+
+
+    /**
+     * Returns the key of the neighbor in specified direction, without creating any {@code Hex} object.
+     *
+     * @param key       packed key
+     * @param direction direction index [0..5] of the direction vector stored in {@code Hex.directions}
+     * @return packed key of the neighbor
+     */
+    static public long neighbor(long key, int direction) {
+        return pack(q(key) + Hex.directionQ[direction], r(key) + Hex.directionR[direction]);
+    }
+
+
+    /**
+     * The distance between two packed hexes, the same as {@code Hex.distance}.
+     *
+     * @param a packed key
+     * @param b packed key
+     * @return distance between both hexes
+     */
+    static public int distance(long a, long b) {
+        int dq = q(a) - q(b);
+        int dr = r(a) - r(b);
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+    }
+
+
+    /**
+     * Scrambles the bits of the packed key, so keys of nearby hexes (that differ only in the lowest bits of q and r)
+     * spread evenly over a power of two sized hash table.
+     *
+     * @param key packed key
+     * @return hash of the key
+     */
+    static public int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
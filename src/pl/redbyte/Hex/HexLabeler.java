@@ -0,0 +1,475 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class HexLabeler {
+
+    /**
+     * Connected components (territories, lakes, islands) of an {@code IntHexGrid}: neighboring cells with the same
+     * value belong to the same component, and every component gets an {@code int} label.
+     * <p>
+     * {@code label} scans the cells in index order with a union-find over cell indexes: a cell is joined with the
+     * neighbors already scanned (the previous cell of the row and the two neighbors in the row above). Roots are always
+     * linked to the smaller index, so the parent of a cell never follows it, and one more pass in index order turns
+     * the forest into labels numbered by the first cell of each component. Nothing is recursive and nothing is
+     * allocated per cell.
+     * <p>
+     * {@code label(pool, bands)} runs the scan of bands of rows concurrently (the trees of a band stay inside it), then
+     * joins the first row of every band with the last row of the band above it; the labels are the same as the labels
+     * of {@code label}.
+     * <p>
+     * {@code set} changes one cell and updates the labels around it: the components of the new value that touch the
+     * cell are merged by relabeling the smaller ones, and when the old component may have been cut in pieces, its
+     * pieces are explored at the same pace until all but one are complete, so the cost depends on the size of the
+     * smaller pieces. After {@code set} the labels are still unique per component, but no longer in index order.
+     */
+    public final IntHexGrid grid;
+    public final HexShape shape;
+    private final int[] labels;
+    private final int[] parent;
+    private int[] sizes = new int[64];
+    private int labelLimit;
+    private int componentCount;
+    private final IntList free = new IntList();
+    private int[] mark;
+    private int markGeneration;
+    private int[] owner;
+    private final IntList queue = new IntList();
+    private final IntList[] pieces = {new IntList(), new IntList(), new IntList()};
+
+
+    /**
+     * Labeler constructor. Labels the grid.
+     *
+     * @param grid the grid
+     * @return {@code HexLabeler} object
+     */
+    public HexLabeler(IntHexGrid grid) {
+        this.grid = grid;
+        this.shape = grid.shape;
+        this.labels = new int[shape.size()];
+        this.parent = new int[shape.size()];
+        label();
+    }
+
+
+    /**
+     * Labels all cells. Must be called after the grid was changed by other means than {@code set}.
+     */
+    public void label() {
+        scan(shape.rMin(), shape.rMax());
+        assign();
+    }
+
+
+    /**
+     * Labels all cells on a fork-join pool, splitting the rows into {@code bands} bands. The labels are the same as
+     * the labels of {@code label}.
+     *
+     * @param pool  pool running the labeling
+     * @param bands number of row bands, usually a small multiple of the number of cores
+     * @throws IllegalArgumentException when bands is not positive.
+     */
+    public void label(ForkJoinPool pool, int bands) {
+        if (bands <= 0) throw new IllegalArgumentException("bands must be positive");
+        int rows = shape.rMax() - shape.rMin() + 1;
+        bands = Math.min(bands, rows);
+        ArrayList<Band> tasks = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            tasks.add(new Band(shape.rMin() + (int) ((long) rows * b / bands), shape.rMin() + (int) ((long) rows * (b + 1) / bands) - 1));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+        // seams: the first row of every band with the row above it
+        for (int b = 1; b < bands; b++) {
+            joinAbove(tasks.get(b).rFirst);
+        }
+        assign();
+    }
+
+
+    /**
+     * Scan of one band of rows in {@code label(pool, bands)}.
+     */
+    private final class Band extends RecursiveAction {
+        static private final long serialVersionUID = 1L;
+
+        final int rFirst;
+        final int rLast;
+
+        Band(int rFirst, int rLast) {
+            this.rFirst = rFirst;
+            this.rLast = rLast;
+        }
+
+        @Override
+        protected void compute() {
+            scan(rFirst, rLast);
+        }
+    }
+
+
+    // joins the cells of the rows with their scanned neighbors; only the trees of these rows are touched
+    private void scan(int rFirst, int rLast) {
+        int[] cells = grid.array();
+        for (int r = rFirst; r <= rLast; r++) {
+            int qMin = shape.qMin(r);
+            int base = shape.rowStart(r) - qMin;
+            for (int q = qMin; q <= shape.qMax(r); q++) {
+                int index = base + q;
+                parent[index] = index;
+                if (q > qMin && cells[index - 1] == cells[index]) union(index, index - 1);
+            }
+            if (r > rFirst) joinAbove(r);
+        }
+    }
+
+
+    // joins the cells of the row with their neighbors in directions 1 and 2 (the row above)
+    private void joinAbove(int r) {
+        int[] cells = grid.array();
+        int qMin = shape.qMin(r);
+        int base = shape.rowStart(r) - qMin;
+        int delta1 = shape.neighborDelta(r, 1);
+        int delta2 = shape.neighborDelta(r, 2);
+        for (int q = qMin; q <= shape.qMax(r); q++) {
+            int index = base + q;
+            if (shape.contains(q + 1, r - 1) && cells[index + delta1] == cells[index]) union(index, index + delta1);
+            if (shape.contains(q, r - 1) && cells[index + delta2] == cells[index]) union(index, index + delta2);
+        }
+    }
+
+
+    private int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a < b) parent[b] = a;
+        else if (b < a) parent[a] = b;
+    }
+
+
+    // every parent precedes its cell, so its label is already final when the cell is reached
+    private void assign() {
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int p = parent[i];
+            labels[i] = p == i ? count++ : labels[p];
+        }
+        if (sizes.length < count) sizes = new int[count];
+        Arrays.fill(sizes, 0);
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        labelLimit = count;
+        componentCount = count;
+        free.size = 0;
+    }
+
+
+    private int newLabel() {
+        componentCount++;
+        if (free.size > 0) return free.values[--free.size];
+        if (labelLimit == sizes.length) sizes = Arrays.copyOf(sizes, labelLimit << 1);
+        sizes[labelLimit] = 0;
+        return labelLimit++;
+    }
+
+
+    private void freeLabel(int label) {
+        componentCount--;
+        sizes[label] = 0;
+        free.add(label);
+    }
+
+
+    private int checkedIndex(int q, int r) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the grid");
+        return index;
+    }
+
+
+    /**
+     * Returns the label of the component of the cell.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return label
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public int labelOf(int q, int r) {
+        return labels[checkedIndex(q, r)];
+    }
+
+
+    /**
+     * Returns the label of the component of the cell stored at the index (see {@code HexShape.index}).
+     *
+     * @param index index in [0..shape.size())
+     * @return label
+     */
+    public int labelAt(int index) {
+        return labels[index];
+    }
+
+
+    /**
+     * Returns the labels, in {@code HexShape} index order. The array must not be modified.
+     *
+     * @return labels of all cells
+     */
+    public int[] array() {
+        return labels;
+    }
+
+
+    /**
+     * Returns the number of components.
+     *
+     * @return number of components
+     */
+    public int componentCount() {
+        return componentCount;
+    }
+
+
+    /**
+     * Returns an upper bound of the labels: every label is in [0..labelLimit()). After {@code label} it is equal to
+     * {@code componentCount()}.
+     *
+     * @return upper bound of the labels
+     */
+    public int labelLimit() {
+        return labelLimit;
+    }
+
+
+    /**
+     * Returns the number of cells of the component, or 0 if no component has the label.
+     *
+     * @param label label of the component
+     * @return number of cells
+     */
+    public int componentSize(int label) {
+        return label >= 0 && label < labelLimit ? sizes[label] : 0;
+    }
+
+
+    private int nextGeneration() {
+        if (mark == null) {
+            mark = new int[labels.length];
+            owner = new int[labels.length];
+        }
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            markGeneration = 1;
+        }
+        return markGeneration;
+    }
+
+
+    /**
+     * Visits the cells of the component of the hex, breadth first from the hex.
+     *
+     * @param q       Axial coordinate
+     * @param r       Axial coordinate
+     * @param visitor receives the cells of the component
+     * @return {@code true} if all cells were visited, {@code false} if the visitor stopped the enumeration
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public boolean floodFill(int q, int r, HexVisitor visitor) {
+        int start = checkedIndex(q, r);
+        int label = labels[start];
+        int generation = nextGeneration();
+        queue.size = 0;
+        queue.add(start);
+        mark[start] = generation;
+        for (int head = 0; head < queue.size; head++) {
+            int index = queue.values[head];
+            int hq = shape.q(index);
+            int hr = shape.r(index);
+            if (!visitor.visit(hq, hr)) return false;
+            for (int d = 0; d < 6; d++) {
+                int neighbor = shape.neighbor(index, hq, hr, d);
+                if (neighbor < 0 || labels[neighbor] != label || mark[neighbor] == generation) continue;
+                mark[neighbor] = generation;
+                queue.add(neighbor);
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Sets the value of the cell in the grid and updates the labels of the components around it.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value the new value
+     * @throws IndexOutOfBoundsException when the hex is outside the grid.
+     */
+    public void set(int q, int r, int value) {
+        int index = checkedIndex(q, r);
+        int old = grid.getAt(index);
+        if (old == value) return;
+        grid.setAt(index, value);
+        split(index, q, r, old);
+        join(index, q, r, value);
+    }
+
+
+    // removes the cell from its component, relabeling the pieces the component may have been cut into
+    private void split(int index, int q, int r, int old) {
+        int label = labels[index];
+        if (--sizes[label] == 0) {
+            freeLabel(label);
+            return;
+        }
+        // neighbors in consecutive directions touch each other, so every run of old-valued neighbors around the cell
+        // stays connected; only separate runs may have been connected through the cell alone
+        int[] cells = grid.array();
+        int[] around = new int[6];
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            around[d] = neighbor >= 0 && cells[neighbor] == old ? neighbor : -1;
+        }
+        int start = 0;
+        while (start < 6 && around[start] >= 0) start++;
+        if (start == 6) return;
+        int groups = 0;
+        int generation = nextGeneration();
+        for (int i = 1; i <= 6; i++) {
+            int d = (start + i) % 6;
+            if (around[d] < 0 || around[(d + 5) % 6] >= 0) continue;
+            pieces[groups].size = 0;
+            pieces[groups].add(around[d]);
+            mark[around[d]] = generation;
+            owner[around[d]] = groups;
+            groups++;
+        }
+        if (groups <= 1) return;
+        // explore the pieces in turns; a piece that runs into another one is the same piece
+        int[] head = new int[groups];
+        int[] merged = {0, 1, 2};
+        boolean[] complete = new boolean[groups];
+        int active = groups;
+        while (active > 1) {
+            for (int g = 0; g < groups && active > 1; g++) {
+                if (merged[g] != g || complete[g]) continue;
+                IntList piece = pieces[g];
+                if (head[g] == piece.size) {
+                    complete[g] = true;
+                    active--;
+                    continue;
+                }
+                int cell = piece.values[head[g]++];
+                int cq = shape.q(cell);
+                int cr = shape.r(cell);
+                for (int d = 0; d < 6; d++) {
+                    int neighbor = shape.neighbor(cell, cq, cr, d);
+                    if (neighbor < 0 || cells[neighbor] != old) continue;
+                    if (mark[neighbor] != generation) {
+                        mark[neighbor] = generation;
+                        owner[neighbor] = g;
+                        piece.add(neighbor);
+                        continue;
+                    }
+                    int other = owner[neighbor];
+                    while (merged[other] != other) other = merged[other];
+                    if (other == g) continue;
+                    // the other piece is not complete, it would have reached this one
+                    merged[other] = g;
+                    for (int i = 0; i < pieces[other].size; i++) {
+                        piece.add(pieces[other].values[i]);
+                    }
+                    active--;
+                }
+            }
+        }
+        // the piece still being explored keeps the label, the complete ones get new labels
+        for (int g = 0; g < groups; g++) {
+            if (merged[g] != g || !complete[g]) continue;
+            int piece = newLabel();
+            IntList cellsOfPiece = pieces[g];
+            for (int i = 0; i < cellsOfPiece.size; i++) {
+                labels[cellsOfPiece.values[i]] = piece;
+            }
+            sizes[piece] = cellsOfPiece.size;
+            sizes[label] -= cellsOfPiece.size;
+        }
+    }
+
+
+    // adds the cell to the components of its new value around it, merging them into the largest one
+    private void join(int index, int q, int r, int value) {
+        int[] cells = grid.array();
+        int best = -1;
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            if (neighbor < 0 || cells[neighbor] != value) continue;
+            int label = labels[neighbor];
+            if (best < 0 || sizes[label] > sizes[best]) best = label;
+        }
+        if (best < 0) {
+            best = newLabel();
+        }
+        labels[index] = best;
+        sizes[best]++;
+        for (int d = 0; d < 6; d++) {
+            int neighbor = shape.neighbor(index, q, r, d);
+            if (neighbor < 0 || cells[neighbor] != value || labels[neighbor] == best) continue;
+            relabel(neighbor, labels[neighbor], best);
+        }
+    }
+
+
+    private void relabel(int start, int from, int to) {
+        sizes[to] += sizes[from];
+        freeLabel(from);
+        queue.size = 0;
+        queue.add(start);
+        labels[start] = to;
+        for (int head = 0; head < queue.size; head++) {
+            int index = queue.values[head];
+            int q = shape.q(index);
+            int r = shape.r(index);
+            for (int d = 0; d < 6; d++) {
+                int neighbor = shape.neighbor(index, q, r, d);
+                if (neighbor < 0 || labels[neighbor] != from) continue;
+                labels[neighbor] = to;
+                queue.add(neighbor);
+            }
+        }
+    }
+
+
+    /**
+     * Growable list of cell indexes.
+     */
+    static private final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pl.redbyte.Hex;
+
+public class HexLineCursor {
+
+    /**
+     * A reusable cursor over the hexes of a line, in the same order and with the same (nudged) results as
+     * {@code FractionalHex.hexLinedraw}, but without creating any objects: the samples are interpolated and rounded in
+     * primitive variables.
+     * <p>
+     * Usage:
+     * <pre>
+     * HexLineCursor line = new HexLineCursor();
+     * line.reset(start, end);
+     * while (line.next()) {
+     *     if (blocked(line.q(), line.r())) break;
+     * }
+     * </pre>
+     * A cursor is not thread safe, but it can be reset and reused for any number of lines.
+     */
+    private double startQ, startR, startS;
+    private double endQ, endR, endS;
+    private double step;
+    private int length;
+    private int index;
+    private int q;
+    private int r;
+
+
+    public HexLineCursor() {
+        reset(0, 0, 0, 0);
+    }
+
+
+    /**
+     * Starts a new line. The first call of {@code next()} moves the cursor to the start hex.
+     *
+     * @param startQ Axial coordinate of the start hex
+     * @param startR Axial coordinate of the start hex
+     * @param endQ   Axial coordinate of the end hex
+     * @param endR   Axial coordinate of the end hex
+     * @return this cursor
+     */
+    public HexLineCursor reset(int startQ, int startR, int endQ, int endR) {
+        int dq = startQ - endQ;
+        int dr = startR - endR;
+        length = (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+        this.startQ = startQ + 1e-06;
+        this.startR = startR + 1e-06;
+        this.startS = (-startQ - startR) - 2e-06;
+        this.endQ = endQ + 1e-06;
+        this.endR = endR + 1e-06;
+        this.endS = (-endQ - endR) - 2e-06;
+        step = 1.0 / Math.max(length, 1);
+        index = -1;
+        return this;
+    }
+
+
+    /**
+     * Starts a new line. The first call of {@code next()} moves the cursor to the start hex.
+     *
+     * @param startHex start hex
+     * @param endHex   end hex
+     * @return this cursor
+     */
+    public HexLineCursor reset(Hex startHex, Hex endHex) {
+        return reset(startHex.q, startHex.r, endHex.q, endHex.r);
+    }
+
+
+    /**
+     * Moves the cursor to the next hex of the line.
+     *
+     * @return {@code true} if the cursor moved, {@code false} if the line has ended
+     */
+    public boolean next() {
+        if (index >= length) return false;
+        index++;
+        double lineFraction = step * index;
+        double remaining = 1.0 - lineFraction;
+        long key = FractionalHex.hexRound(startQ * remaining + endQ * lineFraction, startR * remaining + endR * lineFraction,
+                startS * remaining + endS * lineFraction);
+        q = HexKey.q(key);
+        r = HexKey.r(key);
+        return true;
+    }
+
+
+    /**
+     * Returns the q coordinate of the current hex.
+     *
+     * @return q coordinate
+     */
+    public int q() {
+        return q;
+    }
+
+
+    /**
+     * Returns the r coordinate of the current hex.
+     *
+     * @return r coordinate
+     */
+    public int r() {
+        return r;
+    }
+
+
+    /**
+     * Returns the s coordinate of the current hex.
+     *
+     * @return s coordinate
+     */
+    public int s() {
+        return -q - r;
+    }
+
+
+    /**
+     * Returns the position of the current hex in the line: 0 for the start hex, {@code length()} for the end hex.
+     *
+     * @return position of the current hex
+     */
+    public int index() {
+        return index;
+    }
+
+
+    /**
+     * Returns the hex distance between the ends of the line. The line has {@code length() + 1} hexes.
+     *
+     * @return length of the line
+     */
+    public int length() {
+        return length;
+    }
+}
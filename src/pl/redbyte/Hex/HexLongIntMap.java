@@ -0,0 +1,186 @@
+package pl.redbyte.Hex;
+
+public class HexLongIntMap extends HexLongTable {
+
+    /**
+     * A map from hexes to {@code int} values. Hexes are stored as packed {@code long} keys (see {@code HexKey}) and
+     * values in a parallel {@code int[]}, so nothing is boxed or allocated on insert, lookup or iteration.
+     * <p>
+     * Missing hexes are reported with {@code missingValue}, which is -1 unless given in the constructor.
+     */
+    private int[] values;
+    private final int missingValue;
+
+
+    public HexLongIntMap() {
+        this(16, -1);
+    }
+
+
+    /**
+     * Map constructor.
+     *
+     * @param expectedSize number of entries the map should hold without growing
+     * @param missingValue value returned for hexes that are not in the map
+     * @return {@code HexLongIntMap} object
+     * @throws IllegalArgumentException when expectedSize is negative.
+     */
+    public HexLongIntMap(int expectedSize, int missingValue) {
+        super(expectedSize);
+        this.missingValue = missingValue;
+        values = new int[keys.length];
+    }
+
+
+    @Override
+    void relocate(int[] newSlot, int newLength) {
+        int[] newValues = new int[newLength];
+        for (int i = 0; i < newSlot.length; i++) {
+            if (newSlot[i] >= 0) newValues[newSlot[i]] = values[i];
+        }
+        values = newValues;
+    }
+
+
+    @Override
+    void move(int from, int to) {
+        values[to] = values[from];
+    }
+
+
+    @Override
+    void clearSlot(int slot) {
+        values[slot] = 0;
+    }
+
+
+    /**
+     * Returns the value returned for hexes that are not in the map.
+     *
+     * @return missing value
+     */
+    public int missingValue() {
+        return missingValue;
+    }
+
+
+    /**
+     * Returns the value mapped to the packed hex, or {@code missingValue} if there is no mapping.
+     *
+     * @param key packed key
+     * @return mapped value
+     */
+    public int get(long key) {
+        int slot = slotOf(key);
+        return slot < 0 ? missingValue : values[slot];
+    }
+
+
+    /**
+     * Returns the value mapped to the hex, or {@code missingValue} if there is no mapping.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return mapped value
+     */
+    public int get(int q, int r) {
+        return get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns {@code true} if the map contains a mapping for the packed hex.
+     *
+     * @param key packed key
+     * @return {@code true} if the map contains the hex
+     */
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+
+    /**
+     * Maps the packed hex to the value.
+     *
+     * @param key   packed key
+     * @param value the value
+     * @return previous value, or {@code missingValue} if there was no mapping
+     */
+    public int put(long key, int value) {
+        int slot = insert(key);
+        if (slot < 0) {
+            values[~slot] = value;
+            return missingValue;
+        }
+        int previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+
+    /**
+     * Maps the hex to the value.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value the value
+     * @return previous value, or {@code missingValue} if there was no mapping
+     */
+    public int put(int q, int r, int value) {
+        return put(HexKey.pack(q, r), value);
+    }
+
+
+    /**
+     * Adds the increment to the value of the packed hex. Hexes that are not in the map start from 0.
+     *
+     * @param key       packed key
+     * @param increment value added to the mapping
+     * @return the new value
+     */
+    public int addTo(long key, int increment) {
+        int slot = insert(key);
+        if (slot < 0) {
+            values[~slot] = increment;
+            return increment;
+        }
+        return values[slot] += increment;
+    }
+
+
+    /**
+     * Removes the mapping of the packed hex.
+     *
+     * @param key packed key
+     * @return removed value, or {@code missingValue} if there was no mapping
+     */
+    public int remove(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) return missingValue;
+        int previous = values[slot];
+        removeSlot(slot);
+        return previous;
+    }
+
+
+    /**
+     * Returns the value stored in the occupied slot (see {@code firstSlot} and {@code nextSlot}).
+     *
+     * @param slot occupied slot
+     * @return value stored in the slot
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+
+    /**
+     * Replaces the value stored in the occupied slot.
+     *
+     * @param slot  occupied slot
+     * @param value the new value
+     */
+    public void setValueAt(int slot, int value) {
+        values[slot] = value;
+    }
+}
@@ -0,0 +1,203 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexLongMap<V> extends HexLongTable {
+
+    /**
+     * A map from hexes to objects. Hexes are stored as packed {@code long} keys (see {@code HexKey}) in an open
+     * addressing table, so inserting, looking up and iterating entries does not create any {@code Hex} objects, and it
+     * does not depend on {@code Hex.equals}.
+     */
+    private Object[] values;
+
+
+    public HexLongMap() {
+        this(16);
+    }
+
+
+    /**
+     * Map constructor.
+     *
+     * @param expectedSize number of entries the map should hold without growing
+     * @return {@code HexLongMap} object
+     * @throws IllegalArgumentException when expectedSize is negative.
+     */
+    public HexLongMap(int expectedSize) {
+        super(expectedSize);
+        values = new Object[keys.length];
+    }
+
+
+    @Override
+    void relocate(int[] newSlot, int newLength) {
+        Object[] newValues = new Object[newLength];
+        for (int i = 0; i < newSlot.length; i++) {
+            if (newSlot[i] >= 0) newValues[newSlot[i]] = values[i];
+        }
+        values = newValues;
+    }
+
+
+    @Override
+    void move(int from, int to) {
+        values[to] = values[from];
+    }
+
+
+    @Override
+    void clearSlot(int slot) {
+        values[slot] = null;
+    }
+
+
+    /**
+     * Returns the value mapped to the packed hex, or {@code null} if there is no mapping.
+     *
+     * @param key packed key
+     * @return mapped value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+
+    /**
+     * Marker returned by {@code getOptimistic} when it saw the table in the middle of a change.
+     */
+    static final Object TORN = new Object();
+
+
+    /**
+     * Lookup for readers that hold no lock while a writer may be changing the map (see {@code ConcurrentHexMap}).
+     * The arrays are read once and the mask is derived from the keys array itself, so the indexes stay in bounds,
+     * and the probe gives up after one pass over the table instead of spinning on a table without empty slots. The
+     * result may still be stale and must be validated by the caller.
+     *
+     * @param key packed key
+     * @return mapped value, {@code null}, or {@code TORN} when the arrays didn't match
+     */
+    Object getOptimistic(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        if (keys.length != values.length) return TORN;
+        int slots = keys.length - 1;
+        if (key == 0) return containsZero ? values[slots] : null;
+        int pos = HexKey.hash(key) & (slots - 1);
+        for (int probes = 0; probes < slots; probes++) {
+            long k = keys[pos];
+            if (k == 0) return null;
+            if (k == key) return values[pos];
+            pos = (pos + 1) & (slots - 1);
+        }
+        return TORN;
+    }
+
+
+    /**
+     * Returns the value mapped to the hex, or {@code null} if there is no mapping.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return mapped value, or {@code null}
+     */
+    public V get(int q, int r) {
+        return get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns {@code true} if the map contains a mapping for the packed hex.
+     *
+     * @param key packed key
+     * @return {@code true} if the map contains the hex
+     */
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+
+    /**
+     * Maps the packed hex to the value.
+     *
+     * @param key   packed key
+     * @param value the value
+     * @return previous value, or {@code null} if there was no mapping
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = insert(key);
+        if (slot < 0) {
+            values[~slot] = value;
+            return null;
+        }
+        V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+
+    /**
+     * Maps the hex to the value.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value the value
+     * @return previous value, or {@code null} if there was no mapping
+     */
+    public V put(int q, int r, V value) {
+        return put(HexKey.pack(q, r), value);
+    }
+
+
+    /**
+     * Removes the mapping of the packed hex.
+     *
+     * @param key packed key
+     * @return removed value, or {@code null} if there was no mapping
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) return null;
+        V previous = (V) values[slot];
+        removeSlot(slot);
+        return previous;
+    }
+
+
+    /**
+     * Returns the value stored in the occupied slot (see {@code firstSlot} and {@code nextSlot}).
+     *
+     * @param slot occupied slot
+     * @return value stored in the slot
+     */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+
+    /**
+     * Replaces the value stored in the occupied slot.
+     *
+     * @param slot  occupied slot
+     * @param value the new value
+     */
+    public void setValueAt(int slot, V value) {
+        values[slot] = value;
+    }
+
+
+    /**
+     * Removes all mappings, keeping the allocated table.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(values, null);
+    }
+}
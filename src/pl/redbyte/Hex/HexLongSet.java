@@ -0,0 +1,111 @@
+package pl.redbyte.Hex;
+
+public class HexLongSet extends HexLongTable {
+
+    /**
+     * A set of hexes stored as packed {@code long} keys (see {@code HexKey}). Adding, checking and iterating hexes
+     * does not create any {@code Hex} objects.
+     */
+    public HexLongSet() {
+        this(16);
+    }
+
+
+    /**
+     * Set constructor.
+     *
+     * @param expectedSize number of hexes the set should hold without growing
+     * @return {@code HexLongSet} object
+     * @throws IllegalArgumentException when expectedSize is negative.
+     */
+    public HexLongSet(int expectedSize) {
+        super(expectedSize);
+    }
+
+
+    @Override
+    void relocate(int[] newSlot, int newLength) {
+    }
+
+
+    @Override
+    void move(int from, int to) {
+    }
+
+
+    @Override
+    void clearSlot(int slot) {
+    }
+
+
+    /**
+     * Adds the packed hex to the set.
+     *
+     * @param key packed key
+     * @return {@code true} if the set did not already contain the hex
+     */
+    public boolean add(long key) {
+        return insert(key) < 0;
+    }
+
+
+    /**
+     * Adds the hex to the set.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the set did not already contain the hex
+     */
+    public boolean add(int q, int r) {
+        return add(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns {@code true} if the set contains the packed hex.
+     *
+     * @param key packed key
+     * @return {@code true} if the set contains the hex
+     */
+    public boolean contains(long key) {
+        return slotOf(key) >= 0;
+    }
+
+
+    /**
+     * Returns {@code true} if the set contains the hex.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the set contains the hex
+     */
+    public boolean contains(int q, int r) {
+        return contains(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Removes the packed hex from the set.
+     *
+     * @param key packed key
+     * @return {@code true} if the set contained the hex
+     */
+    public boolean remove(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+
+    /**
+     * Removes the hex from the set.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the set contained the hex
+     */
+    public boolean remove(int q, int r) {
+        return remove(HexKey.pack(q, r));
+    }
+}
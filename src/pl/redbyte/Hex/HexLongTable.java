@@ -0,0 +1,244 @@
+package pl.redbyte.Hex;
+
+/**
+ * Common part of the primitive hex collections ({@code HexLongSet}, {@code HexLongMap}, {@code HexLongIntMap}).
+ * <p>
+ * Keys are packed by {@code HexKey} and kept in a single {@code long[]} open addressing table with linear probing. The
+ * key {@code 0} (the packed {@code Hex(0, 0, 0)}) marks an empty slot, so the origin hex is kept in an extra slot at
+ * the end of the table. Removal shifts the following entries back instead of leaving tombstones, so lookups never
+ * have to skip deleted slots.
+ * <p>
+ * Slots are also used as cursors for iteration: {@code firstSlot()} and {@code nextSlot(slot)} walk over the occupied
+ * slots, so iterating a collection does not allocate anything.
+ */
+abstract class HexLongTable {
+
+    static final float LOAD_FACTOR = 0.75f;
+
+    long[] keys;
+    int mask;
+    int size;
+    int maxFill;
+    boolean containsZero;
+
+
+    HexLongTable(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("expected size must not be negative");
+        int n = tableSize(expectedSize);
+        keys = new long[n + 1];
+        mask = n - 1;
+        maxFill = (int) (n * LOAD_FACTOR);
+    }
+
+
+    static int tableSize(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR);
+        long n = 16;
+        while (n < needed) n <<= 1;
+        if (n > (1 << 30)) throw new IllegalArgumentException("too many elements: " + expectedSize);
+        return (int) n;
+    }
+
+
+    /**
+     * Called after the keys were rehashed into a table of {@code newLength} slots. {@code newSlot[i]} is the new slot
+     * of the key that was in slot {@code i}, or -1 when slot {@code i} was empty.
+     */
+    abstract void relocate(int[] newSlot, int newLength);
+
+
+    /**
+     * Called when removal shifts an entry back from slot {@code from} to slot {@code to}.
+     */
+    abstract void move(int from, int to);
+
+
+    /**
+     * Called when slot becomes empty.
+     */
+    abstract void clearSlot(int slot);
+
+
+    /**
+     * Returns the number of elements in the collection.
+     *
+     * @return number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns {@code true} if the collection contains no elements.
+     *
+     * @return {@code true} when the collection is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    /**
+     * Returns the slot of the key, or -1 if the key is not in the table.
+     *
+     * @param key packed key
+     * @return slot of the key, or -1
+     */
+    int slotOf(long key) {
+        if (key == 0) return containsZero ? mask + 1 : -1;
+        long[] keys = this.keys;
+        int pos = HexKey.hash(key) & mask;
+        long k;
+        while ((k = keys[pos]) != 0) {
+            if (k == key) return pos;
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Finds or inserts the key. Returns the slot of the key when it was already in the table, or {@code ~slot} (a
+     * negative value) when the key has just been inserted into {@code slot}.
+     *
+     * @param key packed key
+     * @return slot of an existing key, or {@code ~slot} of an inserted one
+     */
+    int insert(long key) {
+        if (key == 0) {
+            if (containsZero) return mask + 1;
+            containsZero = true;
+            size++;
+            return ~(mask + 1);
+        }
+        int pos = HexKey.hash(key) & mask;
+        long k;
+        while ((k = keys[pos]) != 0) {
+            if (k == key) return pos;
+            pos = (pos + 1) & mask;
+        }
+        if (size >= maxFill) {
+            rehash((mask + 1) << 1);
+            pos = HexKey.hash(key) & mask;
+            while (keys[pos] != 0) pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        size++;
+        return ~pos;
+    }
+
+
+    /**
+     * Removes the key stored in the slot and shifts back the entries that follow it.
+     *
+     * @param slot occupied slot
+     */
+    void removeSlot(int slot) {
+        size--;
+        if (slot == mask + 1) {
+            containsZero = false;
+            clearSlot(slot);
+            return;
+        }
+        long[] keys = this.keys;
+        int last = slot;
+        int pos = slot;
+        while (true) {
+            pos = (pos + 1) & mask;
+            long k = keys[pos];
+            if (k == 0) break;
+            int home = HexKey.hash(k) & mask;
+            // the entry may move back only if its home slot is not between the hole and its current position
+            if (last <= pos ? (last >= home || home > pos) : (last >= home && home > pos)) {
+                keys[last] = k;
+                move(pos, last);
+                last = pos;
+            }
+        }
+        keys[last] = 0;
+        clearSlot(last);
+    }
+
+
+    private void rehash(int newLength) {
+        long[] oldKeys = keys;
+        int oldLength = mask + 1;
+        long[] newKeys = new long[newLength + 1];
+        int newMask = newLength - 1;
+        int[] newSlot = new int[oldLength + 1];
+        for (int i = 0; i < oldLength; i++) {
+            long k = oldKeys[i];
+            if (k == 0) {
+                newSlot[i] = -1;
+                continue;
+            }
+            int pos = HexKey.hash(k) & newMask;
+            while (newKeys[pos] != 0) pos = (pos + 1) & newMask;
+            newKeys[pos] = k;
+            newSlot[i] = pos;
+        }
+        newSlot[oldLength] = containsZero ? newLength : -1;
+        keys = newKeys;
+        mask = newMask;
+        maxFill = (int) (newLength * LOAD_FACTOR);
+        relocate(newSlot, newLength + 1);
+    }
+
+
+    /**
+     * Removes all elements, keeping the allocated table.
+     */
+    public void clear() {
+        if (size == 0) return;
+        java.util.Arrays.fill(keys, 0L);
+        for (int i = 0; i <= mask + 1; i++) clearSlot(i);
+        size = 0;
+        containsZero = false;
+    }
+
+
+    /**
+     * Returns the first occupied slot, or -1 when the collection is empty. Together with {@code nextSlot} it lets to
+     * iterate over the collection without allocation:
+     * <pre>
+     * for (int slot = set.firstSlot(); slot &gt;= 0; slot = set.nextSlot(slot)) {
+     *     long key = set.keyAt(slot);
+     * }
+     * </pre>
+     *
+     * @return first occupied slot, or -1
+     */
+    public int firstSlot() {
+        return nextSlot(-1);
+    }
+
+
+    /**
+     * Returns the next occupied slot after the given one, or -1 when there are no more elements. The collection must
+     * not be modified during the iteration.
+     *
+     * @param slot current slot
+     * @return next occupied slot, or -1
+     */
+    public int nextSlot(int slot) {
+        long[] keys = this.keys;
+        int n = mask + 1;
+        for (int i = slot + 1; i < n; i++) {
+            if (keys[i] != 0) return i;
+        }
+        if (slot < n && containsZero) return n;
+        return -1;
+    }
+
+
+    /**
+     * Returns the packed key stored in the occupied slot.
+     *
+     * @param slot occupied slot
+     * @return packed key
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+}
@@ -0,0 +1,169 @@
+package pl.redbyte.Hex;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+public class HexMesh {
+
+    /**
+     * Render mesh built by {@code HexMeshBuilder}: interleaved {@code x, y, z} vertices shared between neighboring
+     * hexes, and 12 indices (4 triangles) per hex.
+     * <p>
+     * When the heights of some hexes change, {@code update} rewrites the z coordinates of the 6 vertices of each
+     * changed hex in place, so only those parts of the vertex buffer have to be uploaded again; the positions of the
+     * vertices and the index buffer never change.
+     */
+    private final HexMeshBuilder builder;
+    private final HexLongIntMap hexes;
+    private final int hexCount;
+    private final int[] hexVertex;
+    private final FloatBuffer vertices;
+    private final IntBuffer indices;
+    private final int vertexCount;
+    private final HexHeightFunction height;
+
+
+    HexMesh(HexMeshBuilder builder, HexLongIntMap hexes, int hexCount, int[] hexVertex, FloatBuffer vertices, IntBuffer indices, int vertexCount, HexHeightFunction height) {
+        this.builder = builder;
+        this.hexes = hexes;
+        this.hexCount = hexCount;
+        this.hexVertex = hexVertex;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.vertexCount = vertexCount;
+        this.height = height;
+    }
+
+
+    /**
+     * Average height of the hexes of the mesh that share the corner of the hex.
+     */
+    float cornerHeight(int q, int r, int corner) {
+        if (height == null) return 0.0f;
+        float sum = height.height(q, r);
+        int count = 1;
+        int a = builder.sharedA[corner];
+        int b = builder.sharedB[corner];
+        int aq = q + Hex.directionQ[a];
+        int ar = r + Hex.directionR[a];
+        if (hexes.containsKey(HexKey.pack(aq, ar))) {
+            sum += height.height(aq, ar);
+            count++;
+        }
+        int bq = q + Hex.directionQ[b];
+        int br = r + Hex.directionR[b];
+        if (hexes.containsKey(HexKey.pack(bq, br))) {
+            sum += height.height(bq, br);
+            count++;
+        }
+        return sum / count;
+    }
+
+
+    /**
+     * Returns the vertex buffer: {@code x, y, z} floats per vertex, in the native byte order. The buffer must not be
+     * modified.
+     *
+     * @return vertex buffer
+     */
+    public FloatBuffer vertices() {
+        return vertices;
+    }
+
+
+    /**
+     * Returns the index buffer: 12 vertex numbers per hex, the triangles of the hex in the order in which the hexes
+     * were added. The buffer must not be modified.
+     *
+     * @return index buffer
+     */
+    public IntBuffer indices() {
+        return indices;
+    }
+
+
+    /**
+     * Returns the number of distinct vertices.
+     *
+     * @return number of vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+
+    /**
+     * Returns the number of hexes of the mesh.
+     *
+     * @return number of hexes
+     */
+    public int hexCount() {
+        return hexCount;
+    }
+
+
+    /**
+     * Returns the position of the hex in the mesh: its triangles are the indices from {@code 12 * position}.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return position of the hex, or -1 if the hex is not in the mesh
+     */
+    public int position(int q, int r) {
+        return hexes.get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns the vertex at the corner of the hex.
+     *
+     * @param position position of the hex in the mesh
+     * @param corner   corner index [0..5], as in {@code Layout.hexCornerOffset}
+     * @return vertex number
+     */
+    public int vertex(int position, int corner) {
+        if (position < 0 || position >= hexCount) throw new IndexOutOfBoundsException("position " + position + " is outside of the mesh");
+        if (corner < 0 || corner > 5) throw new IllegalArgumentException("corner must be in [0..5]");
+        return hexVertex[6 * position + corner];
+    }
+
+
+    /**
+     * Recomputes the heights of the vertices of the hex, after its height has changed. The vertices are shared with
+     * the neighbors, so their triangles follow the change too.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is in the mesh
+     */
+    public boolean update(int q, int r) {
+        int position = hexes.get(HexKey.pack(q, r));
+        if (position < 0) return false;
+        for (int c = 0; c < 6; c++) {
+            int vertex = hexVertex[6 * position + c];
+            vertices.put(vertex * HexMeshBuilder.FLOATS_PER_VERTEX + 2, cornerHeight(q, r, c));
+        }
+        return true;
+    }
+
+
+    /**
+     * Recomputes the heights of the vertices of the hexes.
+     *
+     * @param q      q coordinates of the changed hexes
+     * @param r      r coordinates of the changed hexes
+     * @param offset index of the first hex in the arrays
+     * @param length number of hexes
+     * @return number of hexes of the mesh that were updated
+     */
+    public int update(int[] q, int[] r, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, q.length);
+        Objects.checkFromIndexSize(offset, length, r.length);
+        int updated = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (update(q[i], r[i])) updated++;
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,165 @@
+package pl.redbyte.Hex;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+public class HexMeshBuilder {
+
+    /**
+     * Builds render meshes of many hexes at once, with the corners shared by neighboring hexes stored only once.
+     * <p>
+     * The six corner offsets of the layout are computed once, in the constructor, instead of calling {@code Math.cos}
+     * and {@code Math.sin} for every corner of every hex like {@code polygonCorners} does. A corner is identified by
+     * its cube coordinates multiplied by 3, which are integers (every corner is 2/3 of a step from the center of the
+     * hex), so the same corner reached from different hexes has the same packed key, and a {@code HexLongIntMap} from
+     * those keys to vertex numbers removes the duplicates. An inner hex adds 2 vertices instead of 6.
+     * <p>
+     * Vertices are interleaved {@code x, y, z} floats in a direct {@code FloatBuffer}, and every hex is a fan of 4
+     * triangles (12 indices) in a direct {@code IntBuffer}, ready to be uploaded to the GPU. The z coordinate of a
+     * vertex is the average height of the hexes of the mesh that share it.
+     */
+    static final int FLOATS_PER_VERTEX = 3;
+    static final int INDICES_PER_HEX = 12;
+
+    public final Layout layout;
+    final float[] cornerX = new float[6];
+    final float[] cornerY = new float[6];
+    final int[] cornerQ = new int[6];
+    final int[] cornerR = new int[6];
+    // the two directions of the neighbors that share the corner
+    final int[] sharedA = new int[6];
+    final int[] sharedB = new int[6];
+
+
+    /**
+     * Mesh builder constructor.
+     *
+     * @param layout layout of the mesh
+     * @return {@code HexMeshBuilder} object
+     */
+    public HexMeshBuilder(Layout layout) {
+        this.layout = layout;
+        Orientation M = layout.orientation;
+        for (int i = 0; i < 6; i++) {
+            Point offset = layout.hexCornerOffset(i);
+            cornerX[i] = (float) offset.x;
+            cornerY[i] = (float) offset.y;
+            double x = offset.x / layout.size.x;
+            double y = offset.y / layout.size.y;
+            cornerQ[i] = (int) Math.round(3.0 * (M.b0 * x + M.b1 * y));
+            cornerR[i] = (int) Math.round(3.0 * (M.b2 * x + M.b3 * y));
+        }
+        for (int i = 0; i < 6; i++) {
+            int found = 0;
+            for (int d = 0; d < 6; d++) {
+                // the neighbor in direction d shares the corner when the corner is also one of its corners
+                int q = cornerQ[i] - 3 * Hex.directionQ[d];
+                int r = cornerR[i] - 3 * Hex.directionR[d];
+                for (int j = 0; j < 6; j++) {
+                    if (cornerQ[j] == q && cornerR[j] == r) {
+                        if (found++ == 0) sharedA[i] = d;
+                        else sharedB[i] = d;
+                    }
+                }
+            }
+        }
+    }
+
+
+    long cornerKey(int q, int r, int corner) {
+        return HexKey.pack(3 * q + cornerQ[corner], 3 * r + cornerR[corner]);
+    }
+
+
+    /**
+     * Builds the mesh of all hexes of the shape.
+     *
+     * @param shape  the hexes of the mesh, for example the whole map or the visible part of it
+     * @param height heights of the hexes, or {@code null} for a flat mesh
+     * @return the mesh
+     */
+    public HexMesh build(HexShape shape, HexHeightFunction height) {
+        int size = shape.size();
+        int[] q = new int[size];
+        int[] r = new int[size];
+        for (int i = 0; i < size; i++) {
+            q[i] = shape.q(i);
+            r[i] = shape.r(i);
+        }
+        return build(q, r, 0, size, height);
+    }
+
+
+    /**
+     * Builds the mesh of the given hexes. Hexes that are given more than once are added once.
+     *
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param offset index of the first hex in the arrays
+     * @param length number of hexes
+     * @param height heights of the hexes, or {@code null} for a flat mesh
+     * @return the mesh
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    public HexMesh build(int[] q, int[] r, int offset, int length, HexHeightFunction height) {
+        Objects.checkFromIndexSize(offset, length, q.length);
+        Objects.checkFromIndexSize(offset, length, r.length);
+        HexLongIntMap hexes = new HexLongIntMap(length, -1);
+        int[] hexQ = new int[length];
+        int[] hexR = new int[length];
+        int hexCount = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int slot = hexes.insert(HexKey.pack(q[i], r[i]));
+            if (slot >= 0) continue;
+            hexes.setValueAt(~slot, hexCount);
+            hexQ[hexCount] = q[i];
+            hexR[hexCount] = r[i];
+            hexCount++;
+        }
+        // first pass: number the distinct corners, remembering the hex and the corner that created each of them
+        HexLongIntMap corners = new HexLongIntMap(2 * hexCount + 16, -1);
+        int[] hexVertex = new int[6 * hexCount];
+        int[] owner = new int[2 * hexCount + 16];
+        int vertexCount = 0;
+        for (int h = 0; h < hexCount; h++) {
+            for (int c = 0; c < 6; c++) {
+                int slot = corners.insert(cornerKey(hexQ[h], hexR[h], c));
+                if (slot >= 0) {
+                    hexVertex[6 * h + c] = corners.valueAt(slot);
+                    continue;
+                }
+                if (vertexCount == owner.length) owner = Arrays.copyOf(owner, vertexCount << 1);
+                owner[vertexCount] = 6 * h + c;
+                corners.setValueAt(~slot, vertexCount);
+                hexVertex[6 * h + c] = vertexCount++;
+            }
+        }
+        // second pass: write the buffers, now that their sizes are known
+        FloatBuffer vertices = ByteBuffer.allocateDirect(vertexCount * FLOATS_PER_VERTEX * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        IntBuffer indices = ByteBuffer.allocateDirect(hexCount * INDICES_PER_HEX * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        HexMesh mesh = new HexMesh(this, hexes, hexCount, hexVertex, vertices, indices, vertexCount, height);
+        for (int v = 0; v < vertexCount; v++) {
+            int h = owner[v] / 6;
+            int c = owner[v] % 6;
+            double centerX = layout.orientation.f0 * hexQ[h] + layout.orientation.f1 * hexR[h];
+            double centerY = layout.orientation.f2 * hexQ[h] + layout.orientation.f3 * hexR[h];
+            vertices.put(v * FLOATS_PER_VERTEX, (float) (centerX * layout.size.x + layout.origin.x) + cornerX[c]);
+            vertices.put(v * FLOATS_PER_VERTEX + 1, (float) (centerY * layout.size.y + layout.origin.y) + cornerY[c]);
+            vertices.put(v * FLOATS_PER_VERTEX + 2, mesh.cornerHeight(hexQ[h], hexR[h], c));
+        }
+        for (int h = 0; h < hexCount; h++) {
+            int first = hexVertex[6 * h];
+            for (int t = 1; t < 5; t++) {
+                indices.put(first);
+                indices.put(hexVertex[6 * h + t]);
+                indices.put(hexVertex[6 * h + t + 1]);
+            }
+        }
+        indices.flip();
+        return mesh;
+    }
+}
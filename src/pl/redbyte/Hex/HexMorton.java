@@ -0,0 +1,162 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public class HexMorton {
+
+    /**
+     * Morton (Z-order) curve over axial coordinates: the bits of q and r are interleaved into one {@code long}, so
+     * hexes that are close on the map are mostly close on the curve. Laying cells out in curve order keeps a range or
+     * a neighborhood in a few cache lines and pages instead of one run per row.
+     * <p>
+     * The curve is taken over axial (q, r) rather than offset coordinates: the six neighbors of a hex are within the
+     * 3 by 3 block of axial coordinates around it, without the alternating shift of the offset rows, so every
+     * neighborhood is a compact block of the curve. The coordinates are biased by 2^31 before interleaving, so the
+     * curve order of codes compared as unsigned numbers ({@code Long.compareUnsigned}) is the Z-order over the whole
+     * {@code int} range. Encoding and decoding are a few shifts and masks, with no tables and no branches.
+     */
+    static private final int BIAS = 0x80000000;
+    static private final long EVEN_BITS = 0x5555555555555555L;
+    static private final long ODD_BITS = 0xAAAAAAAAAAAAAAAAL;
+
+
+    private HexMorton() {
+    }
+
+
+    // spreads the 32 bits of x to the even bits of a long
+    static private long spread(int x) {
+        long v = x & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+
+    // gathers the even bits of v
+    static private int compact(long v) {
+        v &= 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) v;
+    }
+
+
+    /**
+     * Interleaves two non-negative coordinates, e.g. the position of a hex inside a chunk: for x and y below
+     * {@code 2^k} the result is below {@code 4^k}, so it can be used as an index into a block of {@code 4^k} cells.
+     *
+     * @param x coordinate stored in the even bits
+     * @param y coordinate stored in the odd bits
+     * @return interleaved bits
+     */
+    static public long interleave(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+
+    /**
+     * Returns the curve code of the hex.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return curve code, ordered as an unsigned number
+     */
+    static public long encode(int q, int r) {
+        return interleave(q ^ BIAS, r ^ BIAS);
+    }
+
+
+    /**
+     * Returns the q coordinate of the hex with the curve code.
+     *
+     * @param code curve code
+     * @return q coordinate
+     */
+    static public int decodeQ(long code) {
+        return compact(code) ^ BIAS;
+    }
+
+
+    /**
+     * Returns the r coordinate of the hex with the curve code.
+     *
+     * @param code curve code
+     * @return r coordinate
+     */
+    static public int decodeR(long code) {
+        return compact(code >>> 1) ^ BIAS;
+    }
+
+
+    /**
+     * Moves along the curve without decoding: returns the code of the hex {@code Hex(q + dq, r + dr)} from the code of
+     * {@code Hex(q, r)} and {@code interleave(dq, dr)}, which can be computed once for a fixed offset (a direction, or
+     * the cells of a range). Each coordinate is added in its own bits: the bits of the other coordinate are set to 1 so
+     * the carries run through them.
+     *
+     * @param code  curve code of the hex
+     * @param delta {@code interleave(dq, dr)}, the offset (negative offsets included)
+     * @return curve code of the moved hex
+     */
+    static public long add(long code, long delta) {
+        long even = ((code | ODD_BITS) + (delta & EVEN_BITS)) & EVEN_BITS;
+        long odd = ((code | EVEN_BITS) + (delta & ODD_BITS)) & ODD_BITS;
+        return even | odd;
+    }
+
+
+    /**
+     * Returns the curve codes of a batch of hexes.
+     *
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param codes  receives the curve codes
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void encode(int[] q, int[] r, long[] codes, int start, int length) {
+        Objects.checkFromIndexSize(start, length, q.length);
+        Objects.checkFromIndexSize(start, length, r.length);
+        Objects.checkFromIndexSize(start, length, codes.length);
+        for (int i = start; i < start + length; i++) {
+            codes[i] = encode(q[i], r[i]);
+        }
+    }
+
+
+    /**
+     * Sorts a batch of hexes into curve order, e.g. before building a mesh or running queries for them, so that
+     * consecutive hexes touch the same memory.
+     *
+     * @param q      q coordinates of the hexes, sorted in place
+     * @param r      r coordinates of the hexes, sorted in place
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void sort(int[] q, int[] r, int start, int length) {
+        Objects.checkFromIndexSize(start, length, q.length);
+        Objects.checkFromIndexSize(start, length, r.length);
+        long[] codes = new long[length];
+        for (int i = 0; i < length; i++) {
+            // flipping the top bit makes the signed order of the codes their unsigned order
+            codes[i] = encode(q[start + i], r[start + i]) ^ Long.MIN_VALUE;
+        }
+        // a code holds the whole hex, so sorting the codes sorts the hexes
+        Arrays.sort(codes);
+        for (int i = 0; i < length; i++) {
+            long code = codes[i] ^ Long.MIN_VALUE;
+            q[start + i] = decodeQ(code);
+            r[start + i] = decodeR(code);
+        }
+    }
+}
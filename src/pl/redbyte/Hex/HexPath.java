@@ -0,0 +1,106 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class HexPath {
+
+    /**
+     * A path found by {@code HexPathfinder}: the hexes from the start to the goal (both included) and the total cost.
+     * The hexes are kept in primitive arrays, and a path object can be passed to the pathfinder again and again, so
+     * finding paths doesn't allocate once the arrays are large enough.
+     */
+    private int[] q = new int[64];
+    private int[] r = new int[64];
+    private int length;
+    private int cost;
+
+
+    void clear() {
+        length = 0;
+        cost = 0;
+    }
+
+
+    void ensureCapacity(int capacity) {
+        if (capacity > q.length) {
+            int newCapacity = Math.max(capacity, q.length << 1);
+            q = Arrays.copyOf(q, newCapacity);
+            r = Arrays.copyOf(r, newCapacity);
+        }
+    }
+
+
+    void set(int position, int hexQ, int hexR) {
+        q[position] = hexQ;
+        r[position] = hexR;
+    }
+
+
+    void finish(int length, int cost) {
+        this.length = length;
+        this.cost = cost;
+    }
+
+
+    /**
+     * Returns the number of hexes of the path, including the start and the goal. An empty path has length 0.
+     *
+     * @return number of hexes
+     */
+    public int length() {
+        return length;
+    }
+
+
+    /**
+     * Returns the total cost of the path.
+     *
+     * @return sum of the step costs
+     */
+    public int cost() {
+        return cost;
+    }
+
+
+    /**
+     * Returns the q coordinate of the hex at the position.
+     *
+     * @param position position in [0..length())
+     * @return q coordinate
+     */
+    public int q(int position) {
+        return q[checkPosition(position)];
+    }
+
+
+    /**
+     * Returns the r coordinate of the hex at the position.
+     *
+     * @param position position in [0..length())
+     * @return r coordinate
+     */
+    public int r(int position) {
+        return r[checkPosition(position)];
+    }
+
+
+    /**
+     * Creates the list of hexes of the path.
+     *
+     * @return list of hexes from the start to the goal
+     */
+    public ArrayList<Hex> hexes() {
+        ArrayList<Hex> hexes = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            hexes.add(new Hex(q[i], r[i]));
+        }
+        return hexes;
+    }
+
+
+    private int checkPosition(int position) {
+        if (position < 0 || position >= length) throw new IndexOutOfBoundsException("position " + position + " is outside of the path");
+        return position;
+    }
+}
@@ -0,0 +1,175 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexPathfinder {
+
+    /**
+     * A* search over a bounded {@code HexShape}, with {@code Hex.distance} as the heuristic and step costs given by a
+     * {@code HexCostFunction}.
+     * <p>
+     * The open set is a primitive {@code HexHeap}, and the per-cell tables (cost so far, parent, closed flag) are flat
+     * arrays over the shape's indexes. Instead of clearing the tables before every search, each cell remembers the
+     * number of the search that last wrote it (its generation), so an entry written by an older search is simply
+     * treated as empty. The tables are kept per thread, which makes one pathfinder safe to use from many threads at
+     * once, and repeated searches on a thread allocate nothing.
+     * <p>
+     * The heuristic is {@code distance * minimumStepCost}. It never overestimates as long as no step is cheaper than
+     * {@code minimumStepCost}, and then the paths found are the cheapest ones.
+     */
+    public final HexShape shape;
+    private final int minimumStepCost;
+    private final ThreadLocal<SearchContext> contexts;
+
+
+    /**
+     * Pathfinder constructor, for step costs of at least 1.
+     *
+     * @param shape shape of the map
+     * @return {@code HexPathfinder} object
+     */
+    public HexPathfinder(HexShape shape) {
+        this(shape, 1);
+    }
+
+
+    /**
+     * Pathfinder constructor.
+     *
+     * @param shape           shape of the map
+     * @param minimumStepCost the smallest cost of a single step, used to scale the heuristic
+     * @return {@code HexPathfinder} object
+     * @throws IllegalArgumentException when minimumStepCost is negative.
+     */
+    public HexPathfinder(HexShape shape, int minimumStepCost) {
+        if (minimumStepCost < 0) throw new IllegalArgumentException("minimum step cost must not be negative");
+        this.shape = shape;
+        this.minimumStepCost = minimumStepCost;
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(shape.size()));
+    }
+
+
+    /**
+     * Scratch tables of one thread, reused by all searches of the thread.
+     */
+    static private final class SearchContext {
+        final int[] cost;
+        final int[] parent;
+        final int[] seen;
+        final int[] closed;
+        final HexHeap open = new HexHeap();
+        int generation;
+
+        SearchContext(int size) {
+            cost = new int[size];
+            parent = new int[size];
+            seen = new int[size];
+            closed = new int[size];
+        }
+
+        int nextGeneration() {
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 0;
+            }
+            open.clear();
+            return ++generation;
+        }
+    }
+
+
+    /**
+     * Finds the cheapest path between two hexes.
+     *
+     * @param start start hex
+     * @param goal  goal hex
+     * @param cost  cost of the steps
+     * @param path  receives the path; it is emptied when there is no path
+     * @return {@code true} if a path was found
+     */
+    public boolean findPath(Hex start, Hex goal, HexCostFunction cost, HexPath path) {
+        return findPath(start.q, start.r, goal.q, goal.r, cost, path);
+    }
+
+
+    /**
+     * Finds the cheapest path between two hexes. Hexes outside the shape are never entered, so if the start or the
+     * goal is outside the shape there is no path.
+     *
+     * @param startQ Axial coordinate of the start hex
+     * @param startR Axial coordinate of the start hex
+     * @param goalQ  Axial coordinate of the goal hex
+     * @param goalR  Axial coordinate of the goal hex
+     * @param cost   cost of the steps
+     * @param path   receives the path; it is emptied when there is no path
+     * @return {@code true} if a path was found
+     */
+    public boolean findPath(int startQ, int startR, int goalQ, int goalR, HexCostFunction cost, HexPath path) {
+        path.clear();
+        HexShape shape = this.shape;
+        int start = shape.index(startQ, startR);
+        int goal = shape.index(goalQ, goalR);
+        if (start < 0 || goal < 0) return false;
+        SearchContext context = contexts.get();
+        int generation = context.nextGeneration();
+        int[] g = context.cost;
+        int[] parent = context.parent;
+        int[] seen = context.seen;
+        int[] closed = context.closed;
+        HexHeap open = context.open;
+
+        g[start] = 0;
+        parent[start] = -1;
+        seen[start] = generation;
+        open.push(heuristic(startQ, startR, goalQ, goalR), start);
+        while (!open.isEmpty()) {
+            int index = HexHeap.index(open.pop());
+            if (closed[index] == generation) continue;
+            closed[index] = generation;
+            if (index == goal) {
+                reconstruct(context, start, goal, path);
+                return true;
+            }
+            int q = shape.q(index);
+            int r = shape.r(index);
+            int costSoFar = g[index];
+            for (int direction = 0; direction < 6; direction++) {
+                int neighbor = shape.neighbor(index, q, r, direction);
+                if (neighbor < 0 || closed[neighbor] == generation) continue;
+                int nq = q + Hex.directionQ[direction];
+                int nr = r + Hex.directionR[direction];
+                int stepCost = cost.cost(q, r, nq, nr);
+                if (stepCost < 0) continue;
+                int newCost = costSoFar + stepCost;
+                if (seen[neighbor] != generation || newCost < g[neighbor]) {
+                    seen[neighbor] = generation;
+                    g[neighbor] = newCost;
+                    parent[neighbor] = index;
+                    open.push(newCost + heuristic(nq, nr, goalQ, goalR), neighbor);
+                }
+            }
+        }
+        return false;
+    }
+
+
+    private int heuristic(int q, int r, int goalQ, int goalR) {
+        int dq = q - goalQ;
+        int dr = r - goalR;
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2 * minimumStepCost;
+    }
+
+
+    private void reconstruct(SearchContext context, int start, int goal, HexPath path) {
+        int length = 1;
+        for (int index = goal; index != start; index = context.parent[index]) length++;
+        path.ensureCapacity(length);
+        int position = length - 1;
+        for (int index = goal; ; index = context.parent[index]) {
+            path.set(position--, shape.q(index), shape.r(index));
+            if (index == start) break;
+        }
+        path.finish(length, context.cost[goal]);
+    }
+}
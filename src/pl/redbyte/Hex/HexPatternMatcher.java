@@ -0,0 +1,162 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class HexPatternMatcher {
+
+    /**
+     * Finds where a pattern of values (a building, a formation) occurs in an {@code IntHexGrid}, under any of the 12
+     * {@code HexSymmetry} transforms.
+     * <p>
+     * A pattern is a list of offsets from its anchor, each with the value the cell must have. For every value the
+     * matcher keeps a {@code HexRegion} mask of the cells with that value, built once per value and shared by all
+     * patterns. The anchors of a pattern are the intersection of the masks of its cells, each shifted back by the
+     * cell's offset ({@code HexRegion.intersectShifted}), so a pattern cell costs one pass over the words of a mask for
+     * the whole map, instead of one lookup per position and orientation. The intersection stops as soon as it is empty,
+     * and transforms that map the pattern onto itself (e.g. the rotations of a symmetric building) are matched once.
+     * <p>
+     * The masks are a snapshot: after the grid changes, {@code refresh} must be called.
+     */
+    public final IntHexGrid grid;
+    private final HashMap<Integer, HexRegion> masks = new HashMap<>();
+
+
+    /**
+     * Matcher constructor.
+     *
+     * @param grid the grid to search
+     * @return {@code HexPatternMatcher} object
+     */
+    public HexPatternMatcher(IntHexGrid grid) {
+        this.grid = grid;
+    }
+
+
+    /**
+     * Forgets the masks, after the grid was changed.
+     */
+    public void refresh() {
+        masks.clear();
+    }
+
+
+    /**
+     * Returns the mask of the cells with the value. The region must not be modified.
+     *
+     * @param value value of the cells
+     * @return cells with the value
+     */
+    public HexRegion mask(int value) {
+        HexRegion mask = masks.get(value);
+        if (mask == null) {
+            mask = new HexRegion(grid.shape);
+            int[] cells = grid.array();
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == value) mask.addAt(i);
+            }
+            masks.put(value, mask);
+        }
+        return mask;
+    }
+
+
+    /**
+     * Returns the anchors where the pattern, transformed by the symmetry, matches the grid: {@code Hex(q, r)} is in
+     * the result when the cell at {@code Hex(q, r)} plus the transformed offset of every pattern cell has that cell's
+     * value.
+     *
+     * @param symmetry symmetry in [0..11], see {@code HexSymmetry}
+     * @param q        q offsets of the pattern cells
+     * @param r        r offsets of the pattern cells
+     * @param values   values of the pattern cells
+     * @return anchors of the matches
+     * @throws IllegalArgumentException when symmetry is out of range, the arrays have different lengths or the pattern
+     *                                  is empty.
+     */
+    public HexRegion match(int symmetry, int[] q, int[] r, int[] values) {
+        int length = checkPattern(q, r, values);
+        int[] tq = new int[length];
+        int[] tr = new int[length];
+        HexSymmetry.transform(symmetry, q, r, tq, tr, 0, length);
+        return matchTransformed(tq, tr, values);
+    }
+
+
+    /**
+     * Matches the pattern under all 12 symmetries. Element {@code k} of the result holds the anchors of the pattern
+     * transformed by symmetry {@code k}; symmetries that give the same transformed pattern share the same region
+     * object.
+     *
+     * @param q      q offsets of the pattern cells
+     * @param r      r offsets of the pattern cells
+     * @param values values of the pattern cells
+     * @return anchors of the matches, per symmetry
+     * @throws IllegalArgumentException when the arrays have different lengths or the pattern is empty.
+     */
+    public HexRegion[] matchAll(int[] q, int[] r, int[] values) {
+        int length = checkPattern(q, r, values);
+        HexRegion[] result = new HexRegion[HexSymmetry.COUNT];
+        long[][] signatures = new long[HexSymmetry.COUNT][];
+        int[] tq = new int[length];
+        int[] tr = new int[length];
+        for (int symmetry = 0; symmetry < HexSymmetry.COUNT; symmetry++) {
+            HexSymmetry.transform(symmetry, q, r, tq, tr, 0, length);
+            signatures[symmetry] = signature(tq, tr, values);
+            for (int earlier = 0; earlier < symmetry; earlier++) {
+                if (Arrays.equals(signatures[earlier], signatures[symmetry])) {
+                    result[symmetry] = result[earlier];
+                    break;
+                }
+            }
+            if (result[symmetry] == null) result[symmetry] = matchTransformed(tq, tr, values);
+        }
+        return result;
+    }
+
+
+    // the cells of the pattern sorted by offset, as pairs of packed offset and value
+    static private long[] signature(int[] q, int[] r, int[] values) {
+        long[] cells = new long[q.length];
+        for (int i = 0; i < q.length; i++) {
+            cells[i] = HexKey.pack(q[i], r[i]);
+        }
+        Integer[] order = new Integer[q.length];
+        for (int i = 0; i < q.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> cells[a] != cells[b] ? Long.compare(cells[a], cells[b]) : Integer.compare(values[a], values[b]));
+        long[] signature = new long[2 * q.length];
+        for (int i = 0; i < q.length; i++) {
+            signature[2 * i] = cells[order[i]];
+            signature[2 * i + 1] = values[order[i]];
+        }
+        return signature;
+    }
+
+
+    static private int checkPattern(int[] q, int[] r, int[] values) {
+        if (q.length != r.length || q.length != values.length) throw new IllegalArgumentException("pattern arrays must have the same length");
+        if (q.length == 0) throw new IllegalArgumentException("pattern must not be empty");
+        return q.length;
+    }
+
+
+    private HexRegion matchTransformed(int[] q, int[] r, int[] values) {
+        // start from the rarest value, so the intersection gets small (and possibly empty) early
+        Integer[] order = new Integer[q.length];
+        int[] cardinality = new int[q.length];
+        for (int i = 0; i < q.length; i++) {
+            order[i] = i;
+            cardinality[i] = mask(values[i]).cardinality();
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(cardinality[a], cardinality[b]));
+        HexRegion anchors = new HexRegion(grid.shape);
+        anchors.fill();
+        for (int i : order) {
+            anchors.intersectShifted(mask(values[i]), q[i], r[i]);
+            if (anchors.isEmpty()) break;
+        }
+        return anchors;
+    }
+}
@@ -0,0 +1,257 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexPyramid {
+
+    /**
+     * Aggregates (count, sum, min, max) of base hex values on every level of the {@code HexHierarchy}, kept up to date
+     * as the base values change.
+     * <p>
+     * Every level is a {@code HexLongIntMap} from packed hexes to rows of primitive columns, like {@code Hexbins}.
+     * Level 0 holds the base values themselves. When a base value changes, count and sum are adjusted by the
+     * difference on every level above, and min and max are adjusted directly when the new value extends them; only
+     * when the old value was the minimum or the maximum they are recomputed from the 7 children of the hex, level by
+     * level. An update costs O(levels), and a query is a single lookup on its level.
+     */
+    public final int levels;
+    private final Level[] level;
+
+
+    /**
+     * Pyramid constructor.
+     *
+     * @param levels number of levels above the base level, in [0..20]
+     * @return {@code HexPyramid} object
+     * @throws IllegalArgumentException when levels is out of range.
+     */
+    public HexPyramid(int levels) {
+        if (levels < 0 || levels > 20) throw new IllegalArgumentException("levels must be in [0..20]");
+        this.levels = levels;
+        this.level = new Level[levels + 1];
+        for (int i = 0; i <= levels; i++) level[i] = new Level();
+    }
+
+
+    /**
+     * Rows of one level, with the aggregates in parallel arrays.
+     */
+    static private final class Level {
+        final HexLongIntMap rows = new HexLongIntMap(64, -1);
+        long[] keys = new long[64];
+        long[] count = new long[64];
+        long[] sum = new long[64];
+        int[] min = new int[64];
+        int[] max = new int[64];
+        int size;
+
+        int addRow(long key) {
+            if (size == keys.length) {
+                int capacity = size << 1;
+                keys = Arrays.copyOf(keys, capacity);
+                count = Arrays.copyOf(count, capacity);
+                sum = Arrays.copyOf(sum, capacity);
+                min = Arrays.copyOf(min, capacity);
+                max = Arrays.copyOf(max, capacity);
+            }
+            int row = size++;
+            keys[row] = key;
+            count[row] = 0;
+            sum[row] = 0;
+            min[row] = Integer.MAX_VALUE;
+            max[row] = Integer.MIN_VALUE;
+            rows.put(key, row);
+            return row;
+        }
+
+        void removeRow(int row) {
+            rows.remove(keys[row]);
+            int last = --size;
+            if (row != last) {
+                keys[row] = keys[last];
+                count[row] = count[last];
+                sum[row] = sum[last];
+                min[row] = min[last];
+                max[row] = max[last];
+                rows.put(keys[row], row);
+            }
+        }
+    }
+
+
+    /**
+     * Sets the base value of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param value new value
+     */
+    public void set(int q, int r, int value) {
+        long key = HexKey.pack(q, r);
+        Level base = level[0];
+        int row = base.rows.get(key);
+        if (row < 0) {
+            row = base.addRow(key);
+            base.count[row] = 1;
+            base.sum[row] = value;
+            base.min[row] = value;
+            base.max[row] = value;
+            propagate(key, 1, value, false, 0, true, value);
+            return;
+        }
+        int old = base.min[row];
+        if (old == value) return;
+        base.sum[row] = value;
+        base.min[row] = value;
+        base.max[row] = value;
+        propagate(key, 0, (long) value - old, true, old, true, value);
+    }
+
+
+    /**
+     * Removes the base value of the hex.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex had a value
+     */
+    public boolean remove(int q, int r) {
+        long key = HexKey.pack(q, r);
+        Level base = level[0];
+        int row = base.rows.get(key);
+        if (row < 0) return false;
+        int old = base.min[row];
+        base.removeRow(row);
+        propagate(key, -1, -(long) old, true, old, false, 0);
+        return true;
+    }
+
+
+    /**
+     * Updates the ancestors of the base hex, whose value {@code removed} left the subtree (when {@code hasRemoved})
+     * and whose value {@code added} entered it (when {@code hasAdded}). A min or max equal to the removed value is
+     * recomputed from the children, which already include the added value.
+     */
+    private void propagate(long key, int countDelta, long sumDelta, boolean hasRemoved, int removed, boolean hasAdded, int added) {
+        for (int l = 1; l <= levels; l++) {
+            key = HexHierarchy.parentKey(HexKey.q(key), HexKey.r(key));
+            Level current = level[l];
+            int row = current.rows.get(key);
+            if (row < 0) row = current.addRow(key);
+            current.count[row] += countDelta;
+            current.sum[row] += sumDelta;
+            if (current.count[row] == 0) {
+                current.removeRow(row);
+                continue;
+            }
+            if (hasRemoved && (removed == current.min[row] || removed == current.max[row])) {
+                recompute(l, row, key);
+            } else if (hasAdded) {
+                if (added < current.min[row]) current.min[row] = added;
+                if (added > current.max[row]) current.max[row] = added;
+            }
+        }
+    }
+
+
+    private void recompute(int l, int row, long key) {
+        Level children = level[l - 1];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int child = 0; child < 7; child++) {
+            int childRow = children.rows.get(HexHierarchy.childKey(HexKey.q(key), HexKey.r(key), child));
+            if (childRow < 0) continue;
+            min = Math.min(min, children.min[childRow]);
+            max = Math.max(max, children.max[childRow]);
+        }
+        level[l].min[row] = min;
+        level[l].max[row] = max;
+    }
+
+
+    private int row(int l, int q, int r) {
+        if (l < 0 || l > levels) throw new IllegalArgumentException("level must be in [0.." + levels + "]");
+        return level[l].rows.get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns the number of base values under the hex of the level.
+     *
+     * @param l level
+     * @param q Axial coordinate on the level
+     * @param r Axial coordinate on the level
+     * @return number of base values, 0 when there are none
+     */
+    public long count(int l, int q, int r) {
+        int row = row(l, q, r);
+        return row < 0 ? 0 : level[l].count[row];
+    }
+
+
+    /**
+     * Returns the sum of base values under the hex of the level.
+     *
+     * @param l level
+     * @param q Axial coordinate on the level
+     * @param r Axial coordinate on the level
+     * @return sum of base values, 0 when there are none
+     */
+    public long sum(int l, int q, int r) {
+        int row = row(l, q, r);
+        return row < 0 ? 0 : level[l].sum[row];
+    }
+
+
+    /**
+     * Returns the smallest base value under the hex of the level.
+     *
+     * @param l level
+     * @param q Axial coordinate on the level
+     * @param r Axial coordinate on the level
+     * @return smallest base value, {@code Integer.MAX_VALUE} when there are none
+     */
+    public int min(int l, int q, int r) {
+        int row = row(l, q, r);
+        return row < 0 ? Integer.MAX_VALUE : level[l].min[row];
+    }
+
+
+    /**
+     * Returns the largest base value under the hex of the level.
+     *
+     * @param l level
+     * @param q Axial coordinate on the level
+     * @param r Axial coordinate on the level
+     * @return largest base value, {@code Integer.MIN_VALUE} when there are none
+     */
+    public int max(int l, int q, int r) {
+        int row = row(l, q, r);
+        return row < 0 ? Integer.MIN_VALUE : level[l].max[row];
+    }
+
+
+    /**
+     * Returns the number of hexes with base values under them on the level.
+     *
+     * @param l level
+     * @return number of hexes
+     */
+    public int size(int l) {
+        if (l < 0 || l > levels) throw new IllegalArgumentException("level must be in [0.." + levels + "]");
+        return level[l].size;
+    }
+
+
+    /**
+     * Returns the packed hex of the level at the position, for iterating a level in [0..size(l)).
+     *
+     * @param l        level
+     * @param position position in [0..size(l))
+     * @return packed hex
+     */
+    public long key(int l, int position) {
+        if (position < 0 || position >= size(l)) throw new IndexOutOfBoundsException("position " + position + " is outside of the level");
+        return level[l].keys[position];
+    }
+}
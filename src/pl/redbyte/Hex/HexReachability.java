@@ -0,0 +1,269 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class HexReachability {
+
+    /**
+     * Movement ranges over a bounded {@code HexShape}: all hexes a unit can reach from its start within a budget of
+     * movement points, where entering a cell costs the value of the cell in the cost grid and negative values are
+     * impassable.
+     * <p>
+     * The search is Dijkstra with a bucket queue (Dial's algorithm): the cells waiting in the queue never cost more than
+     * the cell being settled plus the largest step, so a ring of buckets larger than the largest step cost is enough,
+     * whatever the budget. The buckets are doubly linked lists threaded through per-cell arrays, and the ring grows
+     * when a larger step shows up. Pushing, moving a cell to a cheaper bucket and popping are constant time, and the
+     * search stops when the queue runs out or the budget is spent, so it touches only the cells in range. As in {@code HexPathfinder}, the per-cell
+     * tables are stamped with a generation instead of being cleared and are kept per thread, so one engine serves
+     * many threads at once and repeated queries allocate nothing. {@code reachAll} answers the queries of many units
+     * on a fork-join pool.
+     */
+    public final HexShape shape;
+    public final IntHexGrid cost;
+    private final ThreadLocal<SearchContext> contexts;
+
+
+    /**
+     * Reachability constructor.
+     *
+     * @param cost cost of entering each cell; negative values are impassable
+     * @return {@code HexReachability} object
+     */
+    public HexReachability(IntHexGrid cost) {
+        this.shape = cost.shape;
+        this.cost = cost;
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(shape.size()));
+    }
+
+
+    /**
+     * Scratch tables of one thread, reused by all queries of the thread.
+     */
+    static private final class SearchContext {
+        final int[] cost;
+        final int[] seen;
+        final int[] next;
+        final int[] previous;
+        final int[] parent;
+        final int[] q;
+        final int[] r;
+        final byte[] direction;
+        // ring of buckets, a power of 2 long; cost c is in bucket c & (head.length - 1)
+        int[] head = new int[16];
+        int generation;
+
+        SearchContext(int size) {
+            cost = new int[size];
+            seen = new int[size];
+            next = new int[size];
+            previous = new int[size];
+            parent = new int[size];
+            q = new int[size];
+            r = new int[size];
+            direction = new byte[size];
+        }
+
+        int nextGeneration() {
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                generation = 0;
+            }
+            Arrays.fill(head, -1);
+            return ++generation;
+        }
+
+        void link(int index, int cost) {
+            int bucket = cost & (head.length - 1);
+            int first = head[bucket];
+            next[index] = first;
+            previous[index] = -1;
+            if (first >= 0) previous[first] = index;
+            head[bucket] = index;
+        }
+
+        void unlink(int index, int cost) {
+            int after = next[index];
+            int before = previous[index];
+            if (before >= 0) next[before] = after;
+            else head[cost & (head.length - 1)] = after;
+            if (after >= 0) previous[after] = before;
+        }
+
+        // makes the ring longer than the step; the waiting cells cost less than the old length more than the cell
+        // being settled, so they land in different buckets of the new ring as well
+        void grow(int step) {
+            if (step >= 1 << 30) throw new IllegalArgumentException("cell costs must be below 2^30");
+            int[] old = head;
+            head = new int[Integer.highestOneBit(step) << 1];
+            Arrays.fill(head, -1);
+            for (int first : old) {
+                for (int index = first; index >= 0; ) {
+                    int after = next[index];
+                    link(index, this.cost[index]);
+                    index = after;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Finds the hexes reachable from the start within the budget.
+     *
+     * @param start  start hex
+     * @param budget movement points, not negative
+     * @param result receives the reachable hexes
+     * @throws IllegalArgumentException when budget is negative or the result has another shape.
+     */
+    public void reach(Hex start, int budget, HexReachableSet result) {
+        reach(start.q, start.r, budget, result);
+    }
+
+
+    /**
+     * Finds the hexes reachable from the start within the budget. The start is always reachable, even on an
+     * impassable cell; when it is outside the shape the result is empty.
+     *
+     * @param startQ Axial coordinate of the start hex
+     * @param startR Axial coordinate of the start hex
+     * @param budget movement points, not negative
+     * @param result receives the reachable hexes
+     * @throws IllegalArgumentException when budget is negative, the result has another shape, or a cell within the
+     *                                  budget costs 2^30 or more.
+     */
+    public void reach(int startQ, int startR, int budget, HexReachableSet result) {
+        if (budget < 0) throw new IllegalArgumentException("budget must not be negative");
+        if (result.shape != shape) throw new IllegalArgumentException("result must have the shape of the map");
+        result.clear();
+        HexShape shape = this.shape;
+        int start = shape.index(startQ, startR);
+        if (start < 0) return;
+        SearchContext context = contexts.get();
+        int generation = context.nextGeneration();
+        int[] g = context.cost;
+        int[] seen = context.seen;
+        int[] parent = context.parent;
+        byte[] direction = context.direction;
+        int[] cellQ = context.q;
+        int[] cellR = context.r;
+        int[] cells = cost.array();
+
+        g[start] = 0;
+        seen[start] = generation;
+        parent[start] = -1;
+        direction[start] = -1;
+        cellQ[start] = startQ;
+        cellR[start] = startR;
+        context.link(start, 0);
+        int pending = 1;
+        for (int spent = 0; pending > 0; spent++) {
+            // cells reached with a zero step cost join the bucket being emptied, so it is read until it stays empty
+            int index;
+            while ((index = context.head[spent & (context.head.length - 1)]) >= 0) {
+                context.unlink(index, spent);
+                pending--;
+                // a settled cell is never improved again: its cost is at most the cost of any later bucket
+                int position = result.add(index, budget - spent, direction[index], parent[index]);
+                // the coordinates were stored when the cell was reached, which saves the row search of shape.r
+                int q = cellQ[index];
+                int r = cellR[index];
+                for (int d = 0; d < 6; d++) {
+                    int neighbor = shape.neighbor(index, q, r, d);
+                    if (neighbor < 0) continue;
+                    int step = cells[neighbor];
+                    if (step < 0 || step > budget - spent) continue;
+                    if (step >= context.head.length) context.grow(step);
+                    int reached = spent + step;
+                    if (seen[neighbor] == generation) {
+                        if (reached >= g[neighbor]) continue;
+                        context.unlink(neighbor, g[neighbor]);
+                    } else {
+                        seen[neighbor] = generation;
+                        cellQ[neighbor] = q + Hex.directionQ[d];
+                        cellR[neighbor] = r + Hex.directionR[d];
+                        pending++;
+                    }
+                    g[neighbor] = reached;
+                    parent[neighbor] = position;
+                    // the neighbor looks back at this cell in the opposite direction
+                    direction[neighbor] = (byte) ((d + 3) % 6);
+                    context.link(neighbor, reached);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Finds the reachable hexes of many units on a fork-join pool. Unit {@code i} starts at
+     * {@code Hex(q[i], r[i])} with {@code budgets[i]} movement points, and its hexes go to {@code results[i]}, which
+     * is created when it is {@code null}. The results are the same as the results of {@code reach}.
+     *
+     * @param pool    pool running the queries
+     * @param q       q coordinates of the starts
+     * @param r       r coordinates of the starts
+     * @param budgets movement points of the units, not negative
+     * @param results receive the reachable hexes
+     * @param count   number of units
+     * @throws IllegalArgumentException  when a budget is negative or a result has another shape.
+     * @throws IndexOutOfBoundsException when count is larger than one of the arrays.
+     */
+    public void reachAll(ForkJoinPool pool, int[] q, int[] r, int[] budgets, HexReachableSet[] results, int count) {
+        Objects.checkFromIndexSize(0, count, q.length);
+        Objects.checkFromIndexSize(0, count, r.length);
+        Objects.checkFromIndexSize(0, count, budgets.length);
+        Objects.checkFromIndexSize(0, count, results.length);
+        for (int i = 0; i < count; i++) {
+            if (budgets[i] < 0) throw new IllegalArgumentException("budget must not be negative");
+            if (results[i] == null) results[i] = new HexReachableSet(shape);
+        }
+        // a few batches per worker, so workers that drew cheap units steal the rest
+        int batches = Math.min(count, 4 * pool.getParallelism());
+        ArrayList<Batch> tasks = new ArrayList<>(batches);
+        for (int b = 0; b < batches; b++) {
+            tasks.add(new Batch(q, r, budgets, results, (int) ((long) count * b / batches), (int) ((long) count * (b + 1) / batches)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+
+    /**
+     * The units [from..to) of {@code reachAll}, answered on the thread that runs the batch.
+     */
+    private final class Batch extends RecursiveAction {
+        static private final long serialVersionUID = 1L;
+
+        private final int[] q;
+        private final int[] r;
+        private final int[] budgets;
+        private final HexReachableSet[] results;
+        private final int from;
+        private final int to;
+
+        Batch(int[] q, int[] r, int[] budgets, HexReachableSet[] results, int from, int to) {
+            this.q = q;
+            this.r = r;
+            this.budgets = budgets;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                reach(q[i], r[i], budgets[i], results[i]);
+            }
+        }
+    }
+}
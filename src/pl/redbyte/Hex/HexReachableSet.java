@@ -0,0 +1,167 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexReachableSet {
+
+    /**
+     * The hexes found by {@code HexReachability}: every hex a unit can reach from its start within its movement budget,
+     * in the order of their costs (the start first), with the budget left on arrival and the direction and position of
+     * the previous hex of the cheapest path. The entries are kept in primitive arrays, and a set object can be passed
+     * to the engine again and again, so queries don't allocate once the arrays are large enough.
+     */
+    public final HexShape shape;
+    private int[] cells = new int[64];
+    private int[] remaining = new int[64];
+    private byte[] back = new byte[64];
+    private int[] parent = new int[64];
+    private int size;
+
+
+    /**
+     * Set constructor. The set is empty.
+     *
+     * @param shape shape of the map
+     * @return {@code HexReachableSet} object
+     */
+    public HexReachableSet(HexShape shape) {
+        this.shape = shape;
+    }
+
+
+    void clear() {
+        size = 0;
+    }
+
+
+    // returns the position of the added hex; parent is the position of the previous hex, or -1 at the start
+    int add(int index, int left, int direction, int parentPosition) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size << 1);
+            remaining = Arrays.copyOf(remaining, size << 1);
+            back = Arrays.copyOf(back, size << 1);
+            parent = Arrays.copyOf(parent, size << 1);
+        }
+        cells[size] = index;
+        remaining[size] = left;
+        back[size] = (byte) direction;
+        parent[size] = parentPosition;
+        return size++;
+    }
+
+
+    /**
+     * Returns the number of reachable hexes, including the start. An empty set means the start was outside the shape.
+     *
+     * @return number of hexes
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the {@code HexShape} index of the hex at the position.
+     *
+     * @param position position in [0..size())
+     * @return index of the hex
+     */
+    public int index(int position) {
+        return cells[checkPosition(position)];
+    }
+
+
+    /**
+     * Returns the q coordinate of the hex at the position.
+     *
+     * @param position position in [0..size())
+     * @return q coordinate
+     */
+    public int q(int position) {
+        return shape.q(index(position));
+    }
+
+
+    /**
+     * Returns the r coordinate of the hex at the position.
+     *
+     * @param position position in [0..size())
+     * @return r coordinate
+     */
+    public int r(int position) {
+        return shape.r(index(position));
+    }
+
+
+    /**
+     * Returns the movement budget left after reaching the hex at the position along the cheapest path.
+     *
+     * @param position position in [0..size())
+     * @return remaining budget
+     */
+    public int remaining(int position) {
+        return remaining[checkPosition(position)];
+    }
+
+
+    /**
+     * Returns the direction from the hex at the position to the previous hex of its cheapest path.
+     *
+     * @param position position in [0..size())
+     * @return direction index [0..5] into {@code Hex.directions}, or -1 at the start
+     */
+    public int direction(int position) {
+        return back[checkPosition(position)];
+    }
+
+
+    /**
+     * Adds the reachable hexes to the region.
+     *
+     * @param region region over the shape of the set
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public void addTo(HexRegion region) {
+        if (region.shape != shape) throw new IllegalArgumentException("region must have the shape of the set");
+        for (int i = 0; i < size; i++) {
+            region.addAt(cells[i]);
+        }
+    }
+
+
+    /**
+     * Returns the position of the previous hex of the cheapest path to the hex at the position. The previous hex
+     * costs no more than the hex, so its position is smaller.
+     *
+     * @param position position in [0..size())
+     * @return position of the previous hex, or -1 at the start
+     */
+    public int parent(int position) {
+        return parent[checkPosition(position)];
+    }
+
+
+    /**
+     * Builds the cheapest path from the start to the hex at the position.
+     *
+     * @param position position in [0..size())
+     * @param path     receives the path from the start to the hex; its cost is the budget spent
+     */
+    public void path(int position, HexPath path) {
+        checkPosition(position);
+        int length = 1;
+        for (int i = position; parent[i] >= 0; i = parent[i]) length++;
+        path.clear();
+        path.ensureCapacity(length);
+        for (int i = position, step = length - 1; i >= 0; i = parent[i], step--) {
+            path.set(step, shape.q(cells[i]), shape.r(cells[i]));
+        }
+        path.finish(length, remaining[0] - remaining[position]);
+    }
+
+
+    private int checkPosition(int position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("position " + position + " is outside of the set");
+        return position;
+    }
+}
@@ -0,0 +1,454 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class HexRegion {
+
+    /**
+     * A set of hexes of a bounded {@code HexShape}, e.g. a territory, the visible hexes or a movement range, stored as
+     * one bit per cell of the shape in {@code HexShape} index order.
+     * <p>
+     * Union, intersection and difference are 64 cells per {@code long} operation, and {@code cardinality} is a
+     * {@code Long.bitCount} per word. Dilation and erosion use the fact that moving in one of {@code Hex.directions}
+     * shifts the index by a constant within a row ({@code HexShape.neighborDelta}): for every row and direction the
+     * part of the row whose neighbors exist is combined with the shifted bits of the neighboring row, a word at a time.
+     * Regions combined with each other must be over the same shape object.
+     */
+    public final HexShape shape;
+    private final long[] words;
+    private long[] scratch;
+
+
+    /**
+     * Region constructor. The region is empty.
+     *
+     * @param shape shape of the map
+     * @return {@code HexRegion} object
+     */
+    public HexRegion(HexShape shape) {
+        this.shape = shape;
+        this.words = new long[(shape.size() + 63) >>> 6];
+    }
+
+
+    /**
+     * Copy constructor.
+     *
+     * @param other region to copy
+     * @return {@code HexRegion} object
+     */
+    public HexRegion(HexRegion other) {
+        this.shape = other.shape;
+        this.words = other.words.clone();
+    }
+
+
+    private void checkShape(HexRegion other) {
+        if (other.shape != shape) throw new IllegalArgumentException("regions must have the same shape");
+    }
+
+
+    /**
+     * Returns {@code true} if the hex is in the region. Hexes outside the shape are never in the region.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is in the region
+     */
+    public boolean contains(int q, int r) {
+        int index = shape.index(q, r);
+        return index >= 0 && containsAt(index);
+    }
+
+
+    /**
+     * Returns {@code true} if the hex is in the region.
+     *
+     * @param hex the hexagon
+     * @return {@code true} if the hex is in the region
+     */
+    public boolean contains(Hex hex) {
+        return contains(hex.q, hex.r);
+    }
+
+
+    /**
+     * Returns {@code true} if the hex stored at the index (see {@code HexShape.index}) is in the region.
+     *
+     * @param index index in [0..shape.size())
+     * @return {@code true} if the hex is in the region
+     */
+    public boolean containsAt(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+
+    /**
+     * Adds the hex to the region.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     */
+    public void add(int q, int r) {
+        addAt(checkedIndex(q, r));
+    }
+
+
+    /**
+     * Adds the hex to the region.
+     *
+     * @param hex the hexagon
+     * @throws IndexOutOfBoundsException when the hex is outside the shape.
+     */
+    public void add(Hex hex) {
+        add(hex.q, hex.r);
+    }
+
+
+    /**
+     * Adds the hex stored at the index (see {@code HexShape.index}) to the region.
+     *
+     * @param index index in [0..shape.size())
+     */
+    public void addAt(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+
+    /**
+     * Removes the hex from the region. Hexes outside the shape are ignored.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     */
+    public void remove(int q, int r) {
+        int index = shape.index(q, r);
+        if (index >= 0) removeAt(index);
+    }
+
+
+    /**
+     * Removes the hex stored at the index (see {@code HexShape.index}) from the region.
+     *
+     * @param index index in [0..shape.size())
+     */
+    public void removeAt(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+
+    private int checkedIndex(int q, int r) {
+        int index = shape.index(q, r);
+        if (index < 0) throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the region's shape");
+        return index;
+    }
+
+
+    /**
+     * Removes all hexes.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+
+    /**
+     * Adds all hexes of the shape.
+     */
+    public void fill() {
+        Arrays.fill(words, -1L);
+        trim();
+    }
+
+
+    // clears the bits after the last cell
+    private void trim() {
+        int tail = shape.size() & 63;
+        if (tail != 0) words[words.length - 1] &= (1L << tail) - 1;
+    }
+
+
+    /**
+     * Returns the number of hexes in the region.
+     *
+     * @return number of hexes
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+
+    /**
+     * Returns {@code true} if the region has no hexes.
+     *
+     * @return {@code true} if the region is empty
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Adds the hexes of the other region to this one.
+     *
+     * @param other region over the same shape
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public void union(HexRegion other) {
+        checkShape(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+
+    /**
+     * Keeps only the hexes that are also in the other region.
+     *
+     * @param other region over the same shape
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public void intersect(HexRegion other) {
+        checkShape(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+
+    /**
+     * Removes the hexes of the other region from this one.
+     *
+     * @param other region over the same shape
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public void difference(HexRegion other) {
+        checkShape(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+
+    /**
+     * Returns {@code true} if the regions have at least one hex in common.
+     *
+     * @param other region over the same shape
+     * @return {@code true} if the regions intersect
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public boolean intersects(HexRegion other) {
+        checkShape(other);
+        for (int i = 0; i < words.length; i++) {
+            if ((words[i] & other.words[i]) != 0) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Adds the neighbors of all hexes of the region (within the shape), i.e. grows the region by one step.
+     */
+    public void dilate() {
+        long[] source = snapshot();
+        for (int d = 0; d < 6; d++) {
+            combineShifted(source, Hex.directionQ[d], Hex.directionR[d], false);
+        }
+    }
+
+
+    /**
+     * Removes the hexes that have a neighbor outside of the region, i.e. shrinks the region by one step. Hexes at the
+     * edge of the shape are removed too.
+     */
+    public void erode() {
+        long[] source = snapshot();
+        for (int d = 0; d < 6; d++) {
+            combineShifted(source, Hex.directionQ[d], Hex.directionR[d], true);
+        }
+    }
+
+
+    /**
+     * Moves every hex of the region by the vector. Hexes moved outside of the shape are dropped.
+     *
+     * @param dq q of the vector
+     * @param dr r of the vector
+     */
+    public void translate(int dq, int dr) {
+        long[] source = snapshot();
+        clear();
+        combineShifted(source, -dq, -dr, false);
+    }
+
+
+    /**
+     * Keeps only the hexes {@code Hex(q, r)} of this region for which {@code Hex(q + dq, r + dr)} is in the other
+     * region. Intersecting the masks of the cells of a pattern shifted by their offsets leaves the hexes where the
+     * whole pattern can be anchored (see {@code HexPatternMatcher}).
+     *
+     * @param other region over the same shape
+     * @param dq    q of the offset
+     * @param dr    r of the offset
+     * @throws IllegalArgumentException when the shapes differ.
+     */
+    public void intersectShifted(HexRegion other, int dq, int dr) {
+        checkShape(other);
+        combineShifted(other == this ? snapshot() : other.words, dq, dr, true);
+    }
+
+
+    // ORs (or ANDs) into this region the hexes Hex(q, r) for which Hex(q + dq, r + dr) is in the source; when ANDing,
+    // the hexes whose shifted hex is outside of the shape are removed
+    private void combineShifted(long[] source, int dq, int dr, boolean and) {
+        for (int r = shape.rMin(); r <= shape.rMax(); r++) {
+            int qMin = shape.qMin(r);
+            int qMax = shape.qMax(r);
+            int start = shape.rowStart(r);
+            int nr = r + dr;
+            int first = qMax + 1;
+            int last = qMax;
+            if (nr >= shape.rMin() && nr <= shape.rMax()) {
+                first = Math.max(qMin, shape.qMin(nr) - dq);
+                last = Math.min(qMax, shape.qMax(nr) - dq);
+            }
+            if (first > last) {
+                if (and) clearBits(words, start, qMax - qMin + 1);
+                continue;
+            }
+            if (and) {
+                clearBits(words, start, first - qMin);
+                clearBits(words, start + last - qMin + 1, qMax - last);
+            }
+            int index = start + first - qMin;
+            int shifted = shape.rowStart(nr) + first + dq - shape.qMin(nr);
+            transfer(source, shifted, words, index, last - first + 1, and);
+        }
+    }
+
+
+    private long[] snapshot() {
+        if (scratch == null) scratch = new long[words.length];
+        System.arraycopy(words, 0, scratch, 0, words.length);
+        return scratch;
+    }
+
+
+    // the 64 bits of the array starting at the bit; bits past the end are 0
+    static private long window(long[] words, int from) {
+        int word = from >>> 6;
+        int shift = from & 63;
+        long low = words[word] >>> shift;
+        if (shift == 0 || word + 1 >= words.length) return low;
+        return low | (words[word + 1] << (64 - shift));
+    }
+
+
+    // ORs (or ANDs) length bits of source starting at from into target starting at to, a target word at a time
+    static private void transfer(long[] source, int from, long[] target, int to, int length, boolean and) {
+        int end = to + length;
+        while (to < end) {
+            int word = to >>> 6;
+            int shift = to & 63;
+            int count = Math.min(64 - shift, end - to);
+            long mask = (count == 64 ? -1L : (1L << count) - 1) << shift;
+            long bits = window(source, from) << shift;
+            if (and) target[word] &= bits | ~mask;
+            else target[word] |= bits & mask;
+            from += count;
+            to += count;
+        }
+    }
+
+
+    static private void clearBits(long[] target, int from, int length) {
+        int end = from + length;
+        while (from < end) {
+            int word = from >>> 6;
+            int shift = from & 63;
+            int count = Math.min(64 - shift, end - from);
+            target[word] &= ~((count == 64 ? -1L : (1L << count) - 1) << shift);
+            from += count;
+        }
+    }
+
+
+    /**
+     * Returns the index of the first hex of the region at or after the index, or -1 if there is none.
+     *
+     * @param from index to start at
+     * @return index of the next hex, or -1
+     */
+    public int nextIndex(int from) {
+        if (from < 0) from = 0;
+        int word = from >>> 6;
+        if (word >= words.length) return -1;
+        long bits = words[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == words.length) return -1;
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+
+    /**
+     * Visits the hexes of the region in index order.
+     *
+     * @param visitor receives the hexes
+     * @return {@code true} if all hexes were visited, {@code false} if the visitor stopped the enumeration
+     */
+    public boolean forEach(HexVisitor visitor) {
+        int r = shape.rMin();
+        int rowEnd = r < shape.rMax() ? shape.rowStart(r + 1) : shape.size();
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                while (index >= rowEnd) {
+                    r++;
+                    rowEnd = r < shape.rMax() ? shape.rowStart(r + 1) : shape.size();
+                }
+                if (!visitor.visit(shape.qMin(r) + index - shape.rowStart(r), r)) return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Generates the list of the hexes of the region, in index order.
+     *
+     * @return list of hexes
+     */
+    public ArrayList<Hex> hexes() {
+        ArrayList<Hex> hexes = new ArrayList<>(cardinality());
+        forEach((q, r) -> hexes.add(new Hex(q, r, -q - r)));
+        return hexes;
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof HexRegion) {
+            return shape == ((HexRegion) obj).shape && Arrays.equals(words, ((HexRegion) obj).words);
+        }
+        return false;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
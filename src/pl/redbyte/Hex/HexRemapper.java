@@ -0,0 +1,19 @@
+package pl.redbyte.Hex;
+
+/**
+ * Computes a new value for a hex from its current one, used by the atomic operations of {@code ConcurrentHexMap}.
+ * The hex is given as axial coordinates, so no {@code Hex} object is created per call.
+ */
+@FunctionalInterface
+public interface HexRemapper<V> {
+
+    /**
+     * Returns the new value of {@code Hex(q, r)}.
+     *
+     * @param q       Axial coordinate
+     * @param r       Axial coordinate
+     * @param current current value, or {@code null} when the hex has no value
+     * @return new value, or {@code null} to remove the hex from the map
+     */
+    V remap(int q, int r, V current);
+}
@@ -0,0 +1,354 @@
+package pl.redbyte.Hex;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public abstract class HexSequence {
+
+    /**
+     * A lazy, ordered sequence of hexes of known size: a range (all hexes within N steps), a ring or a spiral (see
+     * https://www.redblobgames.com/grids/hexagons/#range and #rings). Hexes are computed on demand, nothing is
+     * materialized.
+     * <p>
+     * Every position of a sequence can be computed in constant or logarithmic time ({@code key(index)}), so the
+     * {@code Spliterator} splits a sequence exactly in halves by index. That makes {@code stream().parallel()} divide
+     * a large range evenly between cores. Sequential traversal ({@code forEach}, and {@code forEachRemaining} of the
+     * spliterator) walks hex by hex with integer steps instead.
+     */
+    final int centerQ;
+    final int centerR;
+    final int size;
+
+
+    HexSequence(int centerQ, int centerR, long size) {
+        if (size > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("sequence is too large");
+        this.centerQ = centerQ;
+        this.centerR = centerR;
+        this.size = (int) size;
+    }
+
+
+    /**
+     * All hexes within {@code radius} steps from the center, column by column (by q, then by r).
+     *
+     * @param center center of the range
+     * @param radius radius of the range
+     * @return {@code HexSequence} of 3 * radius * (radius + 1) + 1 hexes
+     * @throws IllegalArgumentException when radius is negative.
+     */
+    static public HexSequence range(Hex center, int radius) {
+        return new Range(center.q, center.r, radius);
+    }
+
+
+    /**
+     * The hexes exactly {@code radius} steps from the center. The ring starts at
+     * {@code center + Hex.directions.get(4) * radius} and goes around in the order of {@code Hex.directions}. The ring
+     * of radius 0 is the center itself.
+     *
+     * @param center center of the ring
+     * @param radius radius of the ring
+     * @return {@code HexSequence} of 6 * radius hexes (1 for radius 0)
+     * @throws IllegalArgumentException when radius is negative.
+     */
+    static public HexSequence ring(Hex center, int radius) {
+        return new Spiral(center.q, center.r, radius, radius);
+    }
+
+
+    /**
+     * All hexes within {@code radius} steps from the center, ring by ring: the center first, then the rings 1, 2, ...,
+     * {@code radius}.
+     *
+     * @param center center of the spiral
+     * @param radius radius of the spiral
+     * @return {@code HexSequence} of 3 * radius * (radius + 1) + 1 hexes
+     * @throws IllegalArgumentException when radius is negative.
+     */
+    static public HexSequence spiral(Hex center, int radius) {
+        return new Spiral(center.q, center.r, 0, radius);
+    }
+
+
+    static void checkRadius(int radius) {
+        if (radius < 0) throw new IllegalArgumentException("radius must not be negative");
+    }
+
+
+    /**
+     * Returns the number of hexes in the sequence.
+     *
+     * @return number of hexes
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the hex at the position, packed by {@code HexKey}.
+     *
+     * @param index position in [0..size())
+     * @return packed key
+     */
+    public long key(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + " is outside of the sequence");
+        return keyAt(index);
+    }
+
+
+    /**
+     * Returns the hex at the position.
+     *
+     * @param index position in [0..size())
+     * @return {@code Hex} object
+     */
+    public Hex hex(int index) {
+        return HexKey.toHex(key(index));
+    }
+
+
+    abstract long keyAt(int index);
+
+
+    /**
+     * Visits the hexes from position {@code from} (inclusive) to {@code to} (exclusive), in order.
+     */
+    abstract boolean forEach(int from, int to, HexVisitor visitor);
+
+
+    /**
+     * Visits all hexes of the sequence in order, without creating {@code Hex} objects.
+     *
+     * @param visitor receives the hexes
+     * @return {@code true} if all hexes were visited, {@code false} if the visitor stopped the enumeration
+     */
+    public boolean forEach(HexVisitor visitor) {
+        return forEach(0, size, visitor);
+    }
+
+
+    /**
+     * Returns a spliterator over the packed keys of the hexes.
+     *
+     * @return {@code Spliterator.OfLong} that splits by position
+     */
+    public Spliterator.OfLong spliterator() {
+        return new KeySpliterator(0, size);
+    }
+
+
+    /**
+     * Returns a stream of the packed keys of the hexes.
+     *
+     * @return {@code LongStream} of packed keys
+     */
+    public LongStream keys() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+
+    /**
+     * Returns a stream of the hexes. Every hex is created when it is consumed, for the allocation-free form use
+     * {@code keys()} or {@code forEach}.
+     *
+     * @return {@code Stream} of hexes
+     */
+    public Stream<Hex> hexes() {
+        return keys().mapToObj(HexKey::toHex);
+    }
+
+
+    private class KeySpliterator implements Spliterator.OfLong {
+        private int from;
+        private final int to;
+
+        KeySpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (from >= to) return false;
+            action.accept(keyAt(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            int start = from;
+            from = to;
+            forEach(start, to, (q, r) -> {
+                action.accept(HexKey.pack(q, r));
+                return true;
+            });
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            int middle = (from + to) >>> 1;
+            if (middle <= from) return null;
+            KeySpliterator prefix = new KeySpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+
+    static private class Range extends HexSequence {
+        private final int radius;
+
+        Range(int centerQ, int centerR, int radius) {
+            super(centerQ, centerR, 3L * checked(radius) * (radius + 1) + 1);
+            this.radius = radius;
+        }
+
+        static private int checked(int radius) {
+            checkRadius(radius);
+            return radius;
+        }
+
+        // number of hexes in the first m columns, for m <= radius + 1
+        private long firstColumns(long m) {
+            return m * (radius + 1) + m * (m - 1) / 2;
+        }
+
+        // index of the first hex of column c (dq = c - radius)
+        private long columnStart(int c) {
+            return c <= radius + 1 ? firstColumns(c) : size - firstColumns(2 * radius + 1 - c);
+        }
+
+        private int column(int index) {
+            int low = 0;
+            int high = 2 * radius;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (columnStart(middle) <= index) low = middle;
+                else high = middle - 1;
+            }
+            return low;
+        }
+
+        @Override
+        long keyAt(int index) {
+            int c = column(index);
+            int dq = c - radius;
+            int dr = Math.max(-radius, -dq - radius) + (int) (index - columnStart(c));
+            return HexKey.pack(centerQ + dq, centerR + dr);
+        }
+
+        @Override
+        boolean forEach(int from, int to, HexVisitor visitor) {
+            if (from >= to) return true;
+            int c = column(from);
+            int dq = c - radius;
+            int dr = Math.max(-radius, -dq - radius) + (int) (from - columnStart(c));
+            int drMax = Math.min(radius, -dq + radius);
+            for (int i = from; i < to; i++) {
+                if (!visitor.visit(centerQ + dq, centerR + dr)) return false;
+                if (++dr > drMax) {
+                    dq++;
+                    dr = Math.max(-radius, -dq - radius);
+                    drMax = Math.min(radius, -dq + radius);
+                }
+            }
+            return true;
+        }
+    }
+
+
+    static private class Spiral extends HexSequence {
+        private final int firstRing;
+        private final int lastRing;
+        private final long skipped;
+
+        Spiral(int centerQ, int centerR, int firstRing, int lastRing) {
+            super(centerQ, centerR, hexesUpTo(checked(lastRing)) - hexesUpTo(firstRing - 1));
+            this.firstRing = firstRing;
+            this.lastRing = lastRing;
+            this.skipped = hexesUpTo(firstRing - 1);
+        }
+
+        static private int checked(int radius) {
+            checkRadius(radius);
+            return radius;
+        }
+
+        // number of hexes within radius steps, 0 for radius -1
+        static private long hexesUpTo(long radius) {
+            return radius < 0 ? 0 : 3 * radius * (radius + 1) + 1;
+        }
+
+        // ring of the position counted from the center of a full spiral
+        static private int ringOf(long position) {
+            if (position == 0) return 0;
+            int k = (int) ((3 + Math.sqrt(12.0 * position - 3)) / 6);
+            while (hexesUpTo(k - 1) > position) k--;
+            while (hexesUpTo(k) <= position) k++;
+            return k;
+        }
+
+        @Override
+        long keyAt(int index) {
+            long position = skipped + index;
+            int k = ringOf(position);
+            if (k == 0) return HexKey.pack(centerQ, centerR);
+            int j = (int) (position - hexesUpTo(k - 1));
+            int side = j / k;
+            int step = j % k;
+            int q = centerQ + Hex.directionQ[4] * k;
+            int r = centerR + Hex.directionR[4] * k;
+            for (int i = 0; i < side; i++) {
+                q += Hex.directionQ[i] * k;
+                r += Hex.directionR[i] * k;
+            }
+            return HexKey.pack(q + Hex.directionQ[side] * step, r + Hex.directionR[side] * step);
+        }
+
+        @Override
+        boolean forEach(int from, int to, HexVisitor visitor) {
+            if (from >= to) return true;
+            long key = keyAt(from);
+            int q = HexKey.q(key);
+            int r = HexKey.r(key);
+            long position = skipped + from;
+            int k = ringOf(position);
+            int j = k == 0 ? 0 : (int) (position - hexesUpTo(k - 1));
+            int side = k == 0 ? 0 : j / k;
+            int step = k == 0 ? 0 : j % k;
+            for (int i = from; i < to; i++) {
+                if (!visitor.visit(q, r)) return false;
+                if (k == 0 || (side == 5 && step == k - 1)) {
+                    // next ring starts in direction 4 from the center
+                    k++;
+                    side = 0;
+                    step = 0;
+                    q = centerQ + Hex.directionQ[4] * k;
+                    r = centerR + Hex.directionR[4] * k;
+                    continue;
+                }
+                q += Hex.directionQ[side];
+                r += Hex.directionR[side];
+                if (++step == k) {
+                    side++;
+                    step = 0;
+                }
+            }
+            return true;
+        }
+    }
+}
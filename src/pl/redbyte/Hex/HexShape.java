@@ -0,0 +1,371 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+
+public class HexShape {
+
+    /**
+     * A bounded map shape: parallelogram, triangle, hexagon or rectangle (see
+     * https://www.redblobgames.com/grids/hexagons/implementation.html#map-shapes).
+     * <p>
+     * Every standard shape is a stack of rows (hexes with the same r), and each row is a contiguous run of q values,
+     * so the hexes can be numbered row by row: {@code index = rowOffset[r - rMin] + q}. Grid containers
+     * ({@code HexGrid}, {@code IntHexGrid}, {@code DoubleHexGrid}) use that index to keep cells in flat arrays with no
+     * {@code Hex} objects at all.
+     * <p>
+     * Moving to a neighbor changes q by dq and r by dr, so the index changes by
+     * {@code rowOffset[row + dr] - rowOffset[row] + dq}, which depends only on the row. These deltas are precomputed,
+     * so a step in one of {@code Hex.directions} becomes a single array offset.
+     */
+    private final int rMin;
+    private final int[] qMin;
+    private final int[] qMax;
+    private final int[] rowOffset;
+    private final int[] rowStart;
+    private final int[] neighborDelta;
+    private final int size;
+
+
+    /**
+     * Shape constructor. Rows go from {@code rMin} to {@code rMin + qMin.length - 1}, and row {@code r} holds hexes
+     * from {@code qMin[r - rMin]} to {@code qMax[r - rMin]} inclusive.
+     *
+     * @param rMin first row
+     * @param qMin first q of every row
+     * @param qMax last q of every row
+     * @return {@code HexShape} object
+     * @throws IllegalArgumentException when a row is empty or the shape is too large for an {@code int} index.
+     */
+    protected HexShape(int rMin, int[] qMin, int[] qMax) {
+        int rows = qMin.length;
+        if (rows == 0 || qMax.length != rows) throw new IllegalArgumentException("shape must have at least one row");
+        this.rMin = rMin;
+        this.qMin = qMin;
+        this.qMax = qMax;
+        this.rowOffset = new int[rows];
+        this.rowStart = new int[rows + 1];
+        long start = 0;
+        for (int row = 0; row < rows; row++) {
+            if (qMax[row] < qMin[row]) throw new IllegalArgumentException("row " + (rMin + row) + " is empty");
+            rowStart[row] = (int) start;
+            rowOffset[row] = (int) (start - qMin[row]);
+            start += qMax[row] - qMin[row] + 1;
+            if (start > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("shape is too large");
+        }
+        rowStart[rows] = (int) start;
+        this.size = (int) start;
+        this.neighborDelta = new int[rows * 6];
+        for (int row = 0; row < rows; row++) {
+            for (int direction = 0; direction < 6; direction++) {
+                int target = row + Hex.directionR[direction];
+                neighborDelta[row * 6 + direction] = target < 0 || target >= rows
+                        ? 0 : rowOffset[target] - rowOffset[row] + Hex.directionQ[direction];
+            }
+        }
+    }
+
+
+    /**
+     * A parallelogram with q from {@code q1} to {@code q2} and r from {@code r1} to {@code r2}, both inclusive.
+     *
+     * @param q1 first q
+     * @param q2 last q
+     * @param r1 first r
+     * @param r2 last r
+     * @return {@code HexShape} object
+     */
+    static public HexShape parallelogram(int q1, int q2, int r1, int r2) {
+        int rows = r2 - r1 + 1;
+        if (rows <= 0 || q2 < q1) throw new IllegalArgumentException("parallelogram must not be empty");
+        int[] qMin = new int[rows];
+        int[] qMax = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            qMin[row] = q1;
+            qMax[row] = q2;
+        }
+        return new HexShape(r1, qMin, qMax);
+    }
+
+
+    /**
+     * A triangle with the corner at {@code Hex(0, 0, 0)}: q &gt;= 0, r &gt;= 0 and q + r &lt;= size.
+     *
+     * @param size length of the triangle's side minus one
+     * @return {@code HexShape} object
+     */
+    static public HexShape triangle(int size) {
+        if (size < 0) throw new IllegalArgumentException("size must not be negative");
+        int[] qMin = new int[size + 1];
+        int[] qMax = new int[size + 1];
+        for (int r = 0; r <= size; r++) {
+            qMin[r] = 0;
+            qMax[r] = size - r;
+        }
+        return new HexShape(0, qMin, qMax);
+    }
+
+
+    /**
+     * A hexagon of all hexes within {@code radius} steps from {@code Hex(0, 0, 0)}.
+     *
+     * @param radius radius of the hexagon
+     * @return {@code HexShape} object
+     */
+    static public HexShape hexagon(int radius) {
+        if (radius < 0) throw new IllegalArgumentException("radius must not be negative");
+        int[] qMin = new int[2 * radius + 1];
+        int[] qMax = new int[2 * radius + 1];
+        for (int r = -radius; r <= radius; r++) {
+            qMin[r + radius] = Math.max(-radius, -r - radius);
+            qMax[r + radius] = Math.min(radius, -r + radius);
+        }
+        return new HexShape(-radius, qMin, qMax);
+    }
+
+
+    /**
+     * A rectangle of pointy top hexagons, {@code width} hexes in a row and {@code height} rows, with alternate rows
+     * slid to the right (the odd-r offset layout). The top left hex is {@code Hex(0, 0, 0)}.
+     *
+     * @param width  number of hexes in a row
+     * @param height number of rows
+     * @return {@code HexShape} object
+     */
+    static public HexShape pointyTopRectangle(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("rectangle must not be empty");
+        int[] qMin = new int[height];
+        int[] qMax = new int[height];
+        for (int r = 0; r < height; r++) {
+            int rOffset = r >> 1;
+            qMin[r] = -rOffset;
+            qMax[r] = width - 1 - rOffset;
+        }
+        return new HexShape(0, qMin, qMax);
+    }
+
+
+    /**
+     * A rectangle of flat top hexagons, {@code width} columns and {@code height} hexes in a column, with alternate
+     * columns slid down (the odd-q offset layout). The top left hex is {@code Hex(0, 0, 0)}. Hexes are still numbered
+     * row by row (by r), which for this shape are the diagonal rows of the rectangle.
+     *
+     * @param width  number of columns
+     * @param height number of hexes in a column
+     * @return {@code HexShape} object
+     */
+    static public HexShape flatTopRectangle(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("rectangle must not be empty");
+        int rFirst = -((width - 1) >> 1);
+        int rows = height - rFirst;
+        int[] qMin = new int[rows];
+        int[] qMax = new int[rows];
+        for (int r = rFirst; r < height; r++) {
+            // the column q holds r from -floor(q/2) to height-1-floor(q/2)
+            qMin[r - rFirst] = Math.max(0, -2 * r);
+            qMax[r - rFirst] = Math.min(width - 1, 2 * (height - 1 - r) + 1);
+        }
+        return new HexShape(rFirst, qMin, qMax);
+    }
+
+
+    /**
+     * Returns the number of hexes in the shape.
+     *
+     * @return number of hexes
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the first row (the smallest r) of the shape.
+     *
+     * @return the smallest r
+     */
+    public int rMin() {
+        return rMin;
+    }
+
+
+    /**
+     * Returns the last row (the largest r) of the shape.
+     *
+     * @return the largest r
+     */
+    public int rMax() {
+        return rMin + qMin.length - 1;
+    }
+
+
+    /**
+     * Returns the first q of the row. The row must be inside the shape.
+     *
+     * @param r row
+     * @return the smallest q in the row
+     */
+    public int qMin(int r) {
+        return qMin[r - rMin];
+    }
+
+
+    /**
+     * Returns the last q of the row. The row must be inside the shape.
+     *
+     * @param r row
+     * @return the largest q in the row
+     */
+    public int qMax(int r) {
+        return qMax[r - rMin];
+    }
+
+
+    /**
+     * Returns the index of the first hex of the row. The row must be inside the shape.
+     *
+     * @param r row
+     * @return index of {@code Hex(qMin(r), r)}
+     */
+    public int rowStart(int r) {
+        return rowStart[r - rMin];
+    }
+
+
+    /**
+     * Returns {@code true} if the hex belongs to the shape.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is inside the shape
+     */
+    public boolean contains(int q, int r) {
+        int row = r - rMin;
+        return row >= 0 && row < qMin.length && q >= qMin[row] && q <= qMax[row];
+    }
+
+
+    /**
+     * Returns the array index of the hex, or -1 if the hex is outside the shape.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return index in [0..size), or -1
+     */
+    public int index(int q, int r) {
+        int row = r - rMin;
+        if (row < 0 || row >= qMin.length || q < qMin[row] || q > qMax[row]) return -1;
+        return rowOffset[row] + q;
+    }
+
+
+    /**
+     * Returns the array index of the hex, or -1 if the hex is outside the shape.
+     *
+     * @param hex the hexagon
+     * @return index in [0..size), or -1
+     */
+    public int index(Hex hex) {
+        return index(hex.q, hex.r);
+    }
+
+
+    /**
+     * Returns the r coordinate of the hex stored at the index.
+     *
+     * @param index index in [0..size)
+     * @return r coordinate
+     */
+    public int r(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + " is outside of the shape");
+        int low = 0;
+        int high = qMin.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (rowStart[middle] <= index) low = middle;
+            else high = middle - 1;
+        }
+        return rMin + low;
+    }
+
+
+    /**
+     * Returns the q coordinate of the hex stored at the index.
+     *
+     * @param index index in [0..size)
+     * @return q coordinate
+     */
+    public int q(int index) {
+        return index - rowOffset[r(index) - rMin];
+    }
+
+
+    /**
+     * Creates the {@code Hex} object stored at the index.
+     *
+     * @param index index in [0..size)
+     * @return {@code Hex} object
+     */
+    public Hex hex(int index) {
+        int r = r(index);
+        return new Hex(index - rowOffset[r - rMin], r);
+    }
+
+
+    /**
+     * Returns how much the index changes when moving from a hex in row {@code r} in the given direction. The result is
+     * meaningful only when the neighbor is inside the shape, see {@code neighbor}.
+     *
+     * @param r         row of the hex
+     * @param direction direction index [0..5] of the direction vector stored in {@code Hex.directions}
+     * @return index delta
+     */
+    public int neighborDelta(int r, int direction) {
+        return neighborDelta[(r - rMin) * 6 + direction];
+    }
+
+
+    /**
+     * Returns the index of the neighbor of {@code Hex(q, r)} stored at {@code index}, or -1 if the neighbor is outside
+     * the shape. It is {@code Hex.neighbor(direction)} expressed as an array offset.
+     *
+     * @param index     index of the hex
+     * @param q         Axial coordinate of the hex
+     * @param r         Axial coordinate of the hex
+     * @param direction direction index [0..5] of the direction vector stored in {@code Hex.directions}
+     * @return index of the neighbor, or -1
+     */
+    public int neighbor(int index, int q, int r, int direction) {
+        if (!contains(q + Hex.directionQ[direction], r + Hex.directionR[direction])) return -1;
+        return index + neighborDelta[(r - rMin) * 6 + direction];
+    }
+
+
+    /**
+     * Returns the index of the neighbor of the hex stored at {@code index}, or -1 if the neighbor is outside the
+     * shape. When the coordinates of the hex are already known, {@code neighbor(index, q, r, direction)} is faster.
+     *
+     * @param index     index of the hex
+     * @param direction direction index [0..5] of the direction vector stored in {@code Hex.directions}
+     * @return index of the neighbor, or -1
+     */
+    public int neighbor(int index, int direction) {
+        int r = r(index);
+        return neighbor(index, index - rowOffset[r - rMin], r, direction);
+    }
+
+
+    /**
+     * Generates the map: list of all hexes of the shape, in index order.
+     *
+     * @return list of hexes
+     */
+    public ArrayList<Hex> hexes() {
+        ArrayList<Hex> hexes = new ArrayList<>(size);
+        for (int row = 0; row < qMin.length; row++) {
+            for (int q = qMin[row]; q <= qMax[row]; q++) {
+                hexes.add(new Hex(q, rMin + row));
+            }
+        }
+        return hexes;
+    }
+}
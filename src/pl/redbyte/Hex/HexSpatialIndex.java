@@ -0,0 +1,359 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+public class HexSpatialIndex {
+
+    /**
+     * Spatial hash of moving entities, bucketed by the hex that contains them ({@code Layout.pixelToHex}).
+     * <p>
+     * Entities are identified by {@code int} ids from 0 up. Their positions and bucket links live in parallel
+     * primitive arrays, and every bucket is an intrusive doubly linked list whose head is found through a
+     * {@code HexLongIntMap}. Moving an entity within its hex only stores the new position, and moving it to another
+     * hex unlinks and relinks it in constant time, so the index is updated in place every tick instead of being
+     * rebuilt.
+     * <p>
+     * Queries visit the buckets of the hexes around the query point: within N hexes ({@code Hex.distance}
+     * semantics), within a pixel radius (buckets are chosen by hex distance, then filtered by the exact distance), and
+     * the k nearest entities (rings are searched outwards until no closer entity can be found).
+     */
+    public final Layout layout;
+    private final HexLongIntMap heads = new HexLongIntMap(1024, -1);
+    private double[] x;
+    private double[] y;
+    private long[] hex;
+    private int[] next;
+    private int[] previous;
+    private boolean[] present;
+    private int size;
+    private double[] distances = new double[16];
+    private final double ringDistance;
+    private final double cornerDistance;
+
+
+    /**
+     * Spatial index constructor.
+     *
+     * @param layout   layout that maps points to hexes
+     * @param capacity initial number of entity ids; ids beyond it grow the index
+     * @return {@code HexSpatialIndex} object
+     */
+    public HexSpatialIndex(Layout layout, int capacity) {
+        this.layout = layout;
+        capacity = Math.max(capacity, 16);
+        x = new double[capacity];
+        y = new double[capacity];
+        hex = new long[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+        present = new boolean[capacity];
+        // hexes at hex distance k have centers at least k * ringDistance apart: the centers of the first ring form a
+        // hexagon, and ring k is that hexagon scaled k times, so ringDistance is the distance to its nearest edge
+        double nearest = Double.POSITIVE_INFINITY;
+        Orientation M = layout.orientation;
+        for (int d = 0; d < 6; d++) {
+            int e = (d + 1) % 6;
+            double ax = (M.f0 * Hex.directionQ[d] + M.f1 * Hex.directionR[d]) * layout.size.x;
+            double ay = (M.f2 * Hex.directionQ[d] + M.f3 * Hex.directionR[d]) * layout.size.y;
+            double bx = (M.f0 * Hex.directionQ[e] + M.f1 * Hex.directionR[e]) * layout.size.x;
+            double by = (M.f2 * Hex.directionQ[e] + M.f3 * Hex.directionR[e]) * layout.size.y;
+            nearest = Math.min(nearest, Math.abs(ax * by - ay * bx) / Math.hypot(bx - ax, by - ay));
+        }
+        ringDistance = nearest;
+        double corner = 0;
+        for (int i = 0; i < 6; i++) {
+            Point offset = layout.hexCornerOffset(i);
+            corner = Math.max(corner, Math.hypot(offset.x, offset.y));
+        }
+        cornerDistance = corner;
+    }
+
+
+    private void ensureCapacity(int id) {
+        if (id < x.length) return;
+        int capacity = Math.max(id + 1, x.length << 1);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        hex = Arrays.copyOf(hex, capacity);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        present = Arrays.copyOf(present, capacity);
+    }
+
+
+    private void link(int id, long key) {
+        int slot = heads.insert(key);
+        int head;
+        if (slot < 0) {
+            slot = ~slot;
+            head = -1;
+        } else {
+            head = heads.valueAt(slot);
+        }
+        heads.setValueAt(slot, id);
+        hex[id] = key;
+        previous[id] = -1;
+        next[id] = head;
+        if (head >= 0) previous[head] = id;
+    }
+
+
+    private void unlink(int id) {
+        int before = previous[id];
+        int after = next[id];
+        if (after >= 0) previous[after] = before;
+        if (before >= 0) {
+            next[before] = after;
+        } else if (after >= 0) {
+            heads.put(hex[id], after);
+        } else {
+            heads.remove(hex[id]);
+        }
+    }
+
+
+    /**
+     * Returns the number of entities in the index.
+     *
+     * @return number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns {@code true} if the entity is in the index.
+     *
+     * @param id entity id
+     * @return {@code true} if the entity is in the index
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < present.length && present[id];
+    }
+
+
+    /**
+     * Puts the entity at the point. It works both for new entities and for entities already in the index; an entity
+     * that stays in the same hex is updated in place.
+     *
+     * @param id entity id, not negative
+     * @param px x coordinate
+     * @param py y coordinate
+     * @throws IllegalArgumentException when id is negative.
+     */
+    public void put(int id, double px, double py) {
+        if (id < 0) throw new IllegalArgumentException("id must not be negative");
+        ensureCapacity(id);
+        long key = layout.pixelToHexKey(px, py);
+        x[id] = px;
+        y[id] = py;
+        if (present[id]) {
+            if (hex[id] == key) return;
+            unlink(id);
+        } else {
+            present[id] = true;
+            size++;
+        }
+        link(id, key);
+    }
+
+
+    /**
+     * Removes the entity from the index.
+     *
+     * @param id entity id
+     * @return {@code true} if the entity was in the index
+     */
+    public boolean remove(int id) {
+        if (!contains(id)) return false;
+        unlink(id);
+        present[id] = false;
+        size--;
+        return true;
+    }
+
+
+    /**
+     * Returns the x coordinate of the entity.
+     *
+     * @param id entity id
+     * @return x coordinate
+     */
+    public double x(int id) {
+        return x[checkId(id)];
+    }
+
+
+    /**
+     * Returns the y coordinate of the entity.
+     *
+     * @param id entity id
+     * @return y coordinate
+     */
+    public double y(int id) {
+        return y[checkId(id)];
+    }
+
+
+    /**
+     * Returns the hex of the entity, packed by {@code HexKey}.
+     *
+     * @param id entity id
+     * @return packed key
+     */
+    public long hexKey(int id) {
+        return hex[checkId(id)];
+    }
+
+
+    private int checkId(int id) {
+        if (!contains(id)) throw new IllegalArgumentException("entity " + id + " is not in the index");
+        return id;
+    }
+
+
+    private boolean visitBucket(long key, IntPredicate visitor) {
+        for (int id = heads.get(key); id >= 0; ) {
+            int following = next[id];
+            if (!visitor.test(id)) return false;
+            id = following;
+        }
+        return true;
+    }
+
+
+    /**
+     * Visits the entities in the hexes within {@code radius} steps from the hex.
+     *
+     * @param q       Axial coordinate of the center hex
+     * @param r       Axial coordinate of the center hex
+     * @param radius  radius in hexes
+     * @param visitor receives entity ids; returning {@code false} stops the query
+     * @return {@code true} if all entities were visited, {@code false} if the visitor stopped the query
+     */
+    public boolean withinHexes(int q, int r, int radius, IntPredicate visitor) {
+        for (int dq = -radius; dq <= radius; dq++) {
+            int drMin = Math.max(-radius, -dq - radius);
+            int drMax = Math.min(radius, -dq + radius);
+            for (int dr = drMin; dr <= drMax; dr++) {
+                if (!visitBucket(HexKey.pack(q + dq, r + dr), visitor)) return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Visits the entities within {@code radius} pixels from the point.
+     *
+     * @param px      x coordinate of the point
+     * @param py      y coordinate of the point
+     * @param radius  radius in pixels
+     * @param visitor receives entity ids; returning {@code false} stops the query
+     * @return {@code true} if all entities were visited, {@code false} if the visitor stopped the query
+     */
+    public boolean withinDistance(double px, double py, double radius, IntPredicate visitor) {
+        long center = layout.pixelToHexKey(px, py);
+        int hexRadius = (int) Math.ceil((radius + 2 * cornerDistance) / ringDistance);
+        double radiusSquared = radius * radius;
+        return withinHexes(HexKey.q(center), HexKey.r(center), hexRadius, id -> {
+            double dx = x[id] - px;
+            double dy = y[id] - py;
+            return dx * dx + dy * dy > radiusSquared || visitor.test(id);
+        });
+    }
+
+
+    /**
+     * Finds the {@code k} entities nearest to the point (or all entities when there are fewer of them), ordered from
+     * the nearest.
+     *
+     * @param px  x coordinate of the point
+     * @param py  y coordinate of the point
+     * @param k   number of entities to find
+     * @param ids receives the ids of the found entities, at least {@code k} long
+     * @return number of entities found
+     */
+    public int nearest(double px, double py, int k, int[] ids) {
+        if (k <= 0 || size == 0) return 0;
+        if (ids.length < k) throw new IllegalArgumentException("ids must hold at least k elements");
+        // the heap of distances is kept between queries, so a query allocates only when k grows
+        if (this.distances.length < k) this.distances = new double[Math.max(k, this.distances.length << 1)];
+        double[] distances = this.distances;
+        int found = 0;
+        int examined = 0;
+        long center = layout.pixelToHexKey(px, py);
+        int cq = HexKey.q(center);
+        int cr = HexKey.r(center);
+        for (int ring = 0; ; ring++) {
+            double bound = ring * ringDistance - 2 * cornerDistance;
+            if (found == k && bound > 0 && bound * bound > distances[0]) break;
+            if (examined == size) break;
+            int q = cq + Hex.directionQ[4] * ring;
+            int r = cr + Hex.directionR[4] * ring;
+            int steps = ring == 0 ? 1 : 6 * ring;
+            for (int i = 0; i < steps; i++) {
+                for (int id = heads.get(HexKey.pack(q, r)); id >= 0; id = next[id]) {
+                    examined++;
+                    double dx = x[id] - px;
+                    double dy = y[id] - py;
+                    double distance = dx * dx + dy * dy;
+                    if (found < k) {
+                        siftUp(distances, ids, found++, distance, id);
+                    } else if (distance < distances[0]) {
+                        siftDown(distances, ids, found, distance, id);
+                    }
+                }
+                if (ring > 0) {
+                    int side = i / ring;
+                    q += Hex.directionQ[side];
+                    r += Hex.directionR[side];
+                }
+            }
+        }
+        // the heap keeps the farthest entity first, so taking it out repeatedly fills the result from the end
+        for (int end = found - 1; end > 0; end--) {
+            double distance = distances[end];
+            int id = ids[end];
+            double farthest = distances[0];
+            int farthestId = ids[0];
+            siftDown(distances, ids, end, distance, id);
+            distances[end] = farthest;
+            ids[end] = farthestId;
+        }
+        return found;
+    }
+
+
+    // max-heap of squared distances, with the entity ids alongside
+    static private void siftUp(double[] distances, int[] ids, int position, double distance, int id) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (distances[parent] >= distance) break;
+            distances[position] = distances[parent];
+            ids[position] = ids[parent];
+            position = parent;
+        }
+        distances[position] = distance;
+        ids[position] = id;
+    }
+
+
+    // replaces the top of a max-heap of the given size
+    static private void siftDown(double[] distances, int[] ids, int size, double distance, int id) {
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) break;
+            if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+            if (distances[child] <= distance) break;
+            distances[position] = distances[child];
+            ids[position] = ids[child];
+            position = child;
+        }
+        distances[position] = distance;
+        ids[position] = id;
+    }
+}
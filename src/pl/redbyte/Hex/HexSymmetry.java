@@ -0,0 +1,198 @@
+package pl.redbyte.Hex;
+
+import java.util.Objects;
+
+public class HexSymmetry {
+
+    /**
+     * The 12 symmetries of the hex grid around {@code Hex(0, 0, 0)}: 6 rotations, and the same rotations applied after
+     * a reflection, applied to many hexes at once.
+     * <p>
+     * Symmetry {@code k} in [0..6) is {@code k} steps of {@code Hex.rotateLeft}; symmetry {@code 6 + k} reflects the hex
+     * first, swapping its r and s coordinates, then rotates it {@code k} steps left. Every symmetry is a linear map of
+     * the axial coordinates, {@code q' = a * q + b * r} and {@code r' = c * q + d * r}, with the coefficients in a
+     * table, so the bulk methods are a branch-free loop over {@code int} arrays or packed {@code HexKey}s with no
+     * {@code Hex} objects.
+     */
+    static public final int COUNT = 12;
+
+    // a, b, c, d of every symmetry
+    static private final int[] MATRIX = new int[COUNT * 4];
+
+    static {
+        for (int k = 0; k < COUNT; k++) {
+            // reflection: (q, r, s) -> (q, s, r)
+            int a = 1, b = 0, c = k < 6 ? 0 : -1, d = k < 6 ? 1 : -1;
+            for (int step = 0; step < k % 6; step++) {
+                // rotateLeft: (q, r) -> (q + r, -q)
+                int na = a + c, nb = b + d;
+                c = -a;
+                d = -b;
+                a = na;
+                b = nb;
+            }
+            MATRIX[4 * k] = a;
+            MATRIX[4 * k + 1] = b;
+            MATRIX[4 * k + 2] = c;
+            MATRIX[4 * k + 3] = d;
+        }
+    }
+
+
+    private HexSymmetry() {
+    }
+
+
+    static private int checkSymmetry(int symmetry) {
+        if (symmetry < 0 || symmetry >= COUNT) throw new IllegalArgumentException("symmetry must be in [0..11]");
+        return 4 * symmetry;
+    }
+
+
+    /**
+     * Returns the symmetry that undoes the given one.
+     *
+     * @param symmetry symmetry in [0..11]
+     * @return inverse symmetry
+     * @throws IllegalArgumentException when symmetry is out of range.
+     */
+    static public int inverse(int symmetry) {
+        checkSymmetry(symmetry);
+        // reflections are their own inverses, rotations by k are undone by rotations by 6 - k
+        return symmetry < 6 ? (6 - symmetry) % 6 : symmetry;
+    }
+
+
+    /**
+     * Applies the symmetry to a hex.
+     *
+     * @param symmetry symmetry in [0..11]
+     * @param hex      the hexagon
+     * @return transformed {@code Hex}
+     * @throws IllegalArgumentException when symmetry is out of range.
+     */
+    static public Hex transform(int symmetry, Hex hex) {
+        int m = checkSymmetry(symmetry);
+        return Hex.of(MATRIX[m] * hex.q + MATRIX[m + 1] * hex.r, MATRIX[m + 2] * hex.q + MATRIX[m + 3] * hex.r);
+    }
+
+
+    /**
+     * Applies the symmetry to a batch of hexes. The output arrays may be the input arrays.
+     *
+     * @param symmetry symmetry in [0..11]
+     * @param q        q coordinates of the hexes
+     * @param r        r coordinates of the hexes
+     * @param outQ     receives the transformed q coordinates
+     * @param outR     receives the transformed r coordinates
+     * @param start    index of the first hex in the arrays
+     * @param length   number of hexes
+     * @throws IllegalArgumentException  when symmetry is out of range.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void transform(int symmetry, int[] q, int[] r, int[] outQ, int[] outR, int start, int length) {
+        int m = checkSymmetry(symmetry);
+        Objects.checkFromIndexSize(start, length, q.length);
+        Objects.checkFromIndexSize(start, length, r.length);
+        Objects.checkFromIndexSize(start, length, outQ.length);
+        Objects.checkFromIndexSize(start, length, outR.length);
+        int a = MATRIX[m], b = MATRIX[m + 1], c = MATRIX[m + 2], d = MATRIX[m + 3];
+        for (int i = start; i < start + length; i++) {
+            int hq = q[i];
+            int hr = r[i];
+            outQ[i] = a * hq + b * hr;
+            outR[i] = c * hq + d * hr;
+        }
+    }
+
+
+    /**
+     * Applies the symmetry to a batch of packed hexes (see {@code HexKey}). The output array may be the input array.
+     *
+     * @param symmetry symmetry in [0..11]
+     * @param keys     packed hexes
+     * @param out      receives the transformed packed hexes
+     * @param start    index of the first hex in the arrays
+     * @param length   number of hexes
+     * @throws IllegalArgumentException  when symmetry is out of range.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void transform(int symmetry, long[] keys, long[] out, int start, int length) {
+        int m = checkSymmetry(symmetry);
+        Objects.checkFromIndexSize(start, length, keys.length);
+        Objects.checkFromIndexSize(start, length, out.length);
+        int a = MATRIX[m], b = MATRIX[m + 1], c = MATRIX[m + 2], d = MATRIX[m + 3];
+        for (int i = start; i < start + length; i++) {
+            int hq = HexKey.q(keys[i]);
+            int hr = HexKey.r(keys[i]);
+            out[i] = HexKey.pack(a * hq + b * hr, c * hq + d * hr);
+        }
+    }
+
+
+    /**
+     * Moves a batch of hexes by the vector. The output arrays may be the input arrays.
+     *
+     * @param dq     q of the vector
+     * @param dr     r of the vector
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param outQ   receives the moved q coordinates
+     * @param outR   receives the moved r coordinates
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void translate(int dq, int dr, int[] q, int[] r, int[] outQ, int[] outR, int start, int length) {
+        Objects.checkFromIndexSize(start, length, q.length);
+        Objects.checkFromIndexSize(start, length, r.length);
+        Objects.checkFromIndexSize(start, length, outQ.length);
+        Objects.checkFromIndexSize(start, length, outR.length);
+        for (int i = start; i < start + length; i++) {
+            outQ[i] = q[i] + dq;
+            outR[i] = r[i] + dr;
+        }
+    }
+
+
+    /**
+     * Moves a batch of packed hexes (see {@code HexKey}) by the vector. The output array may be the input array.
+     *
+     * @param dq     q of the vector
+     * @param dr     r of the vector
+     * @param keys   packed hexes
+     * @param out    receives the moved packed hexes
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void translate(int dq, int dr, long[] keys, long[] out, int start, int length) {
+        Objects.checkFromIndexSize(start, length, keys.length);
+        Objects.checkFromIndexSize(start, length, out.length);
+        for (int i = start; i < start + length; i++) {
+            out[i] = HexKey.pack(HexKey.q(keys[i]) + dq, HexKey.r(keys[i]) + dr);
+        }
+    }
+
+
+    /**
+     * Applies the symmetry around {@code Hex(0, 0, 0)} to a region and writes the result to another region, which may
+     * have a different shape. Hexes that land outside of the target's shape are dropped.
+     *
+     * @param symmetry symmetry in [0..11]
+     * @param source   region to transform
+     * @param target   receives the transformed hexes, in addition to its own
+     * @throws IllegalArgumentException when symmetry is out of range or the regions are the same object.
+     */
+    static public void transform(int symmetry, HexRegion source, HexRegion target) {
+        int m = checkSymmetry(symmetry);
+        if (source == target) throw new IllegalArgumentException("source and target must be different regions");
+        int a = MATRIX[m], b = MATRIX[m + 1], c = MATRIX[m + 2], d = MATRIX[m + 3];
+        HexShape shape = target.shape;
+        source.forEach((q, r) -> {
+            int index = shape.index(a * q + b * r, c * q + d * r);
+            if (index >= 0) target.addAt(index);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package pl.redbyte.Hex;
+
+public class HexViewport {
+
+    /**
+     * The hexes visible through a moving camera rectangle, tracked from frame to frame.
+     * <p>
+     * The visible hexes of a rectangle are a range of rows ({@code Layout.hexesInRect}), each cut to a range of hexes,
+     * so the viewport only remembers two numbers per row. {@code move} computes the ranges of the new rectangle and
+     * compares them with the previous ones row by row: the hexes of the new ranges that were not in the old ones have
+     * entered the view, and the other way round they have left it. The cost is proportional to the number of rows and
+     * of changed hexes, not to the number of visible hexes, and the arrays are reused from frame to frame.
+     */
+    public final Layout layout;
+    private final boolean rowsAreR;
+    private int first = 1;
+    private int last;
+    private int[] low = new int[64];
+    private int[] high = new int[64];
+    private int[] nextLow = new int[64];
+    private int[] nextHigh = new int[64];
+
+
+    /**
+     * Viewport constructor. The viewport is empty until it is moved for the first time.
+     *
+     * @param layout layout of the map, pointy or flat
+     * @return {@code HexViewport} object
+     * @throws IllegalArgumentException when the orientation is neither pointy nor flat.
+     */
+    public HexViewport(Layout layout) {
+        this.layout = layout;
+        this.rowsAreR = layout.viewportRowsAreR();
+    }
+
+
+    /**
+     * Moves the viewport to the rectangle and reports the hexes that entered and left the view. The hexes that left
+     * are reported before the ones that entered, and the values returned by the visitors are ignored.
+     *
+     * @param x0      x coordinate of a corner of the rectangle
+     * @param y0      y coordinate of a corner of the rectangle
+     * @param x1      x coordinate of the opposite corner
+     * @param y1      y coordinate of the opposite corner
+     * @param entered receives the hexes that became visible, or {@code null}
+     * @param left    receives the hexes that are not visible anymore, or {@code null}
+     */
+    public void move(double x0, double y0, double x1, double y1, HexVisitor entered, HexVisitor left) {
+        long rows = layout.viewportRows(x0, y0, x1, y1);
+        int newFirst = HexKey.q(rows);
+        int newLast = HexKey.r(rows);
+        int count = Math.max(newLast - newFirst + 1, 0);
+        if (nextLow.length < count) {
+            nextLow = new int[Math.max(count, nextLow.length << 1)];
+            nextHigh = new int[nextLow.length];
+        }
+        for (int row = newFirst; row <= newLast; row++) {
+            long columns = layout.viewportRow(row, x0, y0, x1, y1);
+            nextLow[row - newFirst] = HexKey.q(columns);
+            nextHigh[row - newFirst] = HexKey.r(columns);
+        }
+        if (left != null) {
+            for (int row = first; row <= last; row++) {
+                int a = low[row - first];
+                int b = high[row - first];
+                boolean kept = row >= newFirst && row <= newLast;
+                report(row, a, b, kept ? nextLow[row - newFirst] : 1, kept ? nextHigh[row - newFirst] : 0, left);
+            }
+        }
+        if (entered != null) {
+            for (int row = newFirst; row <= newLast; row++) {
+                int a = nextLow[row - newFirst];
+                int b = nextHigh[row - newFirst];
+                boolean kept = row >= first && row <= last;
+                report(row, a, b, kept ? low[row - first] : 1, kept ? high[row - first] : 0, entered);
+            }
+        }
+        int[] swap = low;
+        low = nextLow;
+        nextLow = swap;
+        swap = high;
+        high = nextHigh;
+        nextHigh = swap;
+        first = newFirst;
+        last = newLast;
+    }
+
+
+    // visits the hexes of [a..b] that are not in [c..d] on the row
+    private void report(int row, int a, int b, int c, int d, HexVisitor visitor) {
+        if (c > d) {
+            visit(row, a, b, visitor);
+            return;
+        }
+        visit(row, a, Math.min(b, c - 1), visitor);
+        visit(row, Math.max(a, d + 1), b, visitor);
+    }
+
+
+    private void visit(int row, int from, int to, HexVisitor visitor) {
+        for (int column = from; column <= to; column++) {
+            if (rowsAreR) visitor.visit(column, row);
+            else visitor.visit(row, column);
+        }
+    }
+
+
+    /**
+     * Returns {@code true} if the hex is visible in the current rectangle.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is visible
+     */
+    public boolean contains(int q, int r) {
+        int row = rowsAreR ? r : q;
+        int column = rowsAreR ? q : r;
+        return row >= first && row <= last && column >= low[row - first] && column <= high[row - first];
+    }
+
+
+    /**
+     * Visits the hexes visible in the current rectangle.
+     *
+     * @param visitor receives the hexes
+     * @return {@code true} if all hexes were visited, {@code false} if the visitor stopped the enumeration
+     */
+    public boolean forEach(HexVisitor visitor) {
+        for (int row = first; row <= last; row++) {
+            for (int column = low[row - first]; column <= high[row - first]; column++) {
+                if (!(rowsAreR ? visitor.visit(column, row) : visitor.visit(row, column))) return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Forgets the current rectangle; the next {@code move} reports all its hexes as entered.
+     */
+    public void clear() {
+        first = 1;
+        last = 0;
+    }
+}
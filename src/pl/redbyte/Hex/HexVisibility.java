@@ -0,0 +1,116 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class HexVisibility {
+
+    /**
+     * Result of {@code HexFieldOfView}: the hexes visible from one viewer. It is a bitset over the indexes of the
+     * shape, for constant time {@code isVisible} checks, plus the list of the visible indexes, so iterating and
+     * clearing the result costs as much as the number of visible hexes, not the size of the map.
+     * <p>
+     * A result also remembers the viewer, the radius and the version of the opacity map it was computed for, which
+     * lets {@code HexFieldOfView.update} skip the computation when nothing relevant has changed. Keep one result per
+     * viewer and pass it to {@code update} every tick.
+     */
+    final HexShape shape;
+    final long[] bits;
+    int[] visible = new int[64];
+    int count;
+    int viewerQ;
+    int viewerR;
+    int radius = -1;
+    long version = -1;
+
+
+    /**
+     * Visibility constructor. The result is empty until it is passed to {@code HexFieldOfView.update}.
+     *
+     * @param shape shape of the map
+     * @return {@code HexVisibility} object
+     */
+    public HexVisibility(HexShape shape) {
+        this.shape = shape;
+        this.bits = new long[(shape.size() + 63) >>> 6];
+    }
+
+
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            int index = visible[i];
+            bits[index >>> 6] &= ~(1L << index);
+        }
+        count = 0;
+    }
+
+
+    void add(int index) {
+        long mask = 1L << index;
+        if ((bits[index >>> 6] & mask) != 0) return;
+        bits[index >>> 6] |= mask;
+        if (count == visible.length) visible = Arrays.copyOf(visible, count << 1);
+        visible[count++] = index;
+    }
+
+
+    /**
+     * Returns {@code true} if the hex is visible.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex is visible
+     */
+    public boolean isVisible(int q, int r) {
+        int index = shape.index(q, r);
+        return index >= 0 && (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+
+    /**
+     * Returns the number of visible hexes.
+     *
+     * @return number of visible hexes
+     */
+    public int count() {
+        return count;
+    }
+
+
+    /**
+     * Returns the shape index of the visible hex at the position. Positions follow the order in which the hexes
+     * were found (by distance from the viewer).
+     *
+     * @param position position in [0..count())
+     * @return index of the hex in the shape
+     */
+    public int index(int position) {
+        if (position < 0 || position >= count) throw new IndexOutOfBoundsException("position " + position + " is outside of the result");
+        return visible[position];
+    }
+
+
+    /**
+     * Returns the raw bitset of the visible hexes: bit {@code i} of the array is set when the hex with shape index
+     * {@code i} is visible. The array must not be modified.
+     *
+     * @return bitset over the shape indexes
+     */
+    public long[] bits() {
+        return bits;
+    }
+
+
+    /**
+     * Visits the visible hexes.
+     *
+     * @param visitor receives the visible hexes
+     * @return {@code true} if all hexes were visited, {@code false} if the visitor stopped the enumeration
+     */
+    public boolean forEach(HexVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            int index = visible[i];
+            if (!visitor.visit(shape.q(index), shape.r(index))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package pl.redbyte.Hex;
+
+/**
+ * Receives hexes one by one as axial coordinates, so the methods that enumerate hexes (lines, ranges, viewports)
+ * don't have to create a {@code Hex} object per hex. Returning {@code false} stops the enumeration.
+ */
+@FunctionalInterface
+public interface HexVisitor {
+
+    /**
+     * Visits a hex.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} to continue, {@code false} to stop the enumeration
+     */
+    boolean visit(int q, int r);
+}
@@ -0,0 +1,365 @@
+package pl.redbyte.Hex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class HexWorldStore implements Closeable {
+
+    /**
+     * Persistent storage of per-hex records, kept in a memory-mapped file instead of the heap.
+     * <p>
+     * The world is a rectangle of axial chunks: a chunk holds the hexes whose {@code q >> chunkShift} and
+     * {@code r >> chunkShift} are the same, so it has {@code 2^chunkShift} by {@code 2^chunkShift} hexes. Every hex
+     * has a record of {@code cellBytes} bytes, and records are laid out chunk by chunk, so the location of a hex in the
+     * file is computed from its coordinates alone. The file is mapped in segments of whole chunks (each below the 2 GB
+     * limit of a {@code ByteBuffer}), and the fields of a record are read and written in place by their byte offset.
+     * <p>
+     * Opening a world only reads the header and maps the file, which takes milliseconds whatever its size. The
+     * operating system loads the pages that are used and evicts the ones that are not, so the heap does not grow with
+     * the world, and parts of the world that were never written take no disk space on file systems with sparse files.
+     * <p>
+     * Different threads may access different hexes at the same time. Changes reach the file when the operating system
+     * writes the pages back, or at the latest on {@code force} and {@code close}.
+     */
+    static private final int MAGIC = 0x48455857; // "HEXW"
+    static private final int VERSION = 1;
+    static private final int HEADER_BYTES = 4096;
+
+    public final int chunkShift;
+    public final int cellBytes;
+    private final int chunkQMin;
+    private final int chunkRMin;
+    private final int chunksQ;
+    private final int chunksR;
+    private final int chunkBytes;
+    private final int chunksPerSegment;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+
+
+    private HexWorldStore(FileChannel channel, int chunkShift, int cellBytes, int chunkQMin, int chunkRMin, int chunksQ, int chunksR) throws IOException {
+        this.channel = channel;
+        this.chunkShift = chunkShift;
+        this.cellBytes = cellBytes;
+        this.chunkQMin = chunkQMin;
+        this.chunkRMin = chunkRMin;
+        this.chunksQ = chunksQ;
+        this.chunksR = chunksR;
+        this.chunkBytes = cellBytes << (2 * chunkShift);
+        this.chunksPerSegment = Integer.MAX_VALUE / chunkBytes;
+        long chunks = (long) chunksQ * chunksR;
+        int segmentCount = (int) ((chunks + chunksPerSegment - 1) / chunksPerSegment);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i * chunksPerSegment;
+            long size = Math.min(chunksPerSegment, chunks - first) * chunkBytes;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * chunkBytes, size);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+
+    /**
+     * Creates a new world file, with all records filled with zeros. An existing file is replaced.
+     *
+     * @param path       path of the file
+     * @param chunkShift base 2 logarithm of the chunk side, in [1..10]
+     * @param cellBytes  size of the record of a hex, in [1..1024]
+     * @param qMin       smallest q coordinate of the world
+     * @param qMax       largest q coordinate of the world
+     * @param rMin       smallest r coordinate of the world
+     * @param rMax       largest r coordinate of the world
+     * @return {@code HexWorldStore} object
+     * @throws IllegalArgumentException when the parameters are out of range or a chunk would not fit in a segment.
+     * @throws IOException              when the file cannot be created or mapped.
+     */
+    static public HexWorldStore create(Path path, int chunkShift, int cellBytes, int qMin, int qMax, int rMin, int rMax) throws IOException {
+        if (qMin > qMax || rMin > rMax) throw new IllegalArgumentException("world bounds are empty");
+        if (chunkShift < 1 || chunkShift > 10) throw new IllegalArgumentException("chunk shift must be in [1..10]");
+        int chunkQMin = qMin >> chunkShift;
+        int chunkRMin = rMin >> chunkShift;
+        int chunksQ = (qMax >> chunkShift) - chunkQMin + 1;
+        int chunksR = (rMax >> chunkShift) - chunkRMin + 1;
+        String error = checkLayout(chunkShift, cellBytes, chunkQMin, chunkRMin, chunksQ, chunksR);
+        if (error != null) throw new IllegalArgumentException(error);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(chunkShift).putInt(cellBytes);
+            header.putInt(chunkQMin).putInt(chunkRMin).putInt(chunksQ).putInt(chunksR);
+            header.flip();
+            channel.write(header, 0);
+            long length = HEADER_BYTES + (long) chunksQ * chunksR * ((long) cellBytes << (2 * chunkShift));
+            // writing the last byte sets the length of the file without writing the records
+            channel.write(ByteBuffer.allocate(1), length - 1);
+            return new HexWorldStore(channel, chunkShift, cellBytes, chunkQMin, chunkRMin, chunksQ, chunksR);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    // returns what is wrong with the layout, or null when it is valid; the header of a file is checked the same way
+    static private String checkLayout(int chunkShift, int cellBytes, int chunkQMin, int chunkRMin, int chunksQ, int chunksR) {
+        if (chunkShift < 1 || chunkShift > 10) return "chunk shift must be in [1..10]";
+        if (cellBytes < 1 || cellBytes > 1024) return "cell bytes must be in [1..1024]";
+        long chunkBytes = (long) cellBytes << (2 * chunkShift);
+        if (chunkBytes > Integer.MAX_VALUE) return "chunk is larger than 2 GB";
+        if (chunksQ < 1 || chunksR < 1) return "chunk counts must be positive";
+        // the chunks must cover coordinates that exist, and the file length must fit in a long
+        if ((long) chunkQMin + chunksQ - 1 > Integer.MAX_VALUE >> chunkShift || chunkQMin < Integer.MIN_VALUE >> chunkShift
+                || (long) chunkRMin + chunksR - 1 > Integer.MAX_VALUE >> chunkShift || chunkRMin < Integer.MIN_VALUE >> chunkShift) {
+            return "chunks are outside of the coordinate range";
+        }
+        if ((long) chunksQ * chunksR > (Long.MAX_VALUE - HEADER_BYTES) / chunkBytes) return "world is too large";
+        return null;
+    }
+
+
+    /**
+     * Opens an existing world file.
+     *
+     * @param path path of the file
+     * @return {@code HexWorldStore} object
+     * @throws IOException when the file cannot be read or mapped, it is not a world file, or its header is corrupt.
+     */
+    static public HexWorldStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) break;
+            }
+            header.flip();
+            if (header.remaining() < 32 || header.getInt() != MAGIC) throw new IOException(path + " is not a hex world file");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException(path + " has unsupported version " + version);
+            int chunkShift = header.getInt();
+            int cellBytes = header.getInt();
+            int chunkQMin = header.getInt();
+            int chunkRMin = header.getInt();
+            int chunksQ = header.getInt();
+            int chunksR = header.getInt();
+            String error = checkLayout(chunkShift, cellBytes, chunkQMin, chunkRMin, chunksQ, chunksR);
+            if (error != null) throw new IOException(path + " has a corrupt header: " + error);
+            long length = HEADER_BYTES + (long) chunksQ * chunksR * ((long) cellBytes << (2 * chunkShift));
+            if (channel.size() < length) throw new IOException(path + " is truncated");
+            return new HexWorldStore(channel, chunkShift, cellBytes, chunkQMin, chunkRMin, chunksQ, chunksR);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns {@code true} if the hex is inside the world. The world covers whole chunks, so it can be slightly
+     * larger than the bounds it was created with.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return {@code true} if the hex has a record
+     */
+    public boolean contains(int q, int r) {
+        int chunkQ = (q >> chunkShift) - chunkQMin;
+        int chunkR = (r >> chunkShift) - chunkRMin;
+        return chunkQ >= 0 && chunkQ < chunksQ && chunkR >= 0 && chunkR < chunksR;
+    }
+
+
+    // segment in the upper 32 bits, position of the field in the lower 32 bits
+    private long locate(int q, int r, int field, int width) {
+        int chunkQ = (q >> chunkShift) - chunkQMin;
+        int chunkR = (r >> chunkShift) - chunkRMin;
+        if (chunkQ < 0 || chunkQ >= chunksQ || chunkR < 0 || chunkR >= chunksR) {
+            throw new IndexOutOfBoundsException("Hex(q: " + q + ", r: " + r + ") is outside of the world");
+        }
+        if (field < 0 || field > cellBytes - width) {
+            throw new IndexOutOfBoundsException("field " + field + " is outside of the " + cellBytes + " byte record");
+        }
+        int side = (1 << chunkShift) - 1;
+        long chunk = (long) chunkR * chunksQ + chunkQ;
+        int segment = (int) (chunk / chunksPerSegment);
+        int cell = ((r & side) << chunkShift) | (q & side);
+        int position = (int) (chunk - (long) segment * chunksPerSegment) * chunkBytes + cell * cellBytes + field;
+        return ((long) segment << 32) | position;
+    }
+
+
+    /**
+     * Returns the {@code byte} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public byte getByte(int q, int r, int field) {
+        long location = locate(q, r, field, Byte.BYTES);
+        return segments[(int) (location >>> 32)].get((int) location);
+    }
+
+
+    /**
+     * Sets the {@code byte} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @param value new value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public void putByte(int q, int r, int field, byte value) {
+        long location = locate(q, r, field, Byte.BYTES);
+        segments[(int) (location >>> 32)].put((int) location, value);
+    }
+
+
+    /**
+     * Returns the {@code short} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public short getShort(int q, int r, int field) {
+        long location = locate(q, r, field, Short.BYTES);
+        return segments[(int) (location >>> 32)].getShort((int) location);
+    }
+
+
+    /**
+     * Sets the {@code short} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @param value new value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public void putShort(int q, int r, int field, short value) {
+        long location = locate(q, r, field, Short.BYTES);
+        segments[(int) (location >>> 32)].putShort((int) location, value);
+    }
+
+
+    /**
+     * Returns the {@code int} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public int getInt(int q, int r, int field) {
+        long location = locate(q, r, field, Integer.BYTES);
+        return segments[(int) (location >>> 32)].getInt((int) location);
+    }
+
+
+    /**
+     * Sets the {@code int} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @param value new value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public void putInt(int q, int r, int field, int value) {
+        long location = locate(q, r, field, Integer.BYTES);
+        segments[(int) (location >>> 32)].putInt((int) location, value);
+    }
+
+
+    /**
+     * Returns the {@code float} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public float getFloat(int q, int r, int field) {
+        long location = locate(q, r, field, Float.BYTES);
+        return segments[(int) (location >>> 32)].getFloat((int) location);
+    }
+
+
+    /**
+     * Sets the {@code float} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @param value new value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public void putFloat(int q, int r, int field, float value) {
+        long location = locate(q, r, field, Float.BYTES);
+        segments[(int) (location >>> 32)].putFloat((int) location, value);
+    }
+
+
+    /**
+     * Returns the {@code long} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public long getLong(int q, int r, int field) {
+        long location = locate(q, r, field, Long.BYTES);
+        return segments[(int) (location >>> 32)].getLong((int) location);
+    }
+
+
+    /**
+     * Sets the {@code long} field of the record of the hex.
+     *
+     * @param q     Axial coordinate
+     * @param r     Axial coordinate
+     * @param field byte offset of the field in the record
+     * @param value new value of the field
+     * @throws IndexOutOfBoundsException when the hex is outside of the world or the field is outside of the record.
+     */
+    public void putLong(int q, int r, int field, long value) {
+        long location = locate(q, r, field, Long.BYTES);
+        segments[(int) (location >>> 32)].putLong((int) location, value);
+    }
+
+
+    /**
+     * Writes the changed pages to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) segment.force();
+    }
+
+
+    /**
+     * Writes the changed pages to the file and closes it. The mapped segments are released when they are garbage
+     * collected, and the store must not be used anymore.
+     *
+     * @throws IOException when the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
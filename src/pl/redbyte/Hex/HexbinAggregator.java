@@ -0,0 +1,177 @@
+package pl.redbyte.Hex;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+public class HexbinAggregator {
+
+    /**
+     * Hexbinning puts every point of a point cloud into the hex that contains it (see {@code Layout.pixelToHex}) and
+     * aggregates the points per hex: count, and sum, minimum and maximum of an optional weight column.
+     * <p>
+     * Points are read from {@code double[]} columns. The range of points is split recursively on a fork-join pool,
+     * and every worker thread bins its pieces into its own partial {@code Hexbins} table, so workers never share
+     * writable state. At the end the partial tables (one per thread, not one per piece) are merged pairwise, also in
+     * parallel.
+     */
+    public final Layout layout;
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+
+    /**
+     * Aggregator constructor, running on the common fork-join pool.
+     *
+     * @param layout layout that maps points to hexes
+     * @return {@code HexbinAggregator} object
+     */
+    public HexbinAggregator(Layout layout) {
+        this(layout, ForkJoinPool.commonPool(), 1 << 15);
+    }
+
+
+    /**
+     * Aggregator constructor.
+     *
+     * @param layout    layout that maps points to hexes
+     * @param pool      pool running the aggregation
+     * @param threshold the smallest number of points worth splitting into two tasks
+     * @return {@code HexbinAggregator} object
+     * @throws IllegalArgumentException when threshold is not positive.
+     */
+    public HexbinAggregator(Layout layout, ForkJoinPool pool, int threshold) {
+        if (threshold <= 0) throw new IllegalArgumentException("threshold must be positive");
+        this.layout = layout;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+
+    /**
+     * Aggregates all points, every point with weight 1.
+     *
+     * @param x x coordinates of the points
+     * @param y y coordinates of the points
+     * @return aggregates per hex
+     */
+    public Hexbins aggregate(double[] x, double[] y) {
+        return aggregate(x, y, null, 0, x.length);
+    }
+
+
+    /**
+     * Aggregates all points.
+     *
+     * @param x      x coordinates of the points
+     * @param y      y coordinates of the points
+     * @param weight weights of the points, or {@code null} for weight 1
+     * @return aggregates per hex
+     */
+    public Hexbins aggregate(double[] x, double[] y, double[] weight) {
+        return aggregate(x, y, weight, 0, x.length);
+    }
+
+
+    /**
+     * Aggregates {@code length} points starting at {@code offset}.
+     *
+     * @param x      x coordinates of the points
+     * @param y      y coordinates of the points
+     * @param weight weights of the points, or {@code null} for weight 1
+     * @param offset index of the first point
+     * @param length number of points
+     * @return aggregates per hex
+     * @throws IndexOutOfBoundsException when the range doesn't fit into any of the arrays.
+     */
+    public Hexbins aggregate(double[] x, double[] y, double[] weight, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, x.length);
+        Objects.checkFromIndexSize(offset, length, y.length);
+        if (weight != null) Objects.checkFromIndexSize(offset, length, weight.length);
+        ConcurrentHashMap<Thread, Hexbins> partials = new ConcurrentHashMap<>();
+        pool.invoke(new BinTask(x, y, weight, offset, offset + length, partials));
+        ArrayList<Hexbins> tables = new ArrayList<>(partials.values());
+        if (tables.isEmpty()) return new Hexbins(16);
+        return pool.invoke(new MergeTask(tables, 0, tables.size()));
+    }
+
+
+    private class BinTask extends RecursiveAction {
+        static private final long serialVersionUID = 1L;
+
+        private final double[] x;
+        private final double[] y;
+        private final double[] weight;
+        private final int from;
+        private final int to;
+        private final ConcurrentHashMap<Thread, Hexbins> partials;
+
+        BinTask(double[] x, double[] y, double[] weight, int from, int to, ConcurrentHashMap<Thread, Hexbins> partials) {
+            this.x = x;
+            this.y = y;
+            this.weight = weight;
+            this.from = from;
+            this.to = to;
+            this.partials = partials;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                bin(partials.computeIfAbsent(Thread.currentThread(), thread -> new Hexbins(1024)));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BinTask(x, y, weight, from, middle, partials), new BinTask(x, y, weight, middle, to, partials));
+        }
+
+        private void bin(Hexbins table) {
+            Orientation M = layout.orientation;
+            double b0 = M.b0, b1 = M.b1, b2 = M.b2, b3 = M.b3;
+            double sizeX = layout.size.x, sizeY = layout.size.y;
+            double originX = layout.origin.x, originY = layout.origin.y;
+            double[] x = this.x, y = this.y, weight = this.weight;
+            for (int i = from; i < to; i++) {
+                double px = (x[i] - originX) / sizeX;
+                double py = (y[i] - originY) / sizeY;
+                double fq = b0 * px + b1 * py;
+                double fr = b2 * px + b3 * py;
+                table.add(FractionalHex.hexRound(fq, fr, -fq - fr), weight == null ? 1.0 : weight[i]);
+            }
+        }
+    }
+
+
+    static private class MergeTask extends RecursiveTask<Hexbins> {
+        static private final long serialVersionUID = 1L;
+
+        private final ArrayList<Hexbins> tables;
+        private final int from;
+        private final int to;
+
+        MergeTask(ArrayList<Hexbins> tables, int from, int to) {
+            this.tables = tables;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Hexbins compute() {
+            if (to - from == 1) return tables.get(from);
+            int middle = (from + to) >>> 1;
+            MergeTask right = new MergeTask(tables, middle, to);
+            right.fork();
+            Hexbins left = new MergeTask(tables, from, middle).compute();
+            Hexbins other = right.join();
+            if (other.size() > left.size()) {
+                other.merge(left);
+                return other;
+            }
+            left.merge(other);
+            return left;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package pl.redbyte.Hex;
+
+import java.util.Arrays;
+
+public class Hexbins {
+
+    /**
+     * Result of {@code HexbinAggregator}: one row per non-empty hex, with the number of points that fell into the hex
+     * and the sum, minimum and maximum of their weights.
+     * <p>
+     * Rows are stored column by column in primitive arrays, and {@code indexOf} finds the row of a hex through a
+     * {@code HexLongIntMap}, so neither building nor reading the result creates {@code Hex} objects.
+     */
+    private final HexLongIntMap rows;
+    private long[] keys;
+    private long[] count;
+    private double[] sum;
+    private double[] min;
+    private double[] max;
+    private int size;
+
+
+    Hexbins(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        rows = new HexLongIntMap(capacity, -1);
+        keys = new long[capacity];
+        count = new long[capacity];
+        sum = new double[capacity];
+        min = new double[capacity];
+        max = new double[capacity];
+    }
+
+
+    private int row(long key) {
+        int slot = rows.insert(key);
+        if (slot >= 0) return rows.valueAt(slot);
+        int row = size++;
+        if (row == keys.length) grow();
+        rows.setValueAt(~slot, row);
+        keys[row] = key;
+        min[row] = Double.POSITIVE_INFINITY;
+        max[row] = Double.NEGATIVE_INFINITY;
+        return row;
+    }
+
+
+    private void grow() {
+        int capacity = keys.length << 1;
+        keys = Arrays.copyOf(keys, capacity);
+        count = Arrays.copyOf(count, capacity);
+        sum = Arrays.copyOf(sum, capacity);
+        min = Arrays.copyOf(min, capacity);
+        max = Arrays.copyOf(max, capacity);
+    }
+
+
+    void add(long key, double weight) {
+        int row = row(key);
+        count[row]++;
+        sum[row] += weight;
+        if (weight < min[row]) min[row] = weight;
+        if (weight > max[row]) max[row] = weight;
+    }
+
+
+    void merge(Hexbins other) {
+        for (int i = 0; i < other.size; i++) {
+            int row = row(other.keys[i]);
+            count[row] += other.count[i];
+            sum[row] += other.sum[i];
+            if (other.min[i] < min[row]) min[row] = other.min[i];
+            if (other.max[i] > max[row]) max[row] = other.max[i];
+        }
+    }
+
+
+    /**
+     * Returns the number of non-empty hexes.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the row of the hex, or -1 if no point fell into the hex.
+     *
+     * @param q Axial coordinate
+     * @param r Axial coordinate
+     * @return row in [0..size()), or -1
+     */
+    public int indexOf(int q, int r) {
+        return rows.get(HexKey.pack(q, r));
+    }
+
+
+    /**
+     * Returns the row of the hex, or -1 if no point fell into the hex.
+     *
+     * @param hex the hexagon
+     * @return row in [0..size()), or -1
+     */
+    public int indexOf(Hex hex) {
+        return indexOf(hex.q, hex.r);
+    }
+
+
+    /**
+     * Returns the hex of the row, packed by {@code HexKey}.
+     *
+     * @param row row in [0..size())
+     * @return packed key
+     */
+    public long key(int row) {
+        return keys[checkRow(row)];
+    }
+
+
+    /**
+     * Returns the q coordinate of the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return q coordinate
+     */
+    public int q(int row) {
+        return HexKey.q(key(row));
+    }
+
+
+    /**
+     * Returns the r coordinate of the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return r coordinate
+     */
+    public int r(int row) {
+        return HexKey.r(key(row));
+    }
+
+
+    /**
+     * Returns the number of points that fell into the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return number of points
+     */
+    public long count(int row) {
+        return count[checkRow(row)];
+    }
+
+
+    /**
+     * Returns the sum of the weights of the points that fell into the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return sum of weights
+     */
+    public double sum(int row) {
+        return sum[checkRow(row)];
+    }
+
+
+    /**
+     * Returns the smallest weight of the points that fell into the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return minimum weight
+     */
+    public double min(int row) {
+        return min[checkRow(row)];
+    }
+
+
+    /**
+     * Returns the largest weight of the points that fell into the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return maximum weight
+     */
+    public double max(int row) {
+        return max[checkRow(row)];
+    }
+
+
+    /**
+     * Returns the mean weight of the points that fell into the hex of the row.
+     *
+     * @param row row in [0..size())
+     * @return mean weight
+     */
+    public double mean(int row) {
+        return sum(row) / count[row];
+    }
+
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row + " is outside of the result");
+        return row;
+    }
+}
@@ -1,6 +1,7 @@
 package pl.redbyte.Hex;
 
 import java.util.ArrayList;
+import java.util.Objects;
 
 public class Layout {
 
@@ -114,6 +115,199 @@ public class Layout {
         return new FractionalHex(q, r, -q - r);
     }
 
+    /**
+     * Bulk version of {@code hexToPixel}. Converts {@code length} hexes starting at {@code offset}: the hex
+     * {@code (q[i], r[i])} is converted to the point {@code (x[i], y[i])}. It gives exactly the same results as
+     * {@code hexToPixel}, but doesn't create any {@code Hex} or {@code Point} objects.
+     *
+     * @param q      Axial coordinates of the hexes
+     * @param r      Axial coordinates of the hexes
+     * @param x      output x coordinates of the center points
+     * @param y      output y coordinates of the center points
+     * @param offset index of the first converted element
+     * @param length number of converted elements
+     * @throws IndexOutOfBoundsException when the range doesn't fit into any of the arrays.
+     */
+    public void hexToPixel(int[] q, int[] r, double[] x, double[] y, int offset, int length) {
+        checkRange(q.length, r.length, x.length, y.length, offset, length);
+        Orientation M = orientation;
+        double f0 = M.f0, f1 = M.f1, f2 = M.f2, f3 = M.f3;
+        double sizeX = size.x, sizeY = size.y, originX = origin.x, originY = origin.y;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int hq = q[i];
+            int hr = r[i];
+            x[i] = (f0 * hq + f1 * hr) * sizeX + originX;
+            y[i] = (f2 * hq + f3 * hr) * sizeY + originY;
+        }
+    }
+
+
+    /**
+     * Bulk version of {@code pixelToHex}. Converts {@code length} points starting at {@code offset}: the point
+     * {@code (x[i], y[i])} is converted to the hex {@code (q[i], r[i])} that contains it. It gives exactly the same
+     * results as {@code pixelToHex}, but rounds the fractional hexes inline, without creating any {@code Point},
+     * {@code FractionalHex} or {@code Hex} objects.
+     *
+     * @param x      x coordinates of the points
+     * @param y      y coordinates of the points
+     * @param q      output Axial coordinates of the hexes
+     * @param r      output Axial coordinates of the hexes
+     * @param offset index of the first converted element
+     * @param length number of converted elements
+     * @throws IndexOutOfBoundsException when the range doesn't fit into any of the arrays.
+     */
+    public void pixelToHex(double[] x, double[] y, int[] q, int[] r, int offset, int length) {
+        checkRange(x.length, y.length, q.length, r.length, offset, length);
+        Orientation M = orientation;
+        double b0 = M.b0, b1 = M.b1, b2 = M.b2, b3 = M.b3;
+        double sizeX = size.x, sizeY = size.y, originX = origin.x, originY = origin.y;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            double px = (x[i] - originX) / sizeX;
+            double py = (y[i] - originY) / sizeY;
+            double fq = b0 * px + b1 * py;
+            double fr = b2 * px + b3 * py;
+            long key = FractionalHex.hexRound(fq, fr, -fq - fr);
+            q[i] = HexKey.q(key);
+            r[i] = HexKey.r(key);
+        }
+    }
+
+
+    /**
+     * Bulk version of {@code pixelToFractionalHex}. Converts {@code length} points starting at {@code offset}: the
+     * point {@code (x[i], y[i])} is converted to the fractional hex {@code (q[i], r[i], -q[i]-r[i])}.
+     *
+     * @param x      x coordinates of the points
+     * @param y      y coordinates of the points
+     * @param q      output fractional cube coordinates
+     * @param r      output fractional cube coordinates
+     * @param offset index of the first converted element
+     * @param length number of converted elements
+     * @throws IndexOutOfBoundsException when the range doesn't fit into any of the arrays.
+     */
+    public void pixelToFractionalHex(double[] x, double[] y, double[] q, double[] r, int offset, int length) {
+        checkRange(x.length, y.length, q.length, r.length, offset, length);
+        Orientation M = orientation;
+        double b0 = M.b0, b1 = M.b1, b2 = M.b2, b3 = M.b3;
+        double sizeX = size.x, sizeY = size.y, originX = origin.x, originY = origin.y;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            double px = (x[i] - originX) / sizeX;
+            double py = (y[i] - originY) / sizeY;
+            q[i] = b0 * px + b1 * py;
+            r[i] = b2 * px + b3 * py;
+        }
+    }
+
+
+    /**
+     * The same as {@code pixelToHex}, but returns the hex packed by {@code HexKey}, without creating any objects.
+     *
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return packed key of the hex that contains the point
+     */
+    long pixelToHexKey(double x, double y) {
+        Orientation M = orientation;
+        double px = (x - origin.x) / size.x;
+        double py = (y - origin.y) / size.y;
+        double q = M.b0 * px + M.b1 * py;
+        double r = M.b2 * px + M.b3 * py;
+        return FractionalHex.hexRound(q, r, -q - r);
+    }
+
+
+    /**
+     * Visits the hexes that intersect the rectangle, row by row. The corners of the rectangle are inverted through the
+     * {@code b0..b3} matrix, which gives the rows of hexes that cover it (rows of r for pointy layouts, columns of q for
+     * flat ones), and every row is cut to the hexes whose outline reaches into the rectangle. The cost depends on the
+     * number of visible hexes only, and nothing is allocated. Negative sizes are handled, the rectangle may be given by
+     * any two opposite corners, and hexes that only touch it are included.
+     *
+     * @param x0      x coordinate of a corner of the rectangle
+     * @param y0      y coordinate of a corner of the rectangle
+     * @param x1      x coordinate of the opposite corner
+     * @param y1      y coordinate of the opposite corner
+     * @param visitor receives the hexes
+     * @return {@code true} if all hexes were visited, {@code false} if the visitor stopped the enumeration
+     * @throws IllegalArgumentException when the orientation is neither pointy nor flat.
+     */
+    public boolean hexesInRect(double x0, double y0, double x1, double y1, HexVisitor visitor) {
+        boolean pointy = viewportRowsAreR();
+        long rows = viewportRows(x0, y0, x1, y1);
+        for (int row = HexKey.q(rows), last = HexKey.r(rows); row <= last; row++) {
+            long columns = viewportRow(row, x0, y0, x1, y1);
+            for (int column = HexKey.q(columns), end = HexKey.r(columns); column <= end; column++) {
+                if (!(pointy ? visitor.visit(column, row) : visitor.visit(row, column))) return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns {@code true} when the rows of the viewport queries are rows of r (pointy layouts), and {@code false} when
+     * they are columns of q (flat layouts).
+     */
+    boolean viewportRowsAreR() {
+        if (orientation.f2 == 0.0 && orientation.b2 == 0.0) return true;
+        if (orientation.f1 == 0.0 && orientation.b1 == 0.0) return false;
+        throw new IllegalArgumentException("viewport queries need a pointy or flat orientation");
+    }
+
+
+    /**
+     * Returns the first and the last row that intersect the rectangle, packed like a {@code HexKey}; the range is
+     * empty when the first row is greater than the last one.
+     */
+    long viewportRows(double x0, double y0, double x1, double y1) {
+        boolean pointy = viewportRowsAreR();
+        Orientation M = orientation;
+        // rows in the coordinates of the unit hex, where the tips are 1 from the center
+        double a = pointy ? (y0 - origin.y) / size.y : (x0 - origin.x) / size.x;
+        double b = pointy ? (y1 - origin.y) / size.y : (x1 - origin.x) / size.x;
+        double scale = pointy ? M.b3 : M.b0;
+        double low = (Math.min(a, b) - 1.0) * scale;
+        double high = (Math.max(a, b) + 1.0) * scale;
+        return HexKey.pack((int) Math.ceil(Math.min(low, high)), (int) Math.floor(Math.max(low, high)));
+    }
+
+
+    /**
+     * Returns the first and the last hex of the row that intersect the rectangle, packed like {@code viewportRows}.
+     */
+    long viewportRow(int row, double x0, double y0, double x1, double y1) {
+        boolean pointy = viewportRowsAreR();
+        Orientation M = orientation;
+        double majorScale = pointy ? M.b3 : M.b0;
+        double minorScale = pointy ? M.b0 : M.b3;
+        double shear = pointy ? M.b1 : M.b2;
+        double a0 = pointy ? (y0 - origin.y) / size.y : (x0 - origin.x) / size.x;
+        double a1 = pointy ? (y1 - origin.y) / size.y : (x1 - origin.x) / size.x;
+        double c0 = pointy ? (x0 - origin.x) / size.x : (y0 - origin.y) / size.y;
+        double c1 = pointy ? (x1 - origin.x) / size.x : (y1 - origin.y) / size.y;
+        double center = row / majorScale;
+        // the part of the rectangle across the row, relative to the centers of its hexes
+        double from = Math.max(Math.min(a0, a1) - center, -1.0);
+        double to = Math.min(Math.max(a0, a1) - center, 1.0);
+        if (from > to) return HexKey.pack(1, 0);
+        double nearest = from > 0.0 ? from : to < 0.0 ? -to : 0.0;
+        // hexes are widest between the shoulders, at half of the tip distance, and narrow linearly towards the tips
+        double halfWidth = 0.5 / minorScale;
+        if (nearest > 0.5) halfWidth *= (1.0 - nearest) * 2.0;
+        double low = (Math.min(c0, c1) - halfWidth) * minorScale + shear * center;
+        double high = (Math.max(c0, c1) + halfWidth) * minorScale + shear * center;
+        return HexKey.pack((int) Math.ceil(Math.min(low, high)), (int) Math.floor(Math.max(low, high)));
+    }
+
+
+    static private void checkRange(int length0, int length1, int length2, int length3, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, length0);
+        Objects.checkFromIndexSize(offset, length, length1);
+        Objects.checkFromIndexSize(offset, length, length2);
+        Objects.checkFromIndexSize(offset, length, length3);
+    }
+
+
     /**
      * Returns array of hexagon corner's coordinates.
      *
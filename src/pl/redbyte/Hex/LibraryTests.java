@@ -1,10 +1,23 @@
 package pl.redbyte.Hex;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class LibraryTests {
 
+    static private int failures;
+
+
     static private void equalHex(String name, Hex a, Hex b)
     {
         if (!(a.q == b.q && a.s == b.s && a.r == b.r))
@@ -49,6 +62,17 @@ public class LibraryTests {
     }
 
 
+    static private void equalBoolean(String name, boolean a, boolean b)
+    {
+        if (!(a == b))
+        {
+            LibraryTests.complain(name);
+        } else {
+            reportSuccess(new Object(){}.getClass().getEnclosingMethod().getName());
+        }
+    }
+
+
     static private void equalHexArray(String name, ArrayList<Hex> a, ArrayList<Hex> b)
     {
         LibraryTests.equalInt(name, a.size(), b.size());
@@ -185,6 +209,1624 @@ public class LibraryTests {
     }
 
 
+    static private void testHexKey()
+    {
+        long key = HexKey.pack(-3, 7);
+        LibraryTests.equalHex("hex_key", new Hex(-3, 7, -4), HexKey.toHex(key));
+        LibraryTests.equalInt("hex_key s", -4, HexKey.s(key));
+        LibraryTests.equalInt("hex_key distance", 7, HexKey.distance(HexKey.pack(3, -7), HexKey.pack(0, 0)));
+        LibraryTests.equalHex("hex_key neighbor", new Hex(1, -3, 2), HexKey.toHex(HexKey.neighbor(HexKey.pack(1, -2), 2)));
+        LibraryTests.equalBoolean("hex_hash_code", true, new Hex(2, -5).hashCode() == new Hex(2, -5, 3).hashCode());
+    }
+
+
+    static private void testHexLongSet()
+    {
+        HexLongSet set = new HexLongSet();
+        LibraryTests.equalBoolean("hex_long_set add", true, set.add(0, 0));
+        LibraryTests.equalBoolean("hex_long_set add", true, set.add(1, -1));
+        LibraryTests.equalBoolean("hex_long_set add twice", false, set.add(1, -1));
+        LibraryTests.equalBoolean("hex_long_set contains origin", true, set.contains(0, 0));
+        LibraryTests.equalBoolean("hex_long_set remove", true, set.remove(0, 0));
+        LibraryTests.equalBoolean("hex_long_set contains removed", false, set.contains(0, 0));
+        LibraryTests.equalInt("hex_long_set size", 1, set.size());
+    }
+
+
+    static private void testHexLongMap()
+    {
+        Random random = new Random(1);
+        HexLongMap<Integer> map = new HexLongMap<>();
+        HexLongIntMap intMap = new HexLongIntMap();
+        HashMap<Hex, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++)
+        {
+            int q = random.nextInt(41) - 20;
+            int r = random.nextInt(41) - 20;
+            if (random.nextInt(3) == 0)
+            {
+                map.remove(HexKey.pack(q, r));
+                intMap.remove(HexKey.pack(q, r));
+                expected.remove(new Hex(q, r));
+            } else {
+                map.put(q, r, i);
+                intMap.put(q, r, i);
+                expected.put(new Hex(q, r), i);
+            }
+        }
+        LibraryTests.equalInt("hex_long_map size", expected.size(), map.size());
+        LibraryTests.equalInt("hex_long_int_map size", expected.size(), intMap.size());
+        boolean same = true;
+        int iterated = 0;
+        for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot))
+        {
+            iterated++;
+            same &= map.valueAt(slot).equals(expected.get(HexKey.toHex(map.keyAt(slot))));
+        }
+        for (int q = -20; q <= 20; q++)
+        {
+            for (int r = -20; r <= 20; r++)
+            {
+                Integer value = expected.get(new Hex(q, r));
+                same &= value == null ? map.get(q, r) == null && intMap.get(q, r) == -1 : value.equals(map.get(q, r)) && value == intMap.get(q, r);
+            }
+        }
+        LibraryTests.equalInt("hex_long_map iteration", expected.size(), iterated);
+        LibraryTests.equalBoolean("hex_long_map content", true, same);
+    }
+
+
+    static private void checkHexShape(String name, HexShape shape, int size)
+    {
+        LibraryTests.equalInt(name + " size", size, shape.size());
+        ArrayList<Hex> hexes = shape.hexes();
+        boolean consistent = hexes.size() == size;
+        for (int i = 0; i < hexes.size(); i++)
+        {
+            Hex hex = hexes.get(i);
+            consistent &= shape.index(hex) == i && shape.q(i) == hex.q && shape.r(i) == hex.r;
+            for (int direction = 0; direction < 6; direction++)
+            {
+                Hex neighbor = hex.neighbor(direction);
+                consistent &= shape.neighbor(i, hex.q, hex.r, direction) == shape.index(neighbor);
+                consistent &= shape.neighbor(i, direction) == shape.index(neighbor);
+            }
+        }
+        LibraryTests.equalBoolean(name + " index", true, consistent);
+    }
+
+
+    static private void testHexShape()
+    {
+        LibraryTests.checkHexShape("hex_shape parallelogram", HexShape.parallelogram(-2, 3, -1, 4), 36);
+        LibraryTests.checkHexShape("hex_shape triangle", HexShape.triangle(5), 21);
+        LibraryTests.checkHexShape("hex_shape hexagon", HexShape.hexagon(4), 61);
+        LibraryTests.checkHexShape("hex_shape pointy rectangle", HexShape.pointyTopRectangle(7, 5), 35);
+        LibraryTests.checkHexShape("hex_shape flat rectangle", HexShape.flatTopRectangle(7, 5), 35);
+        boolean inside = true;
+        for (Hex hex : HexShape.flatTopRectangle(7, 5).hexes())
+        {
+            OffsetCoord coords = OffsetCoord.flatTopOffsetFromCube(OffsetCoord.ODD, hex);
+            inside &= coords.col >= 0 && coords.col < 7 && coords.row >= 0 && coords.row < 5;
+        }
+        for (Hex hex : HexShape.pointyTopRectangle(7, 5).hexes())
+        {
+            OffsetCoord coords = OffsetCoord.pointyTopOffsetFromCube(OffsetCoord.ODD, hex);
+            inside &= coords.col >= 0 && coords.col < 7 && coords.row >= 0 && coords.row < 5;
+        }
+        LibraryTests.equalBoolean("hex_shape rectangle offset", true, inside);
+        LibraryTests.equalBoolean("hex_shape outside", true, HexShape.hexagon(2).index(3, 0) == -1);
+    }
+
+
+    static private void testHexGrid()
+    {
+        HexShape shape = HexShape.hexagon(3);
+        IntHexGrid ints = new IntHexGrid(shape);
+        DoubleHexGrid doubles = new DoubleHexGrid(shape);
+        HexGrid<String> strings = new HexGrid<>(shape);
+        ints.set(1, -2, 7);
+        doubles.set(new Hex(-3, 0), 2.5);
+        strings.set(0, 0, "origin");
+        LibraryTests.equalInt("hex_grid int", 7, ints.get(new Hex(1, -2)));
+        LibraryTests.equalBoolean("hex_grid double", true, doubles.getAt(shape.index(-3, 0)) == 2.5);
+        LibraryTests.equalBoolean("hex_grid object", true, "origin".equals(strings.get(0, 0)) && strings.get(1, 0) == null);
+        boolean thrown = false;
+        try
+        {
+            ints.get(4, 0);
+        } catch (IndexOutOfBoundsException e) {
+            thrown = true;
+        }
+        LibraryTests.equalBoolean("hex_grid outside", true, thrown);
+    }
+
+
+    static private void testLayoutBulk()
+    {
+        Random random = new Random(3);
+        Layout[] layouts = {
+                new Layout(Layout.flat, new Point(10.0, 15.0), new Point(35.0, 71.0)),
+                new Layout(Layout.pointy, new Point(10.0, -15.0), new Point(-3.5, 0.25))
+        };
+        int n = 1000;
+        int[] q = new int[n];
+        int[] r = new int[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] fq = new double[n];
+        double[] fr = new double[n];
+        boolean same = true;
+        for (Layout layout : layouts)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                q[i] = random.nextInt(2001) - 1000;
+                r[i] = random.nextInt(2001) - 1000;
+            }
+            layout.hexToPixel(q, r, x, y, 0, n);
+            for (int i = 0; i < n; i++)
+            {
+                Point point = layout.hexToPixel(new Hex(q[i], r[i]));
+                same &= point.x == x[i] && point.y == y[i];
+                x[i] = random.nextDouble() * 20000 - 10000;
+                y[i] = random.nextDouble() * 20000 - 10000;
+            }
+            layout.pixelToHex(x, y, q, r, 10, n - 20);
+            layout.pixelToFractionalHex(x, y, fq, fr, 10, n - 20);
+            for (int i = 10; i < n - 10; i++)
+            {
+                Hex hex = layout.pixelToHex(new Point(x[i], y[i]));
+                FractionalHex fractionalHex = layout.pixelToFractionalHex(new Point(x[i], y[i]));
+                same &= hex.q == q[i] && hex.r == r[i] && fractionalHex.q == fq[i] && fractionalHex.r == fr[i];
+            }
+        }
+        LibraryTests.equalBoolean("layout_bulk", true, same);
+    }
+
+
+    static private void testHexbinAggregator()
+    {
+        Random random = new Random(4);
+        Layout layout = new Layout(Layout.pointy, new Point(3.0, 3.0), new Point(0.0, 0.0));
+        int n = 100000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] weight = new double[n];
+        HashMap<Hex, long[]> expected = new HashMap<>();
+        for (int i = 0; i < n; i++)
+        {
+            x[i] = random.nextGaussian() * 40;
+            y[i] = random.nextGaussian() * 40;
+            weight[i] = random.nextInt(100);
+            long[] aggregate = expected.computeIfAbsent(layout.pixelToHex(new Point(x[i], y[i])), hex -> new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            aggregate[0]++;
+            aggregate[1] += (long) weight[i];
+            aggregate[2] = Math.min(aggregate[2], (long) weight[i]);
+            aggregate[3] = Math.max(aggregate[3], (long) weight[i]);
+        }
+        Hexbins bins = new HexbinAggregator(layout, ForkJoinPool.commonPool(), 1000).aggregate(x, y, weight);
+        LibraryTests.equalInt("hexbin size", expected.size(), bins.size());
+        boolean same = true;
+        for (Hex hex : expected.keySet())
+        {
+            long[] aggregate = expected.get(hex);
+            int row = bins.indexOf(hex);
+            same &= row >= 0 && bins.count(row) == aggregate[0] && bins.sum(row) == aggregate[1] && bins.min(row) == aggregate[2] && bins.max(row) == aggregate[3];
+        }
+        LibraryTests.equalBoolean("hexbin aggregates", true, same);
+        Hexbins unweighted = new HexbinAggregator(layout).aggregate(x, y);
+        long total = 0;
+        for (int row = 0; row < unweighted.size(); row++)
+        {
+            total += unweighted.count(row);
+            same &= unweighted.sum(row) == unweighted.count(row);
+        }
+        LibraryTests.equalInt("hexbin unweighted", n, (int) total);
+        LibraryTests.equalBoolean("hexbin unweighted sum", true, same);
+    }
+
+
+    static private void testHexLineTraversal()
+    {
+        Random random = new Random(5);
+        HexLineCursor cursor = new HexLineCursor();
+        boolean same = true;
+        for (int i = 0; i < 2000; i++)
+        {
+            Hex a = new Hex(random.nextInt(61) - 30, random.nextInt(61) - 30);
+            Hex b = new Hex(random.nextInt(61) - 30, random.nextInt(61) - 30);
+            ArrayList<Hex> expected = FractionalHex.hexLinedraw(a, b);
+            ArrayList<Hex> visited = new ArrayList<>();
+            same &= FractionalHex.hexLinedraw(a, b, (q, r) -> visited.add(new Hex(q, r)));
+            same &= expected.equals(visited);
+            cursor.reset(a, b);
+            int count = 0;
+            while (cursor.next())
+            {
+                same &= expected.get(cursor.index()).equals(new Hex(cursor.q(), cursor.r(), cursor.s()));
+                count++;
+            }
+            same &= count == expected.size() && cursor.length() == a.distance(b);
+        }
+        LibraryTests.equalBoolean("hex_line_traversal", true, same);
+        int[] visits = {0};
+        boolean completed = FractionalHex.hexLinedraw(new Hex(0, 0), new Hex(1, -5), (q, r) -> ++visits[0] < 3);
+        LibraryTests.equalBoolean("hex_line_traversal stop", false, completed);
+        LibraryTests.equalInt("hex_line_traversal stop", 3, visits[0]);
+    }
+
+
+    static private boolean checkHexSequence(HexSequence sequence, ArrayList<Hex> expected)
+    {
+        ArrayList<Hex> visited = new ArrayList<>();
+        sequence.forEach((q, r) -> visited.add(new Hex(q, r)));
+        boolean same = sequence.size() == expected.size() && expected.equals(visited);
+        for (int i = 0; i < expected.size(); i++)
+        {
+            same &= expected.get(i).equals(sequence.hex(i));
+        }
+        long expectedSum = 0;
+        for (Hex hex : expected)
+        {
+            expectedSum += HexKey.pack(hex) * 31 + hex.q;
+        }
+        same &= sequence.keys().parallel().map(key -> key * 31 + HexKey.q(key)).sum() == expectedSum;
+        same &= sequence.hexes().parallel().count() == expected.size();
+        return same;
+    }
+
+
+    static private void testHexSequence()
+    {
+        Hex center = new Hex(2, -7);
+        boolean same = true;
+        ArrayList<Hex> spiral = new ArrayList<>();
+        spiral.add(center);
+        same &= LibraryTests.checkHexSequence(HexSequence.ring(center, 0), new ArrayList<>(spiral));
+        for (int radius = 0; radius <= 12; radius++)
+        {
+            ArrayList<Hex> range = new ArrayList<>();
+            for (int q = -radius; q <= radius; q++)
+            {
+                for (int r = Math.max(-radius, -q - radius); r <= Math.min(radius, -q + radius); r++)
+                {
+                    range.add(center.add(new Hex(q, r)));
+                }
+            }
+            same &= LibraryTests.checkHexSequence(HexSequence.range(center, radius), range);
+            if (radius > 0)
+            {
+                ArrayList<Hex> ring = new ArrayList<>();
+                Hex hex = center.add(Hex.directions.get(4).scale(radius));
+                for (int i = 0; i < 6; i++)
+                {
+                    for (int j = 0; j < radius; j++)
+                    {
+                        ring.add(hex);
+                        hex = hex.neighbor(i);
+                    }
+                }
+                same &= LibraryTests.checkHexSequence(HexSequence.ring(center, radius), ring);
+                spiral.addAll(ring);
+            }
+            same &= LibraryTests.checkHexSequence(HexSequence.spiral(center, radius), spiral);
+        }
+        LibraryTests.equalBoolean("hex_sequence", true, same);
+        LibraryTests.equalInt("hex_sequence range 200", 120601, HexSequence.range(center, 200).size());
+        LibraryTests.equalInt("hex_sequence split", 60300, (int) HexSequence.range(center, 200).spliterator().trySplit().estimateSize());
+    }
+
+
+    static private int[] referenceDistances(HexShape shape, int start, HexCostFunction cost)
+    {
+        int[] distance = new int[shape.size()];
+        boolean[] done = new boolean[shape.size()];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        distance[start] = 0;
+        for (int iteration = 0; iteration < shape.size(); iteration++)
+        {
+            int best = -1;
+            for (int i = 0; i < shape.size(); i++)
+            {
+                if (!done[i] && distance[i] != Integer.MAX_VALUE && (best < 0 || distance[i] < distance[best])) best = i;
+            }
+            if (best < 0) break;
+            done[best] = true;
+            Hex hex = shape.hex(best);
+            for (int direction = 0; direction < 6; direction++)
+            {
+                Hex neighbor = hex.neighbor(direction);
+                int index = shape.index(neighbor);
+                int step = index < 0 ? -1 : cost.cost(hex.q, hex.r, neighbor.q, neighbor.r);
+                if (step >= 0 && distance[best] + step < distance[index]) distance[index] = distance[best] + step;
+            }
+        }
+        return distance;
+    }
+
+
+    static private void testHexPathfinder()
+    {
+        HexShape shape = HexShape.hexagon(8);
+        Random random = new Random(7);
+        int[] terrain = new int[shape.size()];
+        for (int i = 0; i < terrain.length; i++)
+        {
+            terrain[i] = random.nextInt(10) == 0 ? -1 : 1 + random.nextInt(4);
+        }
+        HexCostFunction cost = (fromQ, fromR, toQ, toR) -> terrain[shape.index(toQ, toR)];
+        HexPathfinder pathfinder = new HexPathfinder(shape);
+        HexPath path = new HexPath();
+        boolean same = true;
+        for (int start = 0; start < shape.size(); start += 17)
+        {
+            if (terrain[start] < 0) continue;
+            int[] expected = LibraryTests.referenceDistances(shape, start, cost);
+            for (int goal = 0; goal < shape.size(); goal += 5)
+            {
+                boolean found = pathfinder.findPath(shape.hex(start), shape.hex(goal), cost, path);
+                same &= found == (expected[goal] != Integer.MAX_VALUE);
+                if (!found) continue;
+                same &= path.cost() == expected[goal] && path.q(0) == shape.q(start) && path.r(path.length() - 1) == shape.r(goal);
+                int sum = 0;
+                for (int i = 1; i < path.length(); i++)
+                {
+                    same &= new Hex(path.q(i - 1), path.r(i - 1)).distance(new Hex(path.q(i), path.r(i))) == 1;
+                    sum += cost.cost(path.q(i - 1), path.r(i - 1), path.q(i), path.r(i));
+                }
+                same &= sum == path.cost();
+            }
+        }
+        LibraryTests.equalBoolean("hex_pathfinder", true, same);
+        int[] sequential = new int[shape.size()];
+        for (int goal = 0; goal < shape.size(); goal++)
+        {
+            sequential[goal] = pathfinder.findPath(0, 0, shape.q(goal), shape.r(goal), cost, path) ? path.cost() : -1;
+        }
+        int[] parallel = IntStream.range(0, shape.size()).parallel().map(goal -> {
+            HexPath own = new HexPath();
+            return pathfinder.findPath(0, 0, shape.q(goal), shape.r(goal), cost, own) ? own.cost() : -1;
+        }).toArray();
+        LibraryTests.equalBoolean("hex_pathfinder concurrent", true, Arrays.equals(sequential, parallel));
+        LibraryTests.equalBoolean("hex_pathfinder outside", false, pathfinder.findPath(0, 0, 9, 0, cost, path));
+        LibraryTests.equalInt("hex_pathfinder outside", 0, path.length());
+    }
+
+
+    static private void testHexFieldOfView()
+    {
+        HexShape shape = HexShape.hexagon(20);
+        HexFieldOfView fov = new HexFieldOfView(shape);
+        HexVisibility visibility = new HexVisibility(shape);
+        LibraryTests.equalBoolean("hex_fov compute", true, fov.update(0, 0, 5, visibility));
+        LibraryTests.equalInt("hex_fov open", 91, visibility.count());
+        fov.setOpaque(1, 0, true);
+        LibraryTests.equalBoolean("hex_fov wall changed", true, fov.update(0, 0, 5, visibility));
+        LibraryTests.equalBoolean("hex_fov wall visible", true, visibility.isVisible(1, 0));
+        LibraryTests.equalBoolean("hex_fov behind wall", false, visibility.isVisible(2, 0) || visibility.isVisible(5, 0));
+        LibraryTests.equalBoolean("hex_fov beside wall", true, visibility.isVisible(2, -1) && visibility.isVisible(1, 1) && visibility.isVisible(-5, 0));
+        LibraryTests.equalBoolean("hex_fov cached", false, fov.update(0, 0, 5, visibility));
+        fov.setOpaque(10, 0, true);
+        LibraryTests.equalBoolean("hex_fov far change", false, fov.update(0, 0, 5, visibility));
+        fov.setOpaque(0, 3, true);
+        LibraryTests.equalBoolean("hex_fov near change", true, fov.update(0, 0, 5, visibility));
+        LibraryTests.equalBoolean("hex_fov moved", true, fov.update(0, 1, 5, visibility));
+        int[] visited = {0};
+        visibility.forEach((q, r) -> {
+            visited[0]++;
+            return new Hex(q, r).distance(new Hex(0, 1)) <= 5;
+        });
+        LibraryTests.equalInt("hex_fov iteration", visibility.count(), visited[0]);
+        HexFieldOfView enclosed = new HexFieldOfView(shape);
+        HexSequence.ring(new Hex(0, 0), 2).forEach((q, r) -> {
+            enclosed.setOpaque(q, r, true);
+            return true;
+        });
+        enclosed.update(0, 0, 10, visibility);
+        LibraryTests.equalInt("hex_fov enclosed", 19, visibility.count());
+        boolean shadowed = true;
+        for (int d = 0; d < 6; d++)
+        {
+            HexFieldOfView blocked = new HexFieldOfView(shape);
+            Hex wall = Hex.directions.get(d);
+            blocked.setOpaque(wall.q, wall.r, true);
+            HexVisibility seen = new HexVisibility(shape);
+            blocked.update(0, 0, 10, seen);
+            shadowed &= seen.isVisible(wall.q, wall.r);
+            for (int k = 2; k <= 10; k++)
+            {
+                shadowed &= !seen.isVisible(wall.q * k, wall.r * k);
+            }
+        }
+        LibraryTests.equalBoolean("hex_fov every direction", true, shadowed);
+    }
+
+
+    static private boolean checkFlowField(HexFlowField field, int[][] sources)
+    {
+        HexShape shape = field.shape;
+        boolean valid = true;
+        for (int index = 0; index < shape.size(); index++)
+        {
+            int q = shape.q(index);
+            int r = shape.r(index);
+            int weight = HexFlowField.UNREACHABLE;
+            for (int[] source : sources)
+            {
+                if (source[0] == q && source[1] == r) weight = Math.min(weight, source[2]);
+            }
+            if (field.cost.getAt(index) < 0) weight = HexFlowField.UNREACHABLE;
+            int best = weight;
+            for (int d = 0; d < 6 && field.cost.getAt(index) >= 0; d++)
+            {
+                int neighbor = shape.index(q + Hex.directions.get(d).q, r + Hex.directions.get(d).r);
+                if (neighbor < 0 || field.distances()[neighbor] == HexFlowField.UNREACHABLE || field.cost.getAt(neighbor) < 0) continue;
+                best = Math.min(best, field.distances()[neighbor] + field.cost.getAt(neighbor));
+            }
+            valid &= best == field.distances()[index];
+            int direction = field.direction(q, r);
+            if (direction >= 0)
+            {
+                Hex next = new Hex(q, r).neighbor(direction);
+                valid &= field.distance(next.q, next.r) + field.cost.get(next) == field.distances()[index];
+            }
+            else
+            {
+                valid &= best == HexFlowField.UNREACHABLE || best == weight;
+            }
+        }
+        return valid;
+    }
+
+
+    static private void testHexFlowField()
+    {
+        Random random = new Random(9);
+        HexShape shape = HexShape.pointyTopRectangle(40, 30);
+        IntHexGrid cost = new IntHexGrid(shape);
+        for (int i = 0; i < shape.size(); i++)
+        {
+            cost.setAt(i, random.nextInt(8) == 0 ? -1 : 1 + random.nextInt(5));
+        }
+        int[][] sources = {{3, 4, 0}, {20, 25, 7}, {10, 2, 3}};
+        HexFlowField field = new HexFlowField(cost);
+        for (int[] source : sources)
+        {
+            field.addSource(source[0], source[1], source[2]);
+        }
+        field.compute();
+        LibraryTests.equalBoolean("hex_flow_field dijkstra", true, LibraryTests.checkFlowField(field, sources));
+        int[] sequential = field.distances().clone();
+        byte[] sequentialDirections = field.directions().clone();
+        field.computeParallel(ForkJoinPool.commonPool(), 7);
+        LibraryTests.equalBoolean("hex_flow_field parallel", true, Arrays.equals(sequential, field.distances()) && Arrays.equals(sequentialDirections, field.directions()));
+        int[] q = new int[20];
+        int[] r = new int[20];
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < q.length; i++)
+            {
+                int index = random.nextInt(shape.size());
+                q[i] = shape.q(index);
+                r[i] = shape.r(index);
+                cost.setAt(index, random.nextInt(6) == 0 ? -1 : 1 + random.nextInt(5));
+            }
+            field.repair(q, r, q.length);
+        }
+        LibraryTests.equalBoolean("hex_flow_field repair", true, LibraryTests.checkFlowField(field, sources));
+        int[] repaired = field.distances().clone();
+        field.compute();
+        LibraryTests.equalBoolean("hex_flow_field repair", true, Arrays.equals(repaired, field.distances()));
+        for (int i = 0; i < shape.size(); i++)
+        {
+            cost.setAt(i, cost.getAt(i) < 0 ? -1 : 1);
+        }
+        field.compute();
+        LibraryTests.equalBoolean("hex_flow_field unit cost", true, LibraryTests.checkFlowField(field, sources));
+        HexFlowField free = new HexFlowField(new IntHexGrid(HexShape.parallelogram(0, 5, 0, 0)));
+        free.addSource(0, 0, 0);
+        boolean rejected = false;
+        try
+        {
+            free.compute();
+        }
+        catch (IllegalArgumentException e)
+        {
+            rejected = true;
+        }
+        LibraryTests.equalBoolean("hex_flow_field zero cost", true, rejected);
+        cost.set(3, 4, 0);
+        rejected = false;
+        try
+        {
+            field.repair(new int[]{3}, new int[]{4}, 1);
+        }
+        catch (IllegalArgumentException e)
+        {
+            rejected = true;
+        }
+        LibraryTests.equalBoolean("hex_flow_field zero cost repair", true, rejected);
+    }
+
+
+    static private void testHexSpatialIndex()
+    {
+        Random random = new Random(10);
+        Layout layout = new Layout(Layout.flat, new Point(7.0, 5.0), new Point(-30.0, 12.0));
+        HexSpatialIndex index = new HexSpatialIndex(layout, 8);
+        int count = 2000;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int round = 0; round < 3; round++)
+        {
+            for (int id = 0; id < count; id++)
+            {
+                x[id] = round == 0 ? random.nextDouble() * 400.0 - 200.0 : x[id] + random.nextDouble() * 20.0 - 10.0;
+                y[id] = round == 0 ? random.nextDouble() * 400.0 - 200.0 : y[id] + random.nextDouble() * 20.0 - 10.0;
+                index.put(id, x[id], y[id]);
+            }
+        }
+        for (int id = 0; id < count; id += 3)
+        {
+            index.remove(id);
+        }
+        LibraryTests.equalInt("hex_spatial_index size", count - (count + 2) / 3, index.size());
+        boolean valid = true;
+        for (int query = 0; query < 50; query++)
+        {
+            double px = random.nextDouble() * 400.0 - 200.0;
+            double py = random.nextDouble() * 400.0 - 200.0;
+            Hex center = layout.pixelToHex(new Point(px, py));
+            int radius = random.nextInt(6);
+            double pixels = random.nextDouble() * 60.0;
+            boolean[] inHexes = new boolean[count];
+            boolean[] inDistance = new boolean[count];
+            index.withinHexes(center.q, center.r, radius, id -> inHexes[id] = true);
+            index.withinDistance(px, py, pixels, id -> inDistance[id] = true);
+            ArrayList<Integer> expected = new ArrayList<Integer>();
+            for (int id = 0; id < count; id++)
+            {
+                if (id % 3 == 0)
+                {
+                    valid &= !inHexes[id] && !inDistance[id];
+                    continue;
+                }
+                expected.add(id);
+                Hex hex = layout.pixelToHex(new Point(x[id], y[id]));
+                valid &= inHexes[id] == (center.distance(hex) <= radius);
+                valid &= inDistance[id] == (Math.hypot(x[id] - px, y[id] - py) <= pixels);
+            }
+            expected.sort((a, b) -> Double.compare(Math.hypot(x[a] - px, y[a] - py), Math.hypot(x[b] - px, y[b] - py)));
+            int k = 1 + random.nextInt(20);
+            int[] nearest = new int[k];
+            valid &= index.nearest(px, py, k, nearest) == k;
+            for (int i = 0; i < k; i++)
+            {
+                valid &= Math.hypot(x[nearest[i]] - px, y[nearest[i]] - py) == Math.hypot(x[expected.get(i)] - px, y[expected.get(i)] - py);
+            }
+        }
+        LibraryTests.equalBoolean("hex_spatial_index queries", true, valid);
+        HexSpatialIndex small = new HexSpatialIndex(layout, 4);
+        small.put(0, 0.0, 0.0);
+        small.put(1, 500.0, 500.0);
+        int[] all = new int[5];
+        LibraryTests.equalInt("hex_spatial_index nearest", 2, small.nearest(490.0, 490.0, 5, all));
+        LibraryTests.equalInt("hex_spatial_index nearest", 1, all[0]);
+    }
+
+
+    static private void testConcurrentHexMap()
+    {
+        ConcurrentHexMap<Integer> map = new ConcurrentHexMap<Integer>(2, 8);
+        IntStream.range(0, 8).parallel().forEach(worker ->
+        {
+            for (int i = 0; i < 20000; i++)
+            {
+                map.merge(i % 37 - 18, i % 23 - 11, 1, Integer::sum);
+            }
+        });
+        HashMap<Hex, Integer> expected = new HashMap<Hex, Integer>();
+        for (int i = 0; i < 20000; i++)
+        {
+            expected.merge(new Hex(i % 37 - 18, i % 23 - 11, -(i % 37 - 18) - (i % 23 - 11)), 8, Integer::sum);
+        }
+        boolean valid = map.size() == expected.size();
+        for (Hex hex : expected.keySet())
+        {
+            valid &= expected.get(hex).equals(map.get(hex.q, hex.r));
+        }
+        LibraryTests.equalBoolean("concurrent_hex_map merge", true, valid);
+        LibraryTests.equalInt("concurrent_hex_map put_if_absent", expected.get(new Hex(0, 0, 0)), map.putIfAbsent(0, 0, -1));
+        LibraryTests.equalBoolean("concurrent_hex_map put_if_absent", true, map.putIfAbsent(100, 100, 5) == null && map.get(100, 100) == 5);
+        map.compute(100, 100, (q, r, current) -> null);
+        LibraryTests.equalBoolean("concurrent_hex_map compute", false, map.containsKey(100, 100));
+        long[] edits = new long[500];
+        for (int i = 0; i < edits.length; i++)
+        {
+            edits[i] = HexKey.pack(i % 40 - 20, i / 40 - 6);
+        }
+        IntStream.range(0, 4).parallel().forEach(worker -> map.applyEdits(edits, 0, edits.length, (q, r, current) -> current == null ? 1 : current + 1));
+        valid = true;
+        HexLongMap<Integer> snapshot = map.snapshot();
+        for (long key : edits)
+        {
+            Hex hex = HexKey.toHex(key);
+            int before = expected.containsKey(hex) ? expected.get(hex) : 0;
+            valid &= snapshot.get(key) == before + 4;
+        }
+        LibraryTests.equalBoolean("concurrent_hex_map apply_edits", true, valid);
+        // a full table without empty slots, as a reader could see it halfway through a resize
+        HexLongMap<Integer> full = new HexLongMap<>();
+        Arrays.fill(full.keys, 0, full.keys.length - 1, HexKey.pack(1, 1));
+        LibraryTests.equalBoolean("concurrent_hex_map torn read", true, full.getOptimistic(HexKey.pack(2, 2)) == HexLongMap.TORN);
+        full = new HexLongMap<>();
+        full.put(0L, 7);
+        full.put(HexKey.pack(3, -2), 8);
+        valid = full.getOptimistic(0L).equals(7) && full.getOptimistic(HexKey.pack(3, -2)).equals(8) && full.getOptimistic(HexKey.pack(1, 1)) == null;
+        LibraryTests.equalBoolean("concurrent_hex_map optimistic read", true, valid);
+    }
+
+
+    static private void testHexWorldStore()
+    {
+        try
+        {
+            Path path = Files.createTempFile("hex-world", ".bin");
+            path.toFile().deleteOnExit();
+            // terrain: byte 0, elevation: short 2, owner: int 4
+            try (HexWorldStore store = HexWorldStore.create(path, 4, 8, -100, 99, -50, 149))
+            {
+                for (int r = -50; r < 150; r += 7)
+                {
+                    for (int q = -100; q < 100; q += 3)
+                    {
+                        store.putByte(q, r, 0, (byte) (q & 7));
+                        store.putShort(q, r, 2, (short) (q * r));
+                        store.putInt(q, r, 4, q * 1000 + r);
+                    }
+                }
+            }
+            try (HexWorldStore store = HexWorldStore.open(path))
+            {
+                boolean valid = store.contains(-100, -50) && store.contains(99, 149) && !store.contains(-200, 0);
+                for (int r = -50; r < 150; r += 7)
+                {
+                    for (int q = -100; q < 100; q += 3)
+                    {
+                        valid &= store.getByte(q, r, 0) == (byte) (q & 7) && store.getShort(q, r, 2) == (short) (q * r) && store.getInt(q, r, 4) == q * 1000 + r;
+                        valid &= store.getInt(q + 1, r, 4) == 0;
+                    }
+                }
+                LibraryTests.equalBoolean("hex_world_store roundtrip", true, valid);
+                boolean thrown = false;
+                try
+                {
+                    store.getInt(0, 0, 6);
+                }
+                catch (IndexOutOfBoundsException e)
+                {
+                    thrown = true;
+                }
+                LibraryTests.equalBoolean("hex_world_store field bounds", true, thrown);
+            }
+            // chunk shift, cell bytes and chunk counts out of range
+            int[][] corruptions = {{8, 40}, {12, 0}, {24, -1}, {28, Integer.MAX_VALUE}};
+            boolean rejected = true;
+            for (int[] corruption : corruptions)
+            {
+                byte[] bytes = Files.readAllBytes(path);
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(corruption[0], corruption[1]);
+                Path corrupt = Files.createTempFile("hex-world-corrupt", ".bin");
+                corrupt.toFile().deleteOnExit();
+                Files.write(corrupt, bytes);
+                try
+                {
+                    HexWorldStore.open(corrupt).close();
+                    rejected = false;
+                }
+                catch (IOException e)
+                {
+                    rejected &= e.getMessage().contains("corrupt header");
+                }
+            }
+            LibraryTests.equalBoolean("hex_world_store corrupt header", true, rejected);
+        }
+        catch (IOException e)
+        {
+            LibraryTests.complain("hex_world_store " + e);
+        }
+    }
+
+
+    static private void testHexCodec()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int[] values = {0, 1, -1, 63, -64, 64, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values)
+        {
+            HexCodec.writeSignedVarint(buffer, value);
+        }
+        buffer.flip();
+        boolean valid = true;
+        for (int value : values)
+        {
+            valid &= HexCodec.readSignedVarint(buffer) == value;
+        }
+        LibraryTests.equalBoolean("hex_codec varint", true, valid && !buffer.hasRemaining());
+        buffer.clear();
+        ArrayList<Hex> line = FractionalHex.hexLinedraw(new Hex(-40, 7, 33), new Hex(55, -90, 35));
+        ArrayList<Hex> jumps = new ArrayList<Hex>(Arrays.asList(new Hex(3, 4, -7), new Hex(3, 4, -7), new Hex(4, 4, -8), new Hex(-1000, 5, 995), new Hex(-1000, 6, 994)));
+        HexCodec.writeHexes(buffer, line);
+        int lineBytes = buffer.position();
+        HexCodec.writeHexes(buffer, jumps);
+        HexCodec.writeHexes(buffer, new ArrayList<Hex>());
+        buffer.flip();
+        LibraryTests.equalHexArray("hex_codec path", line, HexCodec.readHexes(buffer));
+        LibraryTests.equalHexArray("hex_codec escapes", jumps, HexCodec.readHexes(buffer));
+        LibraryTests.equalInt("hex_codec empty", 0, HexCodec.readHexes(buffer).size());
+        LibraryTests.equalBoolean("hex_codec path size", true, lineBytes <= 4 + (3 * line.size() + 7) / 8 && lineBytes <= HexCodec.maxHexesBytes(line.size()));
+        HexShape shape = HexShape.hexagon(20);
+        IntHexGrid terrain = new IntHexGrid(shape);
+        Random random = new Random(13);
+        for (int i = 0; i < shape.size(); i++)
+        {
+            terrain.setAt(i, random.nextInt(10) == 0 ? random.nextInt(5) - 2 : 7);
+        }
+        buffer.clear();
+        HexCodec.writeGrid(buffer, terrain);
+        LibraryTests.equalBoolean("hex_codec grid size", true, buffer.position() < shape.size());
+        buffer.flip();
+        IntHexGrid decoded = new IntHexGrid(shape);
+        HexCodec.readGrid(buffer, decoded);
+        LibraryTests.equalBoolean("hex_codec grid", true, Arrays.equals(terrain.array(), decoded.array()));
+    }
+
+
+    static private void testHexHierarchy()
+    {
+        boolean valid = true;
+        for (int q = -30; q <= 30; q++)
+        {
+            for (int r = -30; r <= 30; r++)
+            {
+                Hex hex = new Hex(q, r, -q - r);
+                Hex parent = HexHierarchy.parent(hex);
+                ArrayList<Hex> children = HexHierarchy.children(parent);
+                valid &= children.contains(hex) && children.get(0).distance(hex) <= 1;
+                for (Hex child : children)
+                {
+                    valid &= HexHierarchy.parent(child).equals(parent);
+                }
+                valid &= HexHierarchy.parent(hex, 3).equals(HexHierarchy.parent(HexHierarchy.parent(parent)));
+            }
+        }
+        LibraryTests.equalBoolean("hex_hierarchy parent children", true, valid);
+        LibraryTests.equalHex("hex_hierarchy center", new Hex(3, 5, -8), HexHierarchy.children(new Hex(2, 1, -3)).get(0));
+    }
+
+
+    static private void testHexPyramid()
+    {
+        Random random = new Random(14);
+        int levels = 3;
+        HexPyramid pyramid = new HexPyramid(levels);
+        HashMap<Hex, Integer> base = new HashMap<Hex, Integer>();
+        boolean valid = true;
+        for (int i = 0; i < 20000; i++)
+        {
+            int q = random.nextInt(61) - 30;
+            int r = random.nextInt(61) - 30;
+            if (random.nextInt(5) == 0)
+            {
+                valid &= (base.remove(new Hex(q, r, -q - r)) != null) == pyramid.remove(q, r);
+            }
+            else
+            {
+                int value = random.nextInt(1000) - 500;
+                base.put(new Hex(q, r, -q - r), value);
+                pyramid.set(q, r, value);
+            }
+        }
+        for (int l = 0; l <= levels; l++)
+        {
+            HashMap<Hex, long[]> expected = new HashMap<Hex, long[]>();
+            for (Hex hex : base.keySet())
+            {
+                int value = base.get(hex);
+                long[] aggregate = expected.computeIfAbsent(HexHierarchy.parent(hex, l), key -> new long[] {0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE});
+                aggregate[0]++;
+                aggregate[1] += value;
+                aggregate[2] = Math.min(aggregate[2], value);
+                aggregate[3] = Math.max(aggregate[3], value);
+            }
+            valid &= pyramid.size(l) == expected.size();
+            for (Hex hex : expected.keySet())
+            {
+                long[] aggregate = expected.get(hex);
+                valid &= pyramid.count(l, hex.q, hex.r) == aggregate[0] && pyramid.sum(l, hex.q, hex.r) == aggregate[1];
+                valid &= pyramid.min(l, hex.q, hex.r) == aggregate[2] && pyramid.max(l, hex.q, hex.r) == aggregate[3];
+            }
+        }
+        LibraryTests.equalBoolean("hex_pyramid aggregates", true, valid);
+    }
+
+
+    static private void testHexCache()
+    {
+        HexCache.enable(8);
+        Hex a = new Hex(3, -2, -1);
+        LibraryTests.equalBoolean("hex_cache shared", true, Hex.of(3, -2) == Hex.of(3, -2) && a.neighbor(0) == Hex.of(4, -2) && a.rotateLeft() == a.rotateLeft());
+        LibraryTests.equalBoolean("hex_cache outside", false, a.scale(4) == a.scale(4));
+        LibraryTests.equalHex("hex_cache outside", new Hex(12, -8, -4), a.scale(4));
+        LibraryTests.equalBoolean("hex_cache round", true, new FractionalHex(1.2, -0.4, -0.8).hexRound() == Hex.of(1, 0));
+        // the arithmetic must give the same results with the cache enabled
+        LibraryTests.testHexArithmetic();
+        LibraryTests.testHexNeighbor();
+        LibraryTests.testHexDiagonal();
+        LibraryTests.testHexRotateRight();
+        LibraryTests.testHexRotateLeft();
+        LibraryTests.testHexRound();
+        LibraryTests.testHexLinedraw();
+        HexCache.disable();
+        LibraryTests.equalBoolean("hex_cache disabled", false, Hex.of(3, -2) == Hex.of(3, -2));
+        LibraryTests.equalInt("hex_cache disabled", -1, HexCache.radius());
+    }
+
+
+    static private void testHexMeshBuilder()
+    {
+        Layout[] layouts = {new Layout(Layout.pointy, new Point(10.0, 15.0), new Point(35.0, 71.0)), new Layout(Layout.flat, new Point(10.0, -15.0), new Point(35.0, 71.0))};
+        for (Layout layout : layouts)
+        {
+            HexShape shape = HexShape.hexagon(10);
+            IntHexGrid heights = new IntHexGrid(shape);
+            heights.fill(2);
+            HexMesh mesh = new HexMeshBuilder(layout).build(shape, (q, r) -> heights.get(q, r));
+            LibraryTests.equalInt("hex_mesh vertices", 6 * 11 * 11, mesh.vertexCount());
+            LibraryTests.equalInt("hex_mesh indices", 12 * shape.size(), mesh.indices().remaining());
+            boolean valid = true;
+            for (int i = 0; i < shape.size(); i++)
+            {
+                Hex hex = shape.hex(i);
+                ArrayList<Point> corners = layout.polygonCorners(hex);
+                int position = mesh.position(hex.q, hex.r);
+                for (int c = 0; c < 6; c++)
+                {
+                    int vertex = mesh.vertex(position, c);
+                    valid &= Math.abs(mesh.vertices().get(3 * vertex) - corners.get(c).x) < 1e-3 && Math.abs(mesh.vertices().get(3 * vertex + 1) - corners.get(c).y) < 1e-3;
+                    valid &= mesh.vertices().get(3 * vertex + 2) == 2.0f;
+                }
+            }
+            LibraryTests.equalBoolean("hex_mesh corners", true, valid);
+            heights.set(0, 0, 5);
+            mesh.update(0, 0);
+            int center = mesh.position(0, 0);
+            valid = true;
+            for (int c = 0; c < 6; c++)
+            {
+                valid &= mesh.vertices().get(3 * mesh.vertex(center, c) + 2) == 3.0f;
+            }
+            int outer = mesh.position(10, 0);
+            int border = 0;
+            for (int c = 0; c < 6; c++)
+            {
+                border += mesh.vertices().get(3 * mesh.vertex(outer, c) + 2) == 2.0f ? 1 : 0;
+            }
+            LibraryTests.equalBoolean("hex_mesh update", true, valid && border == 6);
+        }
+    }
+
+
+    static private boolean intersectsRect(ArrayList<Point> corners, double x0, double y0, double x1, double y1)
+    {
+        // separating axis test: the axes of the rectangle and the normals of the hex edges
+        double[][] axes = new double[8][];
+        axes[0] = new double[] {1.0, 0.0};
+        axes[1] = new double[] {0.0, 1.0};
+        for (int i = 0; i < 6; i++)
+        {
+            Point a = corners.get(i);
+            Point b = corners.get((i + 1) % 6);
+            axes[2 + i] = new double[] {a.y - b.y, b.x - a.x};
+        }
+        double[][] rect = {{x0, y0}, {x1, y0}, {x1, y1}, {x0, y1}};
+        for (double[] axis : axes)
+        {
+            double hexMin = Double.POSITIVE_INFINITY, hexMax = Double.NEGATIVE_INFINITY;
+            for (Point corner : corners)
+            {
+                double projection = corner.x * axis[0] + corner.y * axis[1];
+                hexMin = Math.min(hexMin, projection);
+                hexMax = Math.max(hexMax, projection);
+            }
+            double rectMin = Double.POSITIVE_INFINITY, rectMax = Double.NEGATIVE_INFINITY;
+            for (double[] corner : rect)
+            {
+                double projection = corner[0] * axis[0] + corner[1] * axis[1];
+                rectMin = Math.min(rectMin, projection);
+                rectMax = Math.max(rectMax, projection);
+            }
+            if (hexMax < rectMin || rectMax < hexMin)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static private void testViewport()
+    {
+        Random random = new Random(18);
+        Layout[] layouts = {new Layout(Layout.pointy, new Point(10.0, 15.0), new Point(35.0, 71.0)), new Layout(Layout.flat, new Point(12.0, -9.0), new Point(-20.0, 5.0)), new Layout(Layout.pointy, new Point(-8.0, -8.0), new Point(0.0, 0.0))};
+        for (Layout layout : layouts)
+        {
+            boolean valid = true;
+            HexViewport viewport = new HexViewport(layout);
+            HashMap<Hex, Boolean> visible = new HashMap<Hex, Boolean>();
+            for (int frame = 0; frame < 40; frame++)
+            {
+                double x0 = random.nextDouble() * 400.0 - 200.0;
+                double y0 = random.nextDouble() * 400.0 - 200.0;
+                double x1 = x0 + random.nextDouble() * 150.0;
+                double y1 = y0 + random.nextDouble() * 150.0;
+                HashMap<Hex, Boolean> expected = new HashMap<Hex, Boolean>();
+                for (int q = -40; q <= 40; q++)
+                {
+                    for (int r = -40; r <= 40; r++)
+                    {
+                        Hex hex = new Hex(q, r, -q - r);
+                        if (LibraryTests.intersectsRect(layout.polygonCorners(hex), x0, y0, x1, y1))
+                        {
+                            expected.put(hex, true);
+                        }
+                    }
+                }
+                HashMap<Hex, Boolean> found = new HashMap<Hex, Boolean>();
+                layout.hexesInRect(x1, y1, x0, y0, (q, r) -> found.put(new Hex(q, r, -q - r), true) == null);
+                valid &= found.equals(expected);
+                viewport.move(x0, y0, x1, y1, (q, r) -> visible.put(new Hex(q, r, -q - r), true) == null, (q, r) -> visible.remove(new Hex(q, r, -q - r)) != null);
+                valid &= visible.equals(expected);
+            }
+            LibraryTests.equalBoolean("viewport rect", true, valid);
+        }
+        int[] count = new int[1];
+        LibraryTests.equalBoolean("viewport stop", false, layouts[0].hexesInRect(0.0, 0.0, 100.0, 100.0, (q, r) -> ++count[0] < 3));
+        LibraryTests.equalInt("viewport stop", 3, count[0]);
+    }
+
+
+    static private void testBatchConversions()
+    {
+        Random random = new Random(19);
+        int n = 1000;
+        int[] q = new int[n];
+        int[] r = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            q[i] = random.nextInt(2001) - 1000;
+            r[i] = random.nextInt(2001) - 1000;
+        }
+        int[] col = new int[n];
+        int[] row = new int[n];
+        int[] q2 = new int[n];
+        int[] r2 = new int[n];
+        boolean valid = true;
+        for (int offset : new int[] {OffsetCoord.EVEN, OffsetCoord.ODD})
+        {
+            OffsetCoord.flatTopOffsetFromCube(offset, q, r, col, row, 0, n);
+            OffsetCoord.flatTopOffsetToCube(offset, col, row, q2, r2, 0, n);
+            for (int i = 0; i < n; i++)
+            {
+                Hex hex = new Hex(q[i], r[i], -q[i] - r[i]);
+                OffsetCoord expected = OffsetCoord.flatTopOffsetFromCube(offset, hex);
+                valid &= col[i] == expected.col && row[i] == expected.row && q2[i] == q[i] && r2[i] == r[i];
+            }
+            OffsetCoord.pointyTopOffsetFromCube(offset, q, r, col, row, 0, n);
+            OffsetCoord.pointyTopOffsetToCube(offset, col, row, q2, r2, 0, n);
+            for (int i = 0; i < n; i++)
+            {
+                Hex hex = new Hex(q[i], r[i], -q[i] - r[i]);
+                OffsetCoord expected = OffsetCoord.pointyTopOffsetFromCube(offset, hex);
+                valid &= col[i] == expected.col && row[i] == expected.row && q2[i] == q[i] && r2[i] == r[i];
+            }
+        }
+        DoubledCoord.flatTopDoubledFromCube(q, r, col, row, 0, n);
+        DoubledCoord.flatTopDoubledToCube(col, row, q2, r2, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            DoubledCoord expected = DoubledCoord.flatTopDoubledFromCube(new Hex(q[i], r[i], -q[i] - r[i]));
+            valid &= col[i] == expected.col && row[i] == expected.row && q2[i] == q[i] && r2[i] == r[i];
+        }
+        DoubledCoord.pointyTopDoubledFromCube(q, r, col, row, 0, n);
+        DoubledCoord.pointyTopDoubledToCube(col, row, q2, r2, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            DoubledCoord expected = DoubledCoord.pointyTopDoubledFromCube(new Hex(q[i], r[i], -q[i] - r[i]));
+            valid &= col[i] == expected.col && row[i] == expected.row && q2[i] == q[i] && r2[i] == r[i];
+        }
+        // invalid doubled coordinates (odd col - row) round toward zero like the single conversions
+        for (int i = 0; i < n; i++)
+        {
+            col[i] = q[i];
+            row[i] = r[i];
+        }
+        DoubledCoord.flatTopDoubledToCube(col, row, q2, r2, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            valid &= LibraryTests.sameHex(DoubledCoord.flatTopDoubledToCube(new DoubledCoord(q[i], r[i])), q2[i], r2[i]);
+        }
+        DoubledCoord.pointyTopDoubledToCube(col, row, q2, r2, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            valid &= LibraryTests.sameHex(DoubledCoord.pointyTopDoubledToCube(new DoubledCoord(q[i], r[i])), q2[i], r2[i]);
+        }
+        LibraryTests.equalBoolean("batch conversions", true, valid);
+        // in place, and only inside the range
+        OffsetCoord.pointyTopOffsetFromCube(OffsetCoord.ODD, col, row, col, row, 1, n - 2);
+        OffsetCoord.pointyTopOffsetToCube(OffsetCoord.ODD, col, row, col, row, 1, n - 2);
+        LibraryTests.equalBoolean("batch conversions in place", true, Arrays.equals(col, q) && Arrays.equals(row, r));
+        boolean thrown = false;
+        try
+        {
+            OffsetCoord.flatTopOffsetToCube(0, col, row, q2, r2, 0, n);
+        }
+        catch (IllegalArgumentException e)
+        {
+            thrown = true;
+        }
+        LibraryTests.equalBoolean("batch conversions offset", true, thrown);
+        thrown = false;
+        try
+        {
+            DoubledCoord.flatTopDoubledToCube(col, row, q2, new int[n - 1], 0, n);
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            thrown = true;
+        }
+        LibraryTests.equalBoolean("batch conversions range", true, thrown);
+    }
+
+
+    static private boolean sameHex(Hex hex, int q, int r)
+    {
+        return hex.q == q && hex.r == r;
+    }
+
+
+    static private int[] referenceStep(HexShape shape, int[] cells, HexCellRule rule, int outside)
+    {
+        int[] next = new int[cells.length];
+        for (Hex hex : shape.hexes())
+        {
+            int[] n = new int[6];
+            for (int d = 0; d < 6; d++)
+            {
+                int index = shape.index(hex.neighbor(d));
+                n[d] = index < 0 ? outside : cells[index];
+            }
+            next[shape.index(hex)] = rule.next(cells[shape.index(hex)], n[0], n[1], n[2], n[3], n[4], n[5]);
+        }
+        return next;
+    }
+
+
+    static private void testHexAutomaton()
+    {
+        // 1 = fuel, 2 = burning, 3 = burnt; the edge of the map (state 2) sets the border on fire
+        HexCellRule fire = (cell, n0, n1, n2, n3, n4, n5) -> cell == 2 ? 3 : cell == 1 && (n0 == 2 || n1 == 2 || n2 == 2 || n3 == 2 || n4 == 2 || n5 == 2) ? 2 : cell;
+        // weighted sum of the neighbors, to catch mixed up directions
+        HexCellRule mix = (cell, n0, n1, n2, n3, n4, n5) -> (cell + n0 + 3 * n1 + 5 * n2 + 7 * n3 + 11 * n4 + 13 * n5) & 1023;
+        HexShape[] shapes = {HexShape.hexagon(12), HexShape.pointyTopRectangle(30, 17), HexShape.flatTopRectangle(9, 25), HexShape.triangle(10), HexShape.parallelogram(0, 0, -3, 3)};
+        Random random = new Random(20);
+        boolean valid = true;
+        for (HexShape shape : shapes)
+        {
+            for (int ruleIndex = 0; ruleIndex < 2; ruleIndex++)
+            {
+                HexCellRule rule = ruleIndex == 0 ? fire : mix;
+                int outside = ruleIndex == 0 ? 2 : 17;
+                HexAutomaton sequential = new HexAutomaton(shape, rule, outside);
+                HexAutomaton parallel = new HexAutomaton(shape, rule, outside);
+                HexAutomaton active = new HexAutomaton(shape, rule, outside);
+                int[] expected = new int[shape.size()];
+                for (int i = 0; i < shape.size(); i++)
+                {
+                    int state = ruleIndex == 0 ? (random.nextInt(4) == 0 ? 0 : 1) : random.nextInt(1024);
+                    expected[i] = state;
+                    sequential.setAt(i, state);
+                    parallel.setAt(i, state);
+                    active.setAt(i, state);
+                }
+                for (int tick = 0; tick < 30; tick++)
+                {
+                    expected = LibraryTests.referenceStep(shape, expected, rule, outside);
+                    sequential.step();
+                    parallel.step(ForkJoinPool.commonPool(), 5);
+                    active.stepActive();
+                    valid &= Arrays.equals(expected, sequential.array()) && Arrays.equals(expected, parallel.array()) && Arrays.equals(expected, active.array());
+                }
+            }
+        }
+        LibraryTests.equalBoolean("automaton steps", true, valid);
+        // a single spark in a field of fuel: the active steps only touch the fire front
+        HexShape shape = HexShape.hexagon(40);
+        HexAutomaton automaton = new HexAutomaton(shape, fire, 3);
+        automaton.fill(1);
+        LibraryTests.equalInt("automaton fill", -1, automaton.changedCount());
+        automaton.stepActive();
+        LibraryTests.equalInt("automaton no spark", 0, automaton.changedCount());
+        automaton.set(0, 0, 2);
+        automaton.stepActive();
+        LibraryTests.equalInt("automaton spark", 7, automaton.changedCount());
+        for (int tick = 0; tick < 10; tick++)
+        {
+            automaton.stepActive();
+        }
+        LibraryTests.equalInt("automaton front", 2, automaton.get(11, 0));
+        LibraryTests.equalInt("automaton burnt", 3, automaton.get(-5, 5));
+        LibraryTests.equalInt("automaton fuel", 1, automaton.get(0, 12));
+        LibraryTests.equalInt("automaton front size", 6 * 11 + 6 * 10, automaton.changedCount());
+    }
+
+
+    // true when both labelings split the cells into the same components
+    static private boolean samePartition(int[] a, int[] b)
+    {
+        HashMap<Integer, Integer> forward = new HashMap<Integer, Integer>();
+        HashMap<Integer, Integer> backward = new HashMap<Integer, Integer>();
+        for (int i = 0; i < a.length; i++)
+        {
+            Integer mappedB = forward.putIfAbsent(a[i], b[i]);
+            Integer mappedA = backward.putIfAbsent(b[i], a[i]);
+            if (mappedB != null && mappedB != b[i] || mappedA != null && mappedA != a[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static private void testHexLabeler()
+    {
+        Random random = new Random(21);
+        HexShape shape = HexShape.hexagon(15);
+        IntHexGrid grid = new IntHexGrid(shape);
+        for (int i = 0; i < shape.size(); i++)
+        {
+            grid.setAt(i, random.nextInt(3));
+        }
+        // reference: breadth first search over Hex objects
+        int[] expected = new int[shape.size()];
+        Arrays.fill(expected, -1);
+        int components = 0;
+        for (int i = 0; i < shape.size(); i++)
+        {
+            if (expected[i] >= 0)
+            {
+                continue;
+            }
+            ArrayList<Hex> queue = new ArrayList<Hex>();
+            queue.add(shape.hex(i));
+            expected[i] = components;
+            for (int head = 0; head < queue.size(); head++)
+            {
+                for (int d = 0; d < 6; d++)
+                {
+                    int neighbor = shape.index(queue.get(head).neighbor(d));
+                    if (neighbor >= 0 && expected[neighbor] < 0 && grid.getAt(neighbor) == grid.getAt(i))
+                    {
+                        expected[neighbor] = components;
+                        queue.add(shape.hex(neighbor));
+                    }
+                }
+            }
+            components++;
+        }
+        HexLabeler labeler = new HexLabeler(grid);
+        LibraryTests.equalBoolean("labeler label", true, Arrays.equals(expected, labeler.array()));
+        LibraryTests.equalInt("labeler count", components, labeler.componentCount());
+        HexLabeler parallel = new HexLabeler(new IntHexGrid(shape));
+        System.arraycopy(grid.array(), 0, parallel.grid.array(), 0, shape.size());
+        parallel.label(ForkJoinPool.commonPool(), 7);
+        LibraryTests.equalBoolean("labeler parallel", true, Arrays.equals(expected, parallel.array()));
+        int[] count = new int[1];
+        labeler.floodFill(3, -2, (q, r) -> ++count[0] > 0);
+        LibraryTests.equalInt("labeler flood fill", labeler.componentSize(labeler.labelOf(3, -2)), count[0]);
+        // single cell flips, compared with labeling from scratch
+        boolean valid = true;
+        for (int step = 0; step < 3000; step++)
+        {
+            Hex hex = shape.hex(random.nextInt(shape.size()));
+            labeler.set(hex.q, hex.r, random.nextInt(3));
+            if (step % 10 != 0)
+            {
+                continue;
+            }
+            HexLabeler fresh = new HexLabeler(grid);
+            valid &= LibraryTests.samePartition(fresh.array(), labeler.array());
+            valid &= fresh.componentCount() == labeler.componentCount();
+            for (int i = 0; i < shape.size(); i++)
+            {
+                valid &= fresh.componentSize(fresh.labelAt(i)) == labeler.componentSize(labeler.labelAt(i));
+            }
+        }
+        LibraryTests.equalBoolean("labeler set", true, valid);
+        // a cut through a large region, without recursion
+        HexShape large = HexShape.pointyTopRectangle(512, 512);
+        IntHexGrid land = new IntHexGrid(large);
+        HexLabeler islands = new HexLabeler(land);
+        LibraryTests.equalInt("labeler large", 1, islands.componentCount());
+        for (int r = 0; r < 512; r++)
+        {
+            islands.set(200 - (r >> 1), r, 1);
+        }
+        LibraryTests.equalInt("labeler cut", 3, islands.componentCount());
+        LibraryTests.equalInt("labeler cut size", 200 * 512, islands.componentSize(islands.labelOf(0, 0)));
+    }
+
+
+    static private HexRegion randomRegion(HexShape shape, Random random, HashMap<Hex, Boolean> set)
+    {
+        HexRegion region = new HexRegion(shape);
+        int density = 1 + random.nextInt(4);
+        for (Hex hex : shape.hexes())
+        {
+            if (random.nextInt(5) < density)
+            {
+                region.add(hex);
+                set.put(hex, true);
+            }
+        }
+        return region;
+    }
+
+
+    static private void testHexRegion()
+    {
+        Random random = new Random(22);
+        HexShape[] shapes = {HexShape.hexagon(10), HexShape.pointyTopRectangle(37, 13), HexShape.flatTopRectangle(70, 5), HexShape.triangle(12)};
+        boolean valid = true;
+        for (HexShape shape : shapes)
+        {
+            for (int round = 0; round < 10; round++)
+            {
+                HashMap<Hex, Boolean> a = new HashMap<Hex, Boolean>();
+                HashMap<Hex, Boolean> b = new HashMap<Hex, Boolean>();
+                HexRegion regionA = LibraryTests.randomRegion(shape, random, a);
+                HexRegion regionB = LibraryTests.randomRegion(shape, random, b);
+                HexRegion union = new HexRegion(regionA);
+                union.union(regionB);
+                HexRegion intersection = new HexRegion(regionA);
+                intersection.intersect(regionB);
+                HexRegion difference = new HexRegion(regionA);
+                difference.difference(regionB);
+                HexRegion dilated = new HexRegion(regionA);
+                dilated.dilate();
+                HexRegion eroded = new HexRegion(regionA);
+                eroded.erode();
+                int count = 0;
+                for (Hex hex : shape.hexes())
+                {
+                    boolean inA = a.containsKey(hex);
+                    boolean inB = b.containsKey(hex);
+                    boolean near = inA;
+                    boolean inside = inA;
+                    for (int d = 0; d < 6; d++)
+                    {
+                        boolean neighbor = a.containsKey(hex.neighbor(d));
+                        near |= neighbor;
+                        inside &= neighbor;
+                    }
+                    valid &= union.contains(hex) == (inA || inB) && intersection.contains(hex) == (inA && inB) && difference.contains(hex) == (inA && !inB);
+                    valid &= dilated.contains(hex) == near && eroded.contains(hex) == inside;
+                    count += inA ? 1 : 0;
+                }
+                valid &= regionA.cardinality() == count && regionA.intersects(regionB) == !intersection.isEmpty();
+                ArrayList<Hex> hexes = regionA.hexes();
+                valid &= hexes.size() == count;
+                int previous = -1;
+                for (Hex hex : hexes)
+                {
+                    int index = shape.index(hex);
+                    valid &= a.containsKey(hex) && index > previous && regionA.nextIndex(previous + 1) == index;
+                    previous = index;
+                }
+                valid &= regionA.nextIndex(previous + 1) == -1;
+            }
+        }
+        LibraryTests.equalBoolean("region operations", true, valid);
+        HexShape shape = HexShape.hexagon(6);
+        HexRegion region = new HexRegion(shape);
+        region.add(0, 0);
+        region.dilate();
+        region.dilate();
+        LibraryTests.equalInt("region dilate", 19, region.cardinality());
+        region.erode();
+        LibraryTests.equalInt("region erode", 7, region.cardinality());
+        region.fill();
+        LibraryTests.equalInt("region fill", shape.size(), region.cardinality());
+        region.erode();
+        LibraryTests.equalInt("region erode edge", HexShape.hexagon(5).size(), region.cardinality());
+        LibraryTests.equalBoolean("region outside", false, region.contains(7, 0));
+    }
+
+
+    static private void testHexSymmetry()
+    {
+        Random random = new Random(23);
+        int n = 200;
+        int[] q = new int[n];
+        int[] r = new int[n];
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+        {
+            q[i] = random.nextInt(201) - 100;
+            r[i] = random.nextInt(201) - 100;
+            keys[i] = HexKey.pack(q[i], r[i]);
+        }
+        boolean valid = true;
+        int[] outQ = new int[n];
+        int[] outR = new int[n];
+        long[] outKeys = new long[n];
+        for (int symmetry = 0; symmetry < HexSymmetry.COUNT; symmetry++)
+        {
+            HexSymmetry.transform(symmetry, q, r, outQ, outR, 0, n);
+            HexSymmetry.transform(symmetry, keys, outKeys, 0, n);
+            for (int i = 0; i < n; i++)
+            {
+                Hex expected = symmetry < 6 ? new Hex(q[i], r[i], -q[i] - r[i]) : new Hex(q[i], -q[i] - r[i], r[i]);
+                for (int step = 0; step < symmetry % 6; step++)
+                {
+                    expected = expected.rotateLeft();
+                }
+                Hex single = HexSymmetry.transform(symmetry, new Hex(q[i], r[i], -q[i] - r[i]));
+                valid &= single.equals(expected) && outQ[i] == expected.q && outR[i] == expected.r && outKeys[i] == HexKey.pack(expected.q, expected.r);
+                valid &= HexSymmetry.transform(HexSymmetry.inverse(symmetry), single).equals(new Hex(q[i], r[i], -q[i] - r[i]));
+            }
+        }
+        HexSymmetry.translate(3, -7, q, r, outQ, outR, 0, n);
+        HexSymmetry.translate(3, -7, keys, outKeys, 0, n);
+        for (int i = 0; i < n; i++)
+        {
+            valid &= outQ[i] == q[i] + 3 && outR[i] == r[i] - 7 && outKeys[i] == HexKey.pack(q[i] + 3, r[i] - 7);
+        }
+        LibraryTests.equalBoolean("symmetry transforms", true, valid);
+        // regions: translate, shifted intersection and transforms, compared hex by hex
+        HexShape shape = HexShape.hexagon(9);
+        HashMap<Hex, Boolean> set = new HashMap<Hex, Boolean>();
+        HexRegion region = LibraryTests.randomRegion(shape, random, set);
+        HexRegion other = LibraryTests.randomRegion(shape, random, new HashMap<Hex, Boolean>());
+        valid = true;
+        for (int round = 0; round < 20; round++)
+        {
+            int dq = random.nextInt(9) - 4;
+            int dr = random.nextInt(9) - 4;
+            HexRegion translated = new HexRegion(region);
+            translated.translate(dq, dr);
+            HexRegion shifted = new HexRegion(other);
+            shifted.intersectShifted(region, dq, dr);
+            int symmetry = random.nextInt(HexSymmetry.COUNT);
+            HexRegion transformed = new HexRegion(shape);
+            HexSymmetry.transform(symmetry, region, transformed);
+            for (Hex hex : shape.hexes())
+            {
+                valid &= translated.contains(hex) == set.containsKey(new Hex(hex.q - dq, hex.r - dr, -hex.q + dq - hex.r + dr));
+                valid &= shifted.contains(hex) == (other.contains(hex) && region.contains(hex.q + dq, hex.r + dr));
+                valid &= transformed.contains(hex) == region.contains(HexSymmetry.transform(HexSymmetry.inverse(symmetry), hex));
+            }
+        }
+        LibraryTests.equalBoolean("symmetry regions", true, valid);
+        // pattern matching under all symmetries, compared with checking every anchor
+        IntHexGrid grid = new IntHexGrid(HexShape.hexagon(20));
+        for (int i = 0; i < grid.shape.size(); i++)
+        {
+            grid.setAt(i, random.nextInt(10) < 7 ? 0 : 1 + random.nextInt(2));
+        }
+        int[] patternQ = {0, 1, 1, 0, -2};
+        int[] patternR = {0, 0, -1, 2, 1};
+        int[] patternValues = {1, 0, 2, 0, 0};
+        HexPatternMatcher matcher = new HexPatternMatcher(grid);
+        HexRegion[] matches = matcher.matchAll(patternQ, patternR, patternValues);
+        valid = true;
+        int found = 0;
+        for (int symmetry = 0; symmetry < HexSymmetry.COUNT; symmetry++)
+        {
+            for (Hex anchor : grid.shape.hexes())
+            {
+                boolean expected = true;
+                for (int i = 0; i < patternQ.length; i++)
+                {
+                    Hex cell = anchor.add(HexSymmetry.transform(symmetry, new Hex(patternQ[i], patternR[i], -patternQ[i] - patternR[i])));
+                    expected &= grid.shape.contains(cell.q, cell.r) && grid.get(cell) == patternValues[i];
+                }
+                valid &= matches[symmetry].contains(anchor) == expected;
+                found += expected ? 1 : 0;
+            }
+        }
+        valid &= matcher.match(7, patternQ, patternR, patternValues).equals(matches[7]);
+        LibraryTests.equalBoolean("symmetry pattern matches", true, valid && found > 0);
+        HexRegion[] ring = matcher.matchAll(new int[] {1, 1, 0, -1, -1, 0}, new int[] {0, -1, -1, 0, 1, 1}, new int[] {0, 0, 0, 0, 0, 0});
+        LibraryTests.equalBoolean("symmetry pattern shared", true, ring[0] == ring[5] && ring[0] == ring[11]);
+    }
+
+
+    static private void testHexMorton()
+    {
+        Random random = new Random(24);
+        boolean valid = true;
+        int[] extremes = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        for (int q : extremes)
+        {
+            for (int r : extremes)
+            {
+                long code = HexMorton.encode(q, r);
+                valid &= HexMorton.decodeQ(code) == q && HexMorton.decodeR(code) == r;
+            }
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            int q = random.nextInt();
+            int r = random.nextInt();
+            long code = HexMorton.encode(q, r);
+            valid &= HexMorton.decodeQ(code) == q && HexMorton.decodeR(code) == r;
+            int dq = random.nextInt(41) - 20;
+            int dr = random.nextInt(41) - 20;
+            valid &= HexMorton.add(code, HexMorton.interleave(dq, dr)) == HexMorton.encode(q + dq, r + dr);
+            // the code grows with each coordinate
+            valid &= Long.compareUnsigned(code, HexMorton.encode(q, r == Integer.MAX_VALUE ? r : r + 1)) <= 0;
+            valid &= Long.compareUnsigned(code, HexMorton.encode(q == Integer.MAX_VALUE ? q : q + 1, r)) <= 0;
+        }
+        LibraryTests.equalBoolean("morton roundtrip", true, valid);
+        // inside a block of 2^k by 2^k the codes are exactly [0..4^k)
+        boolean[] seen = new boolean[256];
+        for (int y = 0; y < 16; y++)
+        {
+            for (int x = 0; x < 16; x++)
+            {
+                seen[(int) HexMorton.interleave(x, y)] = true;
+            }
+        }
+        boolean all = true;
+        for (boolean b : seen)
+        {
+            all &= b;
+        }
+        LibraryTests.equalBoolean("morton block", true, all);
+        LibraryTests.equalInt("morton interleave", 0b1011, (int) HexMorton.interleave(1, 3));
+        int n = 500;
+        int[] q = new int[n];
+        int[] r = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            q[i] = random.nextInt(200) - 100;
+            r[i] = random.nextInt(200) - 100;
+        }
+        int[] sortedQ = q.clone();
+        int[] sortedR = r.clone();
+        HexMorton.sort(sortedQ, sortedR, 0, n);
+        valid = true;
+        for (int i = 1; i < n; i++)
+        {
+            valid &= Long.compareUnsigned(HexMorton.encode(sortedQ[i - 1], sortedR[i - 1]), HexMorton.encode(sortedQ[i], sortedR[i])) <= 0;
+        }
+        long[] codes = new long[n];
+        long[] sortedCodes = new long[n];
+        HexMorton.encode(q, r, codes, 0, n);
+        HexMorton.encode(sortedQ, sortedR, sortedCodes, 0, n);
+        Arrays.sort(codes);
+        Arrays.sort(sortedCodes);
+        LibraryTests.equalBoolean("morton sort", true, valid && Arrays.equals(codes, sortedCodes));
+    }
+
+
+    static private void testHexReachability()
+    {
+        HexShape shape = HexShape.hexagon(12);
+        Random random = new Random(25);
+        IntHexGrid terrain = new IntHexGrid(shape);
+        for (int i = 0; i < shape.size(); i++)
+        {
+            terrain.setAt(i, random.nextInt(8) == 0 ? -1 : random.nextInt(4));
+        }
+        HexCostFunction cost = (fromQ, fromR, toQ, toR) -> terrain.get(toQ, toR);
+        HexReachability reachability = new HexReachability(terrain);
+        HexReachableSet set = new HexReachableSet(shape);
+        HexPath path = new HexPath();
+        boolean valid = true;
+        for (int start = 0; start < shape.size(); start += 13)
+        {
+            int budget = random.nextInt(12);
+            int[] expected = LibraryTests.referenceDistances(shape, start, cost);
+            reachability.reach(shape.hex(start), budget, set);
+            int[] found = new int[shape.size()];
+            Arrays.fill(found, -1);
+            valid &= set.index(0) == start && set.direction(0) == -1 && set.remaining(0) == budget;
+            for (int i = 0; i < set.size(); i++)
+            {
+                valid &= found[set.index(i)] < 0 && (i == 0 || set.remaining(i) <= set.remaining(i - 1));
+                found[set.index(i)] = budget - set.remaining(i);
+                if (i == 0) continue;
+                Hex back = new Hex(set.q(i), set.r(i)).neighbor(set.direction(i));
+                valid &= set.parent(i) < i && set.q(set.parent(i)) == back.q && set.r(set.parent(i)) == back.r;
+                set.path(i, path);
+                int sum = 0;
+                for (int step = 1; step < path.length(); step++)
+                {
+                    sum += terrain.get(path.q(step), path.r(step));
+                }
+                valid &= path.q(0) == shape.q(start) && path.r(path.length() - 1) == set.r(i) && sum == path.cost() && sum == found[set.index(i)];
+            }
+            for (int i = 0; i < shape.size(); i++)
+            {
+                valid &= expected[i] <= budget ? found[i] == expected[i] : found[i] < 0;
+            }
+        }
+        LibraryTests.equalBoolean("hex_reachability dijkstra", true, valid);
+        HexRegion region = new HexRegion(shape);
+        reachability.reach(0, 0, 100, set);
+        set.addTo(region);
+        int[] all = LibraryTests.referenceDistances(shape, shape.index(0, 0), cost);
+        int reachable = 0;
+        for (int distance : all)
+        {
+            if (distance != Integer.MAX_VALUE) reachable++;
+        }
+        LibraryTests.equalInt("hex_reachability region", reachable, region.cardinality());
+        int units = 50;
+        int[] q = new int[units];
+        int[] r = new int[units];
+        int[] budgets = new int[units];
+        for (int i = 0; i < units; i++)
+        {
+            int index = random.nextInt(shape.size());
+            q[i] = shape.q(index);
+            r[i] = shape.r(index);
+            budgets[i] = random.nextInt(10);
+        }
+        HexReachableSet[] results = new HexReachableSet[units];
+        reachability.reachAll(ForkJoinPool.commonPool(), q, r, budgets, results, units);
+        valid = true;
+        for (int i = 0; i < units; i++)
+        {
+            reachability.reach(q[i], r[i], budgets[i], set);
+            valid &= results[i].size() == set.size();
+            for (int j = 0; valid && j < set.size(); j++)
+            {
+                valid &= results[i].index(j) == set.index(j) && results[i].remaining(j) == set.remaining(j);
+            }
+        }
+        LibraryTests.equalBoolean("hex_reachability batch", true, valid);
+        reachability.reach(20, 0, 5, set);
+        LibraryTests.equalInt("hex_reachability outside", 0, set.size());
+        // steps longer than the initial ring of buckets, and a budget without a limit
+        for (int i = 0; i < shape.size(); i++)
+        {
+            if (terrain.getAt(i) >= 0) terrain.setAt(i, random.nextInt(3) == 0 ? 1 + random.nextInt(5000) : random.nextInt(40));
+        }
+        valid = true;
+        for (int budget : new int[]{100, 3000, Integer.MAX_VALUE})
+        {
+            int[] expected = LibraryTests.referenceDistances(shape, shape.index(2, -1), cost);
+            reachability.reach(2, -1, budget, set);
+            int count = 0;
+            for (int i = 0; i < shape.size(); i++)
+            {
+                if (expected[i] != Integer.MAX_VALUE && expected[i] <= budget) count++;
+            }
+            valid &= set.size() == count;
+            for (int i = 0; i < set.size(); i++)
+            {
+                valid &= budget - set.remaining(i) == expected[set.index(i)];
+            }
+        }
+        LibraryTests.equalBoolean("hex_reachability large costs", true, valid);
+    }
+
+
     static public void run()
     {
         LibraryTests.testHexArithmetic();
@@ -203,14 +1845,49 @@ public class LibraryTests {
         LibraryTests.testDoubledRoundtrip();
         LibraryTests.testDoubledFromCube();
         LibraryTests.testDoubledToCube();
+        LibraryTests.testHexKey();
+        LibraryTests.testHexLongSet();
+        LibraryTests.testHexLongMap();
+        LibraryTests.testHexShape();
+        LibraryTests.testHexGrid();
+        LibraryTests.testLayoutBulk();
+        LibraryTests.testHexbinAggregator();
+        LibraryTests.testHexLineTraversal();
+        LibraryTests.testHexSequence();
+        LibraryTests.testHexPathfinder();
+        LibraryTests.testHexFieldOfView();
+        LibraryTests.testHexFlowField();
+        LibraryTests.testHexSpatialIndex();
+        LibraryTests.testConcurrentHexMap();
+        LibraryTests.testHexWorldStore();
+        LibraryTests.testHexCodec();
+        LibraryTests.testHexHierarchy();
+        LibraryTests.testHexPyramid();
+        LibraryTests.testHexCache();
+        LibraryTests.testHexMeshBuilder();
+        LibraryTests.testViewport();
+        LibraryTests.testBatchConversions();
+        LibraryTests.testHexAutomaton();
+        LibraryTests.testHexLabeler();
+        LibraryTests.testHexRegion();
+        LibraryTests.testHexSymmetry();
+        LibraryTests.testHexMorton();
+        LibraryTests.testHexReachability();
     }
 
 
     static private void complain(String name)
     {
+        failures++;
         System.out.println("FAIL " + name);
     }
 
+
+    static public int failures()
+    {
+        return failures;
+    }
+
     static private void reportSuccess(String name)
     {
         System.out.println(name + " - OK");
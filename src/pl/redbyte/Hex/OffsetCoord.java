@@ -1,5 +1,7 @@
 package pl.redbyte.Hex;
 
+import java.util.Objects;
+
 public class OffsetCoord {
 
     /**
@@ -43,11 +45,11 @@ public class OffsetCoord {
      * @throws IllegalArgumentException when offset != - 1 && offset != +1.
      */
     static public OffsetCoord flatTopOffsetFromCube(int offset, Hex hex) {
-        int col = hex.q;
-        int row = hex.r + (int) ((hex.q + offset * (hex.q & 1)) / 2);
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
         }
+        int col = hex.q;
+        int row = hex.r + (int) ((hex.q + offset * (hex.q & 1)) / 2);
         return new OffsetCoord(col, row);
     }
 
@@ -63,12 +65,12 @@ public class OffsetCoord {
      * @throws IllegalArgumentException when offset != - 1 && offset != +1.
      */
     static public Hex flatTopOffsetToCube(int offset, OffsetCoord coords) {
-        int q = coords.col;
-        int r = coords.row - (int) ((coords.col + offset * (coords.col & 1)) / 2);
-        int s = -q - r;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
         }
+        int q = coords.col;
+        int r = coords.row - (int) ((coords.col + offset * (coords.col & 1)) / 2);
+        int s = -q - r;
         return new Hex(q, r, s);
     }
 
@@ -84,11 +86,11 @@ public class OffsetCoord {
      * @throws IllegalArgumentException when offset != - 1 && offset != +1.
      */
     static public OffsetCoord pointyTopOffsetFromCube(int offset, Hex hex) {
-        int col = hex.q + (int) ((hex.r + offset * (hex.r & 1)) / 2);
-        int row = hex.r;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
         }
+        int col = hex.q + (int) ((hex.r + offset * (hex.r & 1)) / 2);
+        int row = hex.r;
         return new OffsetCoord(col, row);
     }
 
@@ -104,12 +106,121 @@ public class OffsetCoord {
      * @throws IllegalArgumentException when offset != - 1 && offset != +1.
      */
     static public Hex pointyTopOffsetToCube(int offset, OffsetCoord coords) {
+        if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
+            throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
+        }
         int q = coords.col - (int) ((coords.row + offset * (coords.row & 1)) / 2);
         int r = coords.row;
         int s = -q - r;
+        return new Hex(q, r, s);
+    }
+
+
+    static private void checkBatch(int offset, int[] a, int[] b, int[] c, int[] d, int start, int length) {
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
         }
-        return new Hex(q, r, s);
+        Objects.checkFromIndexSize(start, length, a.length);
+        Objects.checkFromIndexSize(start, length, b.length);
+        Objects.checkFromIndexSize(start, length, c.length);
+        Objects.checkFromIndexSize(start, length, d.length);
+    }
+
+
+    /**
+     * Converts a batch of axial coordinates to flat top offset coordinates. The arguments are checked once for the
+     * whole batch, and the loop has no branches: {@code x + offset * (x & 1)} is always even, so the halving is a
+     * shift. The output arrays may be the input arrays.
+     *
+     * @param offset offset type, {@code EVEN} or {@code ODD}
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param col    receives the columns
+     * @param row    receives the rows
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IllegalArgumentException  when offset != - 1 && offset != +1.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void flatTopOffsetFromCube(int offset, int[] q, int[] r, int[] col, int[] row, int start, int length) {
+        checkBatch(offset, q, r, col, row, start, length);
+        for (int i = start; i < start + length; i++) {
+            int hq = q[i];
+            int hr = r[i];
+            col[i] = hq;
+            row[i] = hr + ((hq + offset * (hq & 1)) >> 1);
+        }
+    }
+
+
+    /**
+     * Converts a batch of flat top offset coordinates to axial coordinates, like {@code flatTopOffsetFromCube}.
+     *
+     * @param offset offset type, {@code EVEN} or {@code ODD}
+     * @param col    columns of the hexes
+     * @param row    rows of the hexes
+     * @param q      receives the q coordinates
+     * @param r      receives the r coordinates
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IllegalArgumentException  when offset != - 1 && offset != +1.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void flatTopOffsetToCube(int offset, int[] col, int[] row, int[] q, int[] r, int start, int length) {
+        checkBatch(offset, col, row, q, r, start, length);
+        for (int i = start; i < start + length; i++) {
+            int c = col[i];
+            int w = row[i];
+            q[i] = c;
+            r[i] = w - ((c + offset * (c & 1)) >> 1);
+        }
+    }
+
+
+    /**
+     * Converts a batch of axial coordinates to pointy top offset coordinates, like {@code flatTopOffsetFromCube}.
+     *
+     * @param offset offset type, {@code EVEN} or {@code ODD}
+     * @param q      q coordinates of the hexes
+     * @param r      r coordinates of the hexes
+     * @param col    receives the columns
+     * @param row    receives the rows
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IllegalArgumentException  when offset != - 1 && offset != +1.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void pointyTopOffsetFromCube(int offset, int[] q, int[] r, int[] col, int[] row, int start, int length) {
+        checkBatch(offset, q, r, col, row, start, length);
+        for (int i = start; i < start + length; i++) {
+            int hq = q[i];
+            int hr = r[i];
+            col[i] = hq + ((hr + offset * (hr & 1)) >> 1);
+            row[i] = hr;
+        }
+    }
+
+
+    /**
+     * Converts a batch of pointy top offset coordinates to axial coordinates, like {@code flatTopOffsetFromCube}.
+     *
+     * @param offset offset type, {@code EVEN} or {@code ODD}
+     * @param col    columns of the hexes
+     * @param row    rows of the hexes
+     * @param q      receives the q coordinates
+     * @param r      receives the r coordinates
+     * @param start  index of the first hex in the arrays
+     * @param length number of hexes
+     * @throws IllegalArgumentException  when offset != - 1 && offset != +1.
+     * @throws IndexOutOfBoundsException when the range is outside of the arrays.
+     */
+    static public void pointyTopOffsetToCube(int offset, int[] col, int[] row, int[] q, int[] r, int start, int length) {
+        checkBatch(offset, col, row, q, r, start, length);
+        for (int i = start; i < start + length; i++) {
+            int c = col[i];
+            int w = row[i];
+            q[i] = c - ((w + offset * (w & 1)) >> 1);
+            r[i] = w;
+        }
     }
 }
@@ -7,10 +7,9 @@ public class Main {
 
     public static void main(String[] args) {
         LibraryTests.run();
-
-        // TODO
-        // Add (to Layout class) a map generation with a grid of hexagons with rectangular, oval and triangular shapes.
-        // See: https://www.redblobgames.com/grids/hexagons/implementation.html#map-shapes
+        if (LibraryTests.failures() > 0) {
+            System.exit(1);
+        }
     }
 
 